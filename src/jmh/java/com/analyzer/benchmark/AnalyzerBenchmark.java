@@ -0,0 +1,157 @@
+package com.analyzer.benchmark;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.analyzer.model.SearchTokenMatcher;
+import com.analyzer.model.TokenAnalyzer;
+import com.analyzer.model.TokenBatchDispatcher;
+import com.analyzer.model.TokenView;
+
+
+/**
+ * measures each analyzer on its own, over tokens that are already split - one token at a time through
+ * processToken, and in batches through processTokens as an analysis passes them
+ * every invocation starts from an empty analyzer, so the scores include growing its tables
+ * scores are per token - run with -prof gc for the bytes allocated per token
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see TokenAnalyzer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(BenchmarkSupport.TOKEN_COUNT)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+    @Param({"FileSummaryAnalyzer", "DistinctTokensAnalyzer", "LargestTokensAnalyzer", "DistinctTokenCountsAnalyzer",
+            "TokenLengthsAnalyzer", "TopTokensAnalyzer", "TokenLocationSearchAnalyzer", "InvertedIndexAnalyzer"})
+    public String analyzerName;
+
+    @Param("100000")
+    public int vocabularySize;
+
+    @Param("1.0")
+    public double exponent;
+
+    //benchmark inputs, generated once per run - the tokens as strings, and as one character array for views
+    private String[] tokens;
+    private char[] characters;
+    private int[] offsets;
+    private Path outputDirectory;
+    private Properties properties;
+    private SearchTokenMatcher searchTokens;
+
+    //analyzer under test, replaced before every invocation
+    private Set<TokenAnalyzer> analyzers;
+    private TokenAnalyzer analyzer;
+
+
+    /**
+     * generates the tokens and loads the properties
+     * @throws IOException if the output directory can't be created
+     */
+    @Setup(Level.Trial)
+    public void generateTokens() throws IOException {
+        tokens = new ZipfCorpusGenerator(vocabularySize, exponent, ZipfCorpusGenerator.DEFAULT_SEED)
+                .createTokens(BenchmarkSupport.TOKEN_COUNT);
+
+        offsets = new int[tokens.length + 1];
+        for (int index = 0; index < tokens.length; index++) {
+            offsets[index + 1] = offsets[index] + tokens[index].length();
+        }
+
+        characters = new char[offsets[tokens.length]];
+        for (int index = 0; index < tokens.length; index++) {
+            tokens[index].getChars(0, tokens[index].length(), characters, offsets[index]);
+        }
+
+        outputDirectory = Files.createTempDirectory("analyzer-benchmark");
+        properties = BenchmarkSupport.loadProperties(outputDirectory);
+        searchTokens = BenchmarkSupport.loadSearchTokens(properties);
+    }
+
+
+    /**builds an empty analyzer for the next invocation*/
+    @Setup(Level.Invocation)
+    public void createAnalyzer() {
+        analyzers = BenchmarkSupport.createAnalyzers(properties, searchTokens);
+        analyzer = BenchmarkSupport.findAnalyzer(analyzers, analyzerName);
+    }
+
+
+    /**releases temp files the analyzers spilled*/
+    @TearDown(Level.Invocation)
+    public void closeAnalyzer() {
+        for (TokenAnalyzer created : analyzers) {
+            created.close();
+        }
+    }
+
+
+    /**
+     * deletes anything the analyzers wrote
+     * @throws IOException if a file can't be deleted
+     */
+    @TearDown(Level.Trial)
+    public void deleteOutputs() throws IOException {
+        BenchmarkSupport.deleteDirectory(outputDirectory);
+    }
+
+
+    /**
+     * passes every token as a String
+     * @return analyzer, so its work is not eliminated
+     */
+    @Benchmark
+    public TokenAnalyzer processToken() {
+        for (String token : tokens) {
+            analyzer.processToken(token);
+        }
+        return analyzer;
+    }
+
+
+    /**
+     * passes every token in batches of analysis.batch.size, copied from views as the tokenizer hands them out
+     * @return analyzer, so its work is not eliminated
+     */
+    @Benchmark
+    public TokenAnalyzer processTokens() {
+
+        TokenBatchDispatcher dispatcher = new TokenBatchDispatcher(Collections.singleton(analyzer),
+                Integer.parseInt(properties.getProperty("analysis.batch.size")));
+        TokenView view = new TokenView();
+
+        for (int index = 0; index < tokens.length; index++) {
+            view.set(characters, offsets[index], offsets[index + 1] - offsets[index]);
+            dispatcher.accept(view);
+        }
+        dispatcher.flush();
+        return analyzer;
+    }
+}
@@ -0,0 +1,139 @@
+package com.analyzer.benchmark;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import com.analyzer.model.FileAnalysis;
+import com.analyzer.model.SearchTokenMatcher;
+import com.analyzer.model.TokenAnalyzer;
+import com.analyzer.model.TokenLocationSearchAnalyzer;
+
+
+/**
+ * shared setup for the benchmarks - properties, analyzers, corpus files, and temp directories
+ * analyzers are built by FileAnalysis.createAnalyzers so they are configured exactly as in an analysis
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see ZipfCorpusGenerator
+ */
+final class BenchmarkSupport {
+
+    //tokens processed per benchmark invocation - scores are reported per token
+    static final int TOKEN_COUNT = 1 << 20;
+
+    //generated corpus files are kept here and reused by later runs with the same parameters
+    static final Path CORPUS_DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"), "file-analyzer-corpus");
+
+
+    /**utility class - not instantiated*/
+    private BenchmarkSupport() {}
+
+
+    /**
+     * loads analyzer.properties with outputs redirected to a benchmark directory
+     * every optional analyzer is enabled so each one can be benchmarked
+     * @param outputDirectory directory the analyzers write to
+     * @return loaded properties
+     */
+    static Properties loadProperties(Path outputDirectory) {
+
+        Properties properties = new FileAnalysis().loadProperties("config/analyzer.properties");
+        properties.setProperty("output.directory", outputDirectory.toString() + File.separator);
+        properties.setProperty("analysis.exact.distinct.enabled", "true");
+        properties.setProperty("analysis.index.enabled", "true");
+        return properties;
+    }
+
+
+    /**
+     * compiles the configured search tokens
+     * @param properties loaded properties
+     * @return search token matcher
+     */
+    static SearchTokenMatcher loadSearchTokens(Properties properties) {
+        return new TokenLocationSearchAnalyzer(properties).getMatcher();
+    }
+
+
+    /**
+     * builds a full analyzer set the way an analysis does
+     * @param properties loaded properties
+     * @param searchTokens compiled search tokens
+     * @return new analyzer set
+     */
+    static Set<TokenAnalyzer> createAnalyzers(Properties properties, SearchTokenMatcher searchTokens) {
+        return new FileAnalysis(properties, searchTokens).createAnalyzers(properties);
+    }
+
+
+    /**
+     * picks one analyzer out of a set by its class name
+     * @param analyzers analyzer set
+     * @param analyzerName simple class name, such as TopTokensAnalyzer
+     * @return matching analyzer
+     */
+    static TokenAnalyzer findAnalyzer(Set<TokenAnalyzer> analyzers, String analyzerName) {
+
+        for (TokenAnalyzer analyzer : analyzers) {
+            if (analyzer.getClass().getSimpleName().equals(analyzerName)) {
+                return analyzer;
+            }
+        }
+        throw new IllegalArgumentException("No analyzer named " + analyzerName);
+    }
+
+
+    /**
+     * returns a generated corpus file, generating it the first time its parameters are used
+     * @param size byte count with an optional KB, MB, or GB suffix
+     * @param vocabularySize number of distinct words
+     * @param exponent Zipf exponent
+     * @return corpus file
+     * @throws IOException if the file can't be written
+     */
+    static Path findCorpus(String size, int vocabularySize, double exponent) throws IOException {
+
+        Files.createDirectories(CORPUS_DIRECTORY);
+
+        Path corpusFile = CORPUS_DIRECTORY.resolve("zipf-" + size + "-" + vocabularySize + "-" + exponent
+                + "-" + ZipfCorpusGenerator.DEFAULT_SEED + ".txt");
+
+        if (!Files.isRegularFile(corpusFile)) {
+
+            //written under a temp name so an interrupted run never leaves a partial corpus behind
+            Path partialFile = Files.createTempFile(CORPUS_DIRECTORY, "zipf-", ".partial");
+
+            new ZipfCorpusGenerator(vocabularySize, exponent, ZipfCorpusGenerator.DEFAULT_SEED)
+                    .writeCorpus(partialFile, ZipfCorpusGenerator.parseSize(size));
+            Files.move(partialFile, corpusFile);
+        }
+        return corpusFile;
+    }
+
+
+    /**
+     * deletes a directory and everything in it
+     * @param directory directory to delete, ignored if null
+     * @throws IOException if a file can't be deleted
+     */
+    static void deleteDirectory(Path directory) throws IOException {
+
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
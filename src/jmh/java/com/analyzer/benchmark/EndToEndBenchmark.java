@@ -0,0 +1,112 @@
+package com.analyzer.benchmark;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.analyzer.model.AnalysisResult;
+import com.analyzer.model.FileAnalysis;
+import com.analyzer.model.FileSummaryAnalyzer;
+
+
+/**
+ * measures a whole analysis of a generated corpus file with FileAnalysis.analyze, using analyzer.properties as is -
+ * reading, every enabled analyzer, and writing the output files
+ * corpus files are generated on first use under java.io.tmpdir and reused, so sizes up to GBs are only written once
+ * scores are analyses per second, with a tokens counter giving tokens per second
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see FileAnalysis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    @Param("16MB")
+    public String corpusSize;
+
+    @Param("100000")
+    public int vocabularySize;
+
+    @Param("1.0")
+    public double exponent;
+
+    //benchmark inputs, set up once per run
+    private Path corpusFile;
+    private Path outputDirectory;
+
+
+    /**
+     * counts the tokens analyzed, reported per second next to the analyses
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class TokenCounter {
+
+        public long tokens;
+
+        /**starts every iteration from 0*/
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+    }
+
+
+    /**
+     * finds or generates the corpus file
+     * @throws IOException if the corpus or output directory can't be created
+     */
+    @Setup(Level.Trial)
+    public void createCorpus() throws IOException {
+        corpusFile = BenchmarkSupport.findCorpus(corpusSize, vocabularySize, exponent);
+        outputDirectory = Files.createTempDirectory("end-to-end-benchmark");
+    }
+
+
+    /**
+     * deletes the output files - the corpus is kept for the next run
+     * @throws IOException if a file can't be deleted
+     */
+    @TearDown(Level.Trial)
+    public void deleteOutputs() throws IOException {
+        BenchmarkSupport.deleteDirectory(outputDirectory);
+    }
+
+
+    /**
+     * analyzes the corpus file
+     * @param counter receives the number of tokens analyzed
+     * @return analysis result, so its work is not eliminated
+     */
+    @Benchmark
+    public AnalysisResult analyze(TokenCounter counter) {
+
+        AnalysisResult result = new FileAnalysis().analyze(corpusFile.toString(), outputDirectory.toString() + File.separator);
+
+        counter.tokens += result.getAnalyzer(FileSummaryAnalyzer.class).getTotalTokensCount();
+        return result;
+    }
+}
@@ -0,0 +1,129 @@
+package com.analyzer.benchmark;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.analyzer.model.SearchTokenMatcher;
+import com.analyzer.model.TokenAnalyzer;
+import com.analyzer.model.TokenBatchDispatcher;
+import com.analyzer.model.Tokenizer;
+
+
+/**
+ * measures writing each analyzer's output file after it has processed a generated corpus
+ * the analyzer is filled again before every invocation, since writing may consume what it spilled
+ * scores are per output file
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see TokenAnalyzer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputBenchmark {
+
+    @Param({"FileSummaryAnalyzer", "DistinctTokensAnalyzer", "LargestTokensAnalyzer", "DistinctTokenCountsAnalyzer",
+            "TokenLengthsAnalyzer", "TopTokensAnalyzer", "TokenLocationSearchAnalyzer", "InvertedIndexAnalyzer"})
+    public String analyzerName;
+
+    @Param("100000")
+    public int vocabularySize;
+
+    @Param("1.0")
+    public double exponent;
+
+    //benchmark inputs, generated once per run
+    private String text;
+    private Path outputDirectory;
+    private Properties properties;
+    private SearchTokenMatcher searchTokens;
+
+    //analyzer under test, refilled before every invocation
+    private Set<TokenAnalyzer> analyzers;
+    private TokenAnalyzer analyzer;
+
+
+    /**
+     * generates the text and loads the properties
+     * @throws IOException if the output directory can't be created
+     */
+    @Setup(Level.Trial)
+    public void generateText() throws IOException {
+        text = new ZipfCorpusGenerator(vocabularySize, exponent, ZipfCorpusGenerator.DEFAULT_SEED)
+                .createText(BenchmarkSupport.TOKEN_COUNT);
+
+        outputDirectory = Files.createTempDirectory("output-benchmark");
+        properties = BenchmarkSupport.loadProperties(outputDirectory);
+        searchTokens = BenchmarkSupport.loadSearchTokens(properties);
+    }
+
+
+    /**
+     * builds the analyzer and passes it the text, as an analysis would
+     * @throws IOException never thrown by a StringReader
+     */
+    @Setup(Level.Invocation)
+    public void fillAnalyzer() throws IOException {
+        analyzers = BenchmarkSupport.createAnalyzers(properties, searchTokens);
+        analyzer = BenchmarkSupport.findAnalyzer(analyzers, analyzerName);
+
+        TokenBatchDispatcher dispatcher = new TokenBatchDispatcher(Collections.singleton(analyzer),
+                Integer.parseInt(properties.getProperty("analysis.batch.size")));
+        new Tokenizer().tokenize(new StringReader(text), dispatcher);
+        dispatcher.flush();
+    }
+
+
+    /**releases temp files the analyzers spilled*/
+    @TearDown(Level.Invocation)
+    public void closeAnalyzer() {
+        for (TokenAnalyzer created : analyzers) {
+            created.close();
+        }
+    }
+
+
+    /**
+     * deletes the written output files
+     * @throws IOException if a file can't be deleted
+     */
+    @TearDown(Level.Trial)
+    public void deleteOutputs() throws IOException {
+        BenchmarkSupport.deleteDirectory(outputDirectory);
+    }
+
+
+    /**
+     * writes the analyzer's output file
+     * @return analyzer, so its work is not eliminated
+     */
+    @Benchmark
+    public TokenAnalyzer generateOutputFile() {
+        analyzer.generateOutputFile("zipf-corpus.txt");
+        return analyzer;
+    }
+}
@@ -0,0 +1,153 @@
+package com.analyzer.benchmark;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.analyzer.model.FileAnalysis;
+import com.analyzer.model.SearchTokenMatcher;
+import com.analyzer.model.TokenAnalyzer;
+import com.analyzer.model.Tokenizer;
+
+
+/**
+ * measures reading input: the tokenizer alone over characters and over mapped bytes,
+ * then FileAnalysis.readInputFile, which also batches the tokens and runs every analyzer on them
+ * scores are per token - run with -prof gc for the bytes allocated per token
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see Tokenizer
+ * @see FileAnalysis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(BenchmarkSupport.TOKEN_COUNT)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    @Param("100000")
+    public int vocabularySize;
+
+    @Param("1.0")
+    public double exponent;
+
+    //benchmark inputs, generated once per run
+    private String text;
+    private ByteBuffer bytes;
+    private Path outputDirectory;
+    private Properties properties;
+    private SearchTokenMatcher searchTokens;
+
+
+    /**
+     * a fresh analyzer set for every readInputFile call, so analyzers never carry tokens over
+     */
+    @State(Scope.Thread)
+    public static class Analysis {
+
+        private FileAnalysis fileAnalysis;
+
+        /**
+         * builds the analyzers the next call reads into
+         * @param benchmark benchmark state holding the properties
+         */
+        @Setup(Level.Invocation)
+        public void createAnalyzers(TokenizerBenchmark benchmark) {
+            fileAnalysis = new FileAnalysis(benchmark.properties, benchmark.searchTokens);
+            fileAnalysis.createInstance(benchmark.properties);
+        }
+
+        /**releases temp files the analyzers spilled*/
+        @TearDown(Level.Invocation)
+        public void closeAnalyzers() {
+            fileAnalysis.closeAnalyzers();
+        }
+    }
+
+
+    /**
+     * generates the text, as characters and as bytes, and loads the properties
+     * @throws IOException if the output directory can't be created
+     */
+    @Setup(Level.Trial)
+    public void generateText() throws IOException {
+        text = new ZipfCorpusGenerator(vocabularySize, exponent, ZipfCorpusGenerator.DEFAULT_SEED)
+                .createText(BenchmarkSupport.TOKEN_COUNT);
+        bytes = ByteBuffer.allocateDirect(text.length());
+        bytes.put(text.getBytes(StandardCharsets.US_ASCII)).flip();
+
+        outputDirectory = Files.createTempDirectory("tokenizer-benchmark");
+        properties = BenchmarkSupport.loadProperties(outputDirectory);
+        searchTokens = BenchmarkSupport.loadSearchTokens(properties);
+    }
+
+
+    /**
+     * deletes anything the analyzers wrote
+     * @throws IOException if a file can't be deleted
+     */
+    @TearDown(Level.Trial)
+    public void deleteOutputs() throws IOException {
+        BenchmarkSupport.deleteDirectory(outputDirectory);
+    }
+
+
+    /**
+     * tokenizes characters from a reader, as openInputFile does
+     * @param blackhole consumes the token lengths
+     * @throws IOException never thrown by a StringReader
+     */
+    @Benchmark
+    public void tokenizeReader(Blackhole blackhole) throws IOException {
+        new Tokenizer().tokenize(new StringReader(text), token -> blackhole.consume(token.length()));
+    }
+
+
+    /**
+     * tokenizes bytes from a direct buffer, as a memory-mapped file is read
+     * @param blackhole consumes the token lengths
+     */
+    @Benchmark
+    public void tokenizeMappedBytes(Blackhole blackhole) {
+        new Tokenizer().tokenize(bytes.duplicate(), token -> blackhole.consume(token.length()));
+    }
+
+
+    /**
+     * tokenizes the text and passes the tokens to every analyzer in batches
+     * @param analysis fresh analyzer set
+     * @return analyzers, so their work is not eliminated
+     * @throws IOException never thrown by a StringReader
+     */
+    @Benchmark
+    public Set<TokenAnalyzer> readInputFile(Analysis analysis) throws IOException {
+        analysis.fileAnalysis.readInputFile(new StringReader(text));
+        return analysis.fileAnalysis.getAnalyzers();
+    }
+}
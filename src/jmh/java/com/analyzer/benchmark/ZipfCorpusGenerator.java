@@ -0,0 +1,318 @@
+package com.analyzer.benchmark;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+
+/**
+ * deterministic generator of synthetic text for the benchmarks - replaces generateFile.sh
+ * tokens are drawn from a vocabulary of random words whose frequencies follow Zipf's law: the word of rank r
+ * occurs in proportion to 1 / r^exponent, so a few words dominate and most are rare, as in natural text
+ *
+ * the same vocabulary size, exponent, and seed always produce the same words in the same order,
+ * so a corpus can be regenerated instead of stored, and results compare across releases
+ * lines hold 5 to 14 words separated by single spaces, like the lines of largeFile.txt
+ *
+ * run as java com.analyzer.benchmark.ZipfCorpusGenerator <file> <size> [vocabulary] [exponent] [seed]
+ * where size is a byte count with an optional KB, MB, or GB suffix
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see TokenizerBenchmark
+ * @see EndToEndBenchmark
+ */
+public class ZipfCorpusGenerator {
+
+    //defaults for the optional arguments
+    public static final int DEFAULT_VOCABULARY_SIZE = 100000;
+    public static final double DEFAULT_EXPONENT = 1.0;
+    public static final long DEFAULT_SEED = 42;
+
+    //word lengths 1 to 15, weighted roughly like English words
+    private static final int[] LENGTH_WEIGHTS = {3, 17, 21, 18, 14, 10, 7, 4, 2, 1, 1, 1, 1, 1, 1};
+
+    //private instance variables
+    private final SplittableRandom random;
+    private final byte[][] words;
+    private final double[] cumulativeFrequencies;
+
+
+    /**
+     * create a generator with a new vocabulary
+     * @param vocabularySize number of distinct words
+     * @param exponent Zipf exponent, 1.0 for natural text - larger values concentrate on fewer words
+     * @param seed random seed for the vocabulary and the token sequence
+     */
+    public ZipfCorpusGenerator(int vocabularySize, double exponent, long seed) {
+        random = new SplittableRandom(seed);
+        words = createVocabulary(Math.max(1, vocabularySize));
+        cumulativeFrequencies = createCumulativeFrequencies(words.length, exponent);
+    }
+
+
+    /**
+     * generates a corpus file from the command line
+     * @param args output file, size, then optional vocabulary size, exponent, and seed
+     */
+    public static void main(String[] args) {
+
+        if (args.length < 2 || args.length > 5) {
+            System.out.println("Please enter the output file and size, optionally followed by vocabulary size, exponent, and seed");
+            return;
+        }
+
+        try {
+            int vocabularySize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_VOCABULARY_SIZE;
+            double exponent = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_EXPONENT;
+            long seed = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_SEED;
+
+            ZipfCorpusGenerator generator = new ZipfCorpusGenerator(vocabularySize, exponent, seed);
+            long tokenCount = generator.writeCorpus(Paths.get(args[0]), parseSize(args[1]));
+
+            System.out.println("Wrote " + tokenCount + " tokens to " + args[0]);
+
+        } catch (NumberFormatException exception) {
+            System.out.println("Error reading generator arguments");
+            // exception.printStackTrace();
+
+        } catch (IOException exception) {
+            System.out.println("Error writing corpus file");
+            // exception.printStackTrace();
+        }
+    }
+
+
+    /**
+     * reads a size such as 512KB, 64MB, or 2GB
+     * @param size byte count with an optional KB, MB, or GB suffix
+     * @return number of bytes
+     */
+    public static long parseSize(String size) {
+
+        String value = size.trim().toUpperCase();
+        long unit = 1;
+
+        if (value.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (value.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (value.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+
+        if (unit > 1) {
+            value = value.substring(0, value.length() - 2).trim();
+        }
+        return Long.parseLong(value) * unit;
+    }
+
+
+    /**
+     * returns the number of distinct words the generator draws from
+     * @return vocabulary size
+     */
+    public int getVocabularySize() {
+        return words.length;
+    }
+
+
+    /**
+     * draws the next token
+     * @return word from the vocabulary
+     */
+    public String nextToken() {
+        return new String(words[nextRank()], StandardCharsets.US_ASCII);
+    }
+
+
+    /**
+     * draws a sequence of tokens
+     * @param tokenCount number of tokens
+     * @return tokens in the order they were drawn
+     */
+    public String[] createTokens(int tokenCount) {
+
+        String[] tokens = new String[tokenCount];
+
+        for (int index = 0; index < tokenCount; index++) {
+            tokens[index] = nextToken();
+        }
+        return tokens;
+    }
+
+
+    /**
+     * draws tokens into lines of text, the layout writeCorpus uses
+     * @param tokenCount number of tokens
+     * @return text holding exactly tokenCount tokens
+     */
+    public String createText(int tokenCount) {
+
+        StringBuilder text = new StringBuilder(tokenCount * 8);
+        int lineWords = 0;
+        int lineLength = nextLineLength();
+
+        for (int index = 0; index < tokenCount; index++) {
+            text.append(nextToken());
+
+            if (++lineWords == lineLength) {
+                text.append('\n');
+                lineWords = 0;
+                lineLength = nextLineLength();
+            } else {
+                text.append(' ');
+            }
+        }
+        return text.toString();
+    }
+
+
+    /**
+     * writes lines of tokens until the file reaches a size - the last line is finished, so the file may run
+     * one line past the size
+     * @param outputFile file to create or replace
+     * @param byteCount size to reach
+     * @return number of tokens written
+     * @throws IOException if the file can't be written
+     */
+    public long writeCorpus(Path outputFile, long byteCount) throws IOException {
+
+        long tokenCount = 0;
+        long bytesWritten = 0;
+
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(outputFile), 1 << 20)) {
+
+            while (bytesWritten < byteCount) {
+                int lineLength = nextLineLength();
+
+                for (int lineWord = 0; lineWord < lineLength; lineWord++) {
+                    byte[] word = words[nextRank()];
+
+                    output.write(word);
+                    output.write(lineWord == lineLength - 1 ? '\n' : ' ');
+                    bytesWritten += word.length + 1;
+                }
+                tokenCount += lineLength;
+            }
+        }
+        return tokenCount;
+    }
+
+
+    /**
+     * draws a rank by inverting the cumulative Zipf distribution
+     * @return vocabulary index, 0 for the most frequent word
+     */
+    private int nextRank() {
+
+        int rank = Arrays.binarySearch(cumulativeFrequencies, random.nextDouble());
+
+        //not found returns -(insertion point) - 1, the first entry above the draw
+        return Math.min(rank < 0 ? -rank - 1 : rank + 1, cumulativeFrequencies.length - 1);
+    }
+
+
+    /**
+     * draws the number of words on a line
+     * @return 5 to 14, as generateFile.sh does
+     */
+    private int nextLineLength() {
+        return random.nextInt(5, 15);
+    }
+
+
+    /**
+     * draws distinct random words - lowercase, with every tenth word capitalized
+     * @param vocabularySize number of words
+     * @return words as ASCII bytes, in rank order
+     */
+    private byte[][] createVocabulary(int vocabularySize) {
+
+        int totalWeight = 0;
+        for (int weight : LENGTH_WEIGHTS) {
+            totalWeight += weight;
+        }
+
+        byte[][] vocabulary = new byte[vocabularySize][];
+        Set<String> drawn = new HashSet<>(vocabularySize * 2);
+        int longestLength = LENGTH_WEIGHTS.length;
+
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            String word;
+
+            //a short length can run out of distinct words - a repeat draws again, longer after a few tries
+            int attempts = 0;
+            do {
+                int length = Math.min(drawLength(totalWeight) + attempts / 8, longestLength);
+                char[] letters = new char[length];
+
+                for (int index = 0; index < length; index++) {
+                    letters[index] = (char) ('a' + random.nextInt(26));
+                }
+                if (random.nextInt(10) == 0) {
+                    letters[0] = Character.toUpperCase(letters[0]);
+                }
+
+                word = new String(letters);
+                attempts++;
+
+                if (attempts % 64 == 0) {
+                    longestLength++;
+                }
+            } while (!drawn.add(word));
+
+            vocabulary[rank] = word.getBytes(StandardCharsets.US_ASCII);
+        }
+        return vocabulary;
+    }
+
+
+    /**
+     * draws a word length from LENGTH_WEIGHTS
+     * @param totalWeight sum of the weights
+     * @return length of at least 1
+     */
+    private int drawLength(int totalWeight) {
+
+        int draw = random.nextInt(totalWeight);
+        int length = 0;
+
+        while (draw >= LENGTH_WEIGHTS[length]) {
+            draw -= LENGTH_WEIGHTS[length];
+            length++;
+        }
+        return length + 1;
+    }
+
+
+    /**
+     * sums the Zipf frequencies of the ranks, normalized so the last entry is 1
+     * @param vocabularySize number of ranks
+     * @param exponent Zipf exponent
+     * @return cumulative frequency through each rank
+     */
+    private static double[] createCumulativeFrequencies(int vocabularySize, double exponent) {
+
+        double[] cumulative = new double[vocabularySize];
+        double total = 0;
+
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            total += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            cumulative[rank] /= total;
+        }
+        return cumulative;
+    }
+}
@@ -0,0 +1,221 @@
+package com.analyzer.controller;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import com.analyzer.model.AnalysisResult;
+
+/**
+ * One uploaded file's analysis - tracks its status from the time it is queued until its results are collected.
+ * Status changes come from the worker thread, the timeout scheduler, and request threads, so they are synchronized.
+ */
+public class AnalysisJob {
+
+    /**lifecycle of a job - every status after RUNNING is final*/
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED, TIMED_OUT }
+
+    //private instance variables
+    private final String id;
+    private final String fileName;
+    private final Path uploadDirectory;
+    private final Path outputDirectory;
+    private final long submittedTime;
+    private long startedTime;
+    private long finishedTime;
+    private Status status;
+    private String message;
+    private Future<?> future;
+    private AnalysisResult result;
+
+
+    /**
+     * create a queued job
+     * @param id job id
+     * @param fileName original name of the uploaded file
+     * @param uploadDirectory temporary directory holding the upload, null for streamed uploads
+     * @param outputDirectory directory the job's output files are written to
+     */
+    public AnalysisJob(String id, String fileName, Path uploadDirectory, Path outputDirectory) {
+        this.id = id;
+        this.fileName = fileName;
+        this.uploadDirectory = uploadDirectory;
+        this.outputDirectory = outputDirectory;
+        this.submittedTime = System.currentTimeMillis();
+        this.status = Status.QUEUED;
+    }
+
+
+    /**
+     * returns the job's id
+     * @return id the job's status and results are requested by
+     */
+    public String getId() {
+        return id;
+    }
+
+
+    /**
+     * returns the name the file was uploaded under
+     * @return original name of the uploaded file
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+
+    /**
+     * returns the temporary directory holding the upload
+     * @return upload directory, null for streamed uploads
+     */
+    public Path getUploadDirectory() {
+        return uploadDirectory;
+    }
+
+
+    /**
+     * returns the directory the job's output files are written to
+     * @return output directory
+     */
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+
+    /**
+     * returns the job's current status
+     * @return status, final once the job has finished
+     */
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+
+    /**
+     * returns when the job stopped, used to remove it after the retention period
+     * @return finish time in milliseconds since the epoch, 0 until the job has finished
+     */
+    public synchronized long getFinishedTime() {
+        return finishedTime;
+    }
+
+
+    /**
+     * returns the job's output files
+     * @return analysis result without analyzers, null until the job has completed
+     */
+    public synchronized AnalysisResult getResult() {
+        return result;
+    }
+
+
+    /**
+     * checks if the job has stopped for good
+     * @return true once the job has completed, failed, or been cancelled
+     */
+    public synchronized boolean isFinished() {
+        return status != Status.QUEUED && status != Status.RUNNING;
+    }
+
+
+    /**
+     * keeps the executor's handle so the job can be cancelled
+     * @param future handle of the submitted job
+     */
+    public synchronized void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+
+    /**
+     * marks the job as running unless it was cancelled while queued
+     * @return false if the job should not run
+     */
+    public synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        startedTime = System.currentTimeMillis();
+        return true;
+    }
+
+
+    /**
+     * marks the job as completed with its result, unless it was cancelled or timed out first
+     * only the output files are kept - a finished job is held for the retention period, and its analyzers'
+     * tables and counts would hold the heap that long
+     * @param analysisResult analyzers and output files of the job
+     * @param finalMessage detail shown with the status, may be null
+     * @return false if the job had already finished
+     */
+    public synchronized boolean complete(AnalysisResult analysisResult, String finalMessage) {
+        if (!finish(Status.COMPLETED, finalMessage)) {
+            return false;
+        }
+        result = analysisResult.withoutAnalyzers();
+        return true;
+    }
+
+
+    /**
+     * moves the job to a final status - the first final status wins
+     * @param finalStatus COMPLETED, FAILED, CANCELLED, or TIMED_OUT
+     * @param finalMessage detail shown with the status, may be null
+     * @return false if the job had already finished
+     */
+    public synchronized boolean finish(Status finalStatus, String finalMessage) {
+        if (isFinished()) {
+            return false;
+        }
+        status = finalStatus;
+        message = finalMessage;
+        finishedTime = System.currentTimeMillis();
+        return true;
+    }
+
+
+    /**
+     * stops the job - a running job is interrupted and stops at its next token batch,
+     * a queued job is left in the queue and skipped by its worker, which still removes its upload
+     * @param finalStatus CANCELLED, TIMED_OUT, or FAILED
+     * @param finalMessage reason for stopping
+     * @return false if the job had already finished
+     */
+    public synchronized boolean cancel(Status finalStatus, String finalMessage) {
+        boolean running = status == Status.RUNNING;
+
+        if (!finish(finalStatus, finalMessage)) {
+            return false;
+        }
+        if (running && future != null) {
+            future.cancel(true);
+        }
+        return true;
+    }
+
+
+    /**
+     * describes the job for the status endpoint
+     * @return job fields by name
+     */
+    public synchronized Map<String, Object> toStatusMap() {
+        Map<String, Object> statusMap = new LinkedHashMap<>();
+        statusMap.put("id", id);
+        statusMap.put("file", fileName);
+        statusMap.put("status", status);
+        statusMap.put("submitted", submittedTime);
+
+        if (startedTime > 0) {
+            statusMap.put("started", startedTime);
+        }
+        if (finishedTime > 0) {
+            statusMap.put("finished", finishedTime);
+        }
+        if (message != null) {
+            statusMap.put("message", message);
+        }
+        return statusMap;
+    }
+}
@@ -0,0 +1,371 @@
+package com.analyzer.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.analyzer.model.AnalysisResult;
+import com.analyzer.model.FileAnalysis;
+
+/**
+ * Runs uploaded file analyses on a bounded worker pool so request threads only store the upload and return.
+ * The pool has a fixed number of workers and a fixed queue - once both are full new jobs are rejected
+ * instead of piling up, and a job running past the timeout is interrupted and stops at its next token batch.
+ * Each job runs its own FileAnalysis into its own output directory, so jobs never share analyzers or files,
+ * finished jobs are removed after the retention period.
+ * Uploads already in the ResultCache complete on submit without taking a worker, every analyzed upload is cached.
+ */
+@Service
+public class AnalysisJobService {
+
+    //job output directories are created under the analysis output directory
+    static final String JOBS_DIRECTORY = "src/main/output/jobs";
+
+    //streamed bodies are read in chunks of this size, a few chunks are buffered between request and worker
+    static final int STREAM_CHUNK_SIZE = 64 * 1024;
+    static final int STREAM_BUFFERED_CHUNKS = 16;
+
+    //private instance variables
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+    private final ResultCache cache;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService scheduler;
+    private final long timeoutSeconds;
+    private final long retentionMillis;
+
+
+    /**
+     * create the worker pool and the scheduler used for timeouts and cleanup
+     * @param poolSize number of analyses running at once
+     * @param queueCapacity number of analyses waiting for a worker
+     * @param timeoutSeconds seconds a job may run before it is cancelled, 0 for no limit
+     * @param retentionMinutes minutes a finished job and its output files are kept
+     * @param cache output files of earlier analyses
+     */
+    public AnalysisJobService(@Value("${analysis.jobs.pool.size:2}") int poolSize,
+                              @Value("${analysis.jobs.queue.capacity:16}") int queueCapacity,
+                              @Value("${analysis.jobs.timeout.seconds:300}") long timeoutSeconds,
+                              @Value("${analysis.jobs.retention.minutes:60}") long retentionMinutes,
+                              ResultCache cache) {
+
+        this.cache = cache;
+        this.timeoutSeconds = timeoutSeconds;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+
+        AtomicInteger workerCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "analysis-worker-" + workerCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analysis-jobs-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::removeExpiredJobs, 1, 1, TimeUnit.MINUTES);
+    }
+
+
+    /**
+     * queues an analysis of an uploaded file - the upload directory is deleted once the job ends
+     * an upload with a cached result is completed right away from the cache
+     * @param fileName original name of the uploaded file
+     * @param uploadDirectory temporary directory holding the upload
+     * @param uploadFile uploaded file to analyze
+     * @param contentHash SHA-256 of the upload, hex encoded
+     * @return queued or completed job
+     * @throws RejectedExecutionException if every worker is busy and the queue is full
+     * @throws IOException if the job output directory cannot be created
+     */
+    public AnalysisJob submit(String fileName, Path uploadDirectory, Path uploadFile, String contentHash)
+            throws IOException {
+
+        AnalysisJob job = createJob(fileName, uploadDirectory);
+        String cacheKey = cache.createKey(contentHash);
+
+        //cache hit - nothing to tokenize
+        AnalysisResult cachedResult = cache.restore(cacheKey, uploadFile.toString(), job.getOutputDirectory());
+
+        if (cachedResult != null) {
+            job.start();
+            job.complete(cachedResult, "Restored from result cache");
+            jobs.put(job.getId(), job);
+            removeDirectory(uploadDirectory);
+            return job;
+        }
+
+        queue(job, () -> runJob(job, uploadFile, cacheKey));
+        return job;
+    }
+
+
+    /**
+     * analyzes a request body while it arrives - the body is passed to a worker through an UploadPipe,
+     * so reading the network and tokenizing overlap and nothing is written to disk
+     * returns once the whole body has been read or the job has stopped, the job may still be writing output
+     *
+     * the request thread is held for the whole upload - a job waiting in the queue would keep its Tomcat thread
+     * blocked in UploadPipe.put until a worker takes it, so streams are only accepted while a worker is idle
+     * two requests arriving together can still both pass the check, the later one then waits for a worker
+     * @param fileName name given for the upload
+     * @param body request body
+     * @param maximumBytes largest body accepted, a longer body fails the job
+     * @return job reading the body
+     * @throws RejectedExecutionException if no worker is idle
+     * @throws IOException if the body cannot be read or the job output directory cannot be created
+     * @throws InterruptedException if the request thread is interrupted
+     */
+    public AnalysisJob submitStream(String fileName, InputStream body, long maximumBytes)
+            throws IOException, InterruptedException {
+
+        if (workers.getActiveCount() >= workers.getMaximumPoolSize() || !workers.getQueue().isEmpty()) {
+            throw new RejectedExecutionException("No idle analysis worker for a streamed upload");
+        }
+
+        AnalysisJob job = createJob(fileName, null);
+        UploadPipe pipe = new UploadPipe(job, STREAM_BUFFERED_CHUNKS);
+        queue(job, () -> runStreamJob(job, pipe));
+
+        //hash as the body passes through so the result can be cached under the content
+        MessageDigest digest = ResultCache.createDigest();
+        byte[] buffer = new byte[STREAM_CHUNK_SIZE];
+        long totalBytes = 0;
+        int bytesRead;
+
+        try {
+            while ((bytesRead = body.read(buffer)) >= 0) {
+                totalBytes += bytesRead;
+
+                if (totalBytes > maximumBytes) {
+                    job.cancel(AnalysisJob.Status.FAILED, "Upload exceeds " + maximumBytes + " bytes");
+                    return job;
+                }
+
+                digest.update(buffer, 0, bytesRead);
+
+                //the job was cancelled or timed out - the rest of the body is not needed
+                if (!pipe.write(buffer, bytesRead)) {
+                    return job;
+                }
+            }
+            pipe.finish(ResultCache.toHex(digest.digest()));
+
+        } catch (IOException | InterruptedException exception) {
+            job.cancel(AnalysisJob.Status.FAILED, "Upload interrupted");
+            throw exception;
+        }
+        return job;
+    }
+
+
+    /**
+     * creates a queued job with its own output directory
+     * @param fileName name of the upload
+     * @param uploadDirectory temporary directory holding the upload, null for streamed uploads
+     * @return new job, not yet registered
+     * @throws IOException if the output directory cannot be created
+     */
+    private AnalysisJob createJob(String fileName, Path uploadDirectory) throws IOException {
+        String id = UUID.randomUUID().toString();
+        Path outputDirectory = Files.createDirectories(Paths.get(JOBS_DIRECTORY, id));
+        return new AnalysisJob(id, fileName, uploadDirectory, outputDirectory);
+    }
+
+
+    /**
+     * registers a job, hands its work to the pool, and schedules its timeout
+     * @param job new job
+     * @param work worker body
+     * @throws RejectedExecutionException if every worker is busy and the queue is full
+     */
+    private void queue(AnalysisJob job, Runnable work) {
+
+        jobs.put(job.getId(), job);
+
+        try {
+            job.setFuture(workers.submit(work));
+
+        } catch (RejectedExecutionException rejected) {
+            jobs.remove(job.getId());
+            removeDirectory(job.getOutputDirectory());
+            throw rejected;
+        }
+
+        if (timeoutSeconds > 0) {
+            scheduler.schedule(() -> job.cancel(AnalysisJob.Status.TIMED_OUT,
+                    "Analysis exceeded " + timeoutSeconds + " seconds"), timeoutSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+
+    /**
+     * looks up a job
+     * @param id job id
+     * @return job, null if unknown or already removed
+     */
+    public AnalysisJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+
+    /**
+     * cancels a queued or running job
+     * @param id job id
+     * @return job, null if unknown or already removed
+     */
+    public AnalysisJob cancel(String id) {
+        AnalysisJob job = jobs.get(id);
+
+        if (job != null) {
+            job.cancel(AnalysisJob.Status.CANCELLED, "Cancelled by request");
+        }
+        return job;
+    }
+
+
+    /**
+     * worker body - analyzes the upload into the job's output directory and caches the output files
+     * @param job job to run
+     * @param uploadFile uploaded file to analyze
+     * @param cacheKey key the result is cached under
+     */
+    private void runJob(AnalysisJob job, Path uploadFile, String cacheKey) {
+
+        try {
+            //cancelled while waiting in the queue
+            if (!job.start()) {
+                return;
+            }
+
+            AnalysisResult result = new FileAnalysis().analyze(uploadFile.toString(), job.getOutputDirectory() + "/");
+
+            //null when the analysis was interrupted or the file could not be read
+            if (result == null && Thread.currentThread().isInterrupted()) {
+                job.finish(AnalysisJob.Status.CANCELLED, "Analysis interrupted");
+            } else if (result == null) {
+                job.finish(AnalysisJob.Status.FAILED, "Error analyzing file");
+            } else if (job.complete(result, null)) {
+                cache.store(cacheKey, result);
+            }
+
+        } catch (RuntimeException exception) {
+            job.finish(AnalysisJob.Status.FAILED, "Error analyzing file");
+            // exception.printStackTrace();
+
+        } finally {
+            removeDirectory(job.getUploadDirectory());
+        }
+    }
+
+
+    /**
+     * worker body for a streamed upload - analyzes the body as the request thread passes it through the pipe
+     * @param job job to run
+     * @param pipe pipe carrying the request body
+     */
+    private void runStreamJob(AnalysisJob job, UploadPipe pipe) {
+
+        try {
+            //cancelled while waiting in the queue
+            if (!job.start()) {
+                return;
+            }
+
+            AnalysisResult result = new FileAnalysis().analyze(pipe.getInputStream(), job.getFileName(),
+                    job.getOutputDirectory() + "/");
+
+            //null when the analysis was interrupted or the upload broke off or could not be read
+            if (result == null && Thread.currentThread().isInterrupted()) {
+                job.finish(AnalysisJob.Status.CANCELLED, "Analysis interrupted");
+            } else if (result == null) {
+                job.finish(AnalysisJob.Status.FAILED, "Error analyzing upload");
+            } else if (job.complete(result, null)) {
+                cache.store(cache.createKey(pipe.getContentHash()), result);
+            }
+
+        } catch (RuntimeException exception) {
+            job.finish(AnalysisJob.Status.FAILED, "Error analyzing upload");
+            // exception.printStackTrace();
+
+        } finally {
+            //releases a request thread still writing the body
+            try {
+                pipe.getInputStream().close();
+            } catch (IOException exception) {
+                // exception.printStackTrace();
+            }
+        }
+    }
+
+
+    /**removes finished jobs and their output files once the retention period has passed*/
+    private void removeExpiredJobs() {
+
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+
+        jobs.values().removeIf(job -> {
+            if (job.isFinished() && job.getFinishedTime() < expiredBefore) {
+                removeDirectory(job.getOutputDirectory());
+                return true;
+            }
+            return false;
+        });
+    }
+
+
+    /**
+     * deletes a directory and its files
+     * @param directory directory to delete
+     */
+    static void removeDirectory(Path directory) {
+
+        if (!Files.exists(directory)) {
+            return;
+        }
+
+        try {
+            Files.walk(directory)                   //generate stream of path objects
+                .sorted(Comparator.reverseOrder())  //delete child files/path objects before parents
+                .map(Path::toFile)                  //maps path objects to file objects to use delete() method
+                .forEach(file -> {
+                    if (!file.delete()) {           //designates file for deletion on exit
+                        file.deleteOnExit();
+                    }
+                });
+        } catch (IOException exception) {
+            // exception.printStackTrace();
+        }
+    }
+
+
+    /**interrupts running jobs when the application stops*/
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+}
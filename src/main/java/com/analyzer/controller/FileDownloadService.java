@@ -0,0 +1,327 @@
+package com.analyzer.controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+/**
+ * Serves output files for download straight from disk instead of copying them through an InputStreamResource.
+ * On Tomcat the file, or the requested part of it, is handed to the connector's sendfile support,
+ * so the bytes go from the page cache to the socket without passing through the heap;
+ * other containers get a FileChannel transfer to the response.
+ *
+ * Every download carries a strong ETag derived from the file's content and its Last-Modified date:
+ *      If-None-Match / If-Modified-Since - 304 when the client's copy is current
+ *      Range - a single byte range is answered with 206, an unsatisfiable one with 416
+ *      If-Range - the range is only honoured while the file is unchanged, otherwise the whole file is sent
+ * Content hashes are kept per file path, file key, size, and full precision modification time,
+ * so a file is hashed once, not per request, and a file rewritten within the same second is hashed again.
+ */
+@Service
+public class FileDownloadService {
+
+    //request attributes of Tomcat's sendfile support
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    //number of file hashes kept, least recently used first out
+    private static final int MAXIMUM_ENTITY_TAGS = 1024;
+
+    //ETag by file path, file key, size, and modification time
+    //a tag still being hashed is kept too, so concurrent first downloads of a file wait for one hash
+    private final Map<String, CompletableFuture<String>> entityTags =
+            new LinkedHashMap<String, CompletableFuture<String>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<String>> eldest) {
+            return size() > MAXIMUM_ENTITY_TAGS;
+        }
+    };
+
+
+    /**
+     * answers a download request for a file
+     * @param file file to send
+     * @param fileName name the client saves the file as
+     * @param request download request
+     * @param response response the file, part of it, or a 304 / 416 status is written to
+     * @throws IOException if the file cannot be read or the client goes away
+     */
+    public void send(Path file, String fileName, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long fileSize = attributes.size();
+
+        //HTTP dates have second precision, so the file's time is compared at that precision
+        long lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        String entityTag = getEntityTag(file, attributes);
+
+        response.setHeader(HttpHeaders.ETAG, entityTag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (isNotModified(request, entityTag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = fileSize;
+        String range = request.getHeader(HttpHeaders.RANGE);
+
+        if (range != null && isRangeCurrent(request, entityTag, lastModified)) {
+            long[] bounds = parseRange(range, fileSize);
+
+            if (bounds != null && bounds.length == 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+
+            //anything but a single byte range is answered with the whole file
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + fileSize);
+            }
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(end - start);
+
+        if ("HEAD".equals(request.getMethod()) || start == end) {
+            return;
+        }
+
+        //Tomcat sends the file itself once the handler returns
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+            long position = start;
+
+            while (position < end) {
+                position += channel.transferTo(position, end - position, output);
+            }
+        }
+    }
+
+
+    /**
+     * checks the conditional GET headers - If-None-Match takes precedence over If-Modified-Since
+     * @param request download request
+     * @param entityTag file's ETag
+     * @param lastModified file's modification time, whole seconds
+     * @return true if the client's copy is current
+     */
+    private boolean isNotModified(HttpServletRequest request, String entityTag, long lastModified) {
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+
+                //weak comparison - a W/ tag for the same content matches too
+                if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(entityTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+
+        } catch (IllegalArgumentException invalidDate) {
+            return false;
+        }
+    }
+
+
+    /**
+     * checks If-Range - a range only applies to the version of the file the client already has part of
+     * @param request download request
+     * @param entityTag file's ETag
+     * @param lastModified file's modification time, whole seconds
+     * @return true if there is no If-Range or it matches the file
+     */
+    private boolean isRangeCurrent(HttpServletRequest request, String entityTag, long lastModified) {
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        if (ifRange == null) {
+            return true;
+        }
+
+        //strong comparison - weak tags never match
+        if (ifRange.trim().startsWith("\"") || ifRange.trim().startsWith("W/")) {
+            return ifRange.trim().equals(entityTag);
+        }
+
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified;
+
+        } catch (IllegalArgumentException invalidDate) {
+            return false;
+        }
+    }
+
+
+    /**
+     * parses a single byte range, e.g. bytes=0-1023, bytes=1024-, or bytes=-500 for the last 500 bytes
+     * @param range Range header
+     * @param fileSize size of the file
+     * @return start and exclusive end, an empty array if the range lies past the end of the file,
+     *         null if the header is not a single valid byte range and should be ignored
+     */
+    private long[] parseRange(String range, long fileSize) {
+
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+
+        String specification = range.substring("bytes=".length()).trim();
+        int dash = specification.indexOf('-');
+
+        if (dash < 0) {
+            return null;
+        }
+
+        try {
+            String first = specification.substring(0, dash).trim();
+            String last = specification.substring(dash + 1).trim();
+
+            //only digits are allowed on either side - parseLong also takes a sign, as in bytes=--5
+            if (first.startsWith("+") || last.startsWith("+") || last.startsWith("-")) {
+                return null;
+            }
+
+            //suffix range - the last n bytes
+            if (first.isEmpty()) {
+                long suffixLength = Long.parseLong(last);
+
+                if (suffixLength == 0 || fileSize == 0) {
+                    return new long[0];
+                }
+                return new long[] {Math.max(0, fileSize - suffixLength), fileSize};
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last) + 1;
+
+            if (start < 0 || end <= start) {
+                return null;
+            }
+            if (start >= fileSize) {
+                return new long[0];
+            }
+            return new long[] {start, Math.min(end, fileSize)};
+
+        } catch (NumberFormatException invalidRange) {
+            return null;
+        }
+    }
+
+
+    /**
+     * returns the file's ETag, hashing its content the first time this version of the file is downloaded
+     * versions are told apart by the full precision modification time, not the whole seconds sent to clients,
+     * and by the file key, so a file replaced by another under the same path is hashed again
+     * requests arriving while the file is hashed wait for that hash instead of reading the file again
+     * @param file file to tag
+     * @param attributes file's size, modification time, and file key
+     * @return quoted strong ETag
+     * @throws IOException if the file cannot be read
+     */
+    private String getEntityTag(Path file, BasicFileAttributes attributes) throws IOException {
+
+        String key = file.toAbsolutePath() + "|" + attributes.fileKey() + "|" + attributes.size()
+                + "|" + attributes.lastModifiedTime();
+
+        CompletableFuture<String> entityTag;
+        boolean hashing = false;
+
+        synchronized (entityTags) {
+            entityTag = entityTags.get(key);
+
+            if (entityTag == null) {
+                entityTag = new CompletableFuture<>();
+                entityTags.put(key, entityTag);
+                hashing = true;
+            }
+        }
+
+        if (hashing) {
+            try {
+                entityTag.complete(hashFile(file));
+
+            } catch (Throwable exception) {
+                //a failed hash is not kept, the next request for the file tries again
+                synchronized (entityTags) {
+                    entityTags.remove(key, entityTag);
+                }
+                entityTag.completeExceptionally(exception);
+                throw exception;
+            }
+        }
+
+        try {
+            return entityTag.join();
+        } catch (CompletionException exception) {
+            throw new IOException("Error hashing " + file, exception.getCause());
+        }
+    }
+
+
+    /**
+     * hashes a file's content into an ETag
+     * @param file file to hash
+     * @return quoted strong ETag
+     * @throws IOException if the file cannot be read
+     */
+    private static String hashFile(Path file) throws IOException {
+
+        MessageDigest digest = ResultCache.createDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        //128 bits of the SHA-256 are plenty to tell versions of a file apart
+        return "\"" + ResultCache.toHex(digest.digest()).substring(0, 32) + "\"";
+    }
+}
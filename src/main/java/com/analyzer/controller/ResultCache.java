@@ -0,0 +1,561 @@
+package com.analyzer.controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.analyzer.model.AnalysisResult;
+import com.analyzer.model.FileSummaryAnalyzer;
+import com.analyzer.model.SnapshotInput;
+import com.analyzer.model.SnapshotOutput;
+
+/**
+ * Content-addressed cache of analysis output files, so an upload analyzed before is answered without tokenizing.
+ * Entries are keyed by the SHA-256 of the upload plus a fingerprint of analyzer.properties and the search token list,
+ * a changed configuration gives new keys and entries made under the old configuration are dropped.
+ * The summary names the upload and the analysis date, so it is not cached as written - entries keep the summary
+ * analyzer's snapshot and the summary is generated again for each upload restored.
+ * Two tiers, both least recently used first out:
+ *      memory - output file bytes of recent results, bounded by analysis.cache.memory.bytes
+ *      disk - output file copies under output/cache, bounded by analysis.cache.disk.bytes and kept across restarts
+ * A budget of 0 turns its tier off.
+ */
+@Service
+public class ResultCache {
+
+    //disk tier entries are directories named by cache key
+    static final String CACHE_DIRECTORY = "src/main/output/cache";
+
+    //analysis configuration covered by the fingerprint
+    static final String PROPERTIES_RESOURCE = "config/analyzer.properties";
+
+    //bump when an output file or the summary snapshot changes format, the disk tier is kept across upgrades
+    static final int FORMAT_VERSION = 2;
+
+    //disk entries list their file names in output order, and keep the summary analyzer's snapshot
+    private static final String INDEX_FILE = ".files";
+    private static final String SUMMARY_FILE = ".summary";
+
+    //private instance variables
+    private final long memoryBudget;
+    private final long diskBudget;
+    private final Path cacheDirectory;
+    private final LinkedHashMap<String, CachedFiles> memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> diskEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+    private String fingerprint;
+
+
+    /**
+     * create the cache and register disk entries left by earlier runs, oldest use first
+     * @param memoryBudget bytes of output files kept in memory
+     * @param diskBudget bytes of output files kept on disk
+     */
+    public ResultCache(@Value("${analysis.cache.memory.bytes:67108864}") long memoryBudget,
+                       @Value("${analysis.cache.disk.bytes:1073741824}") long diskBudget) {
+        this.memoryBudget = memoryBudget;
+        this.diskBudget = diskBudget;
+        this.cacheDirectory = Paths.get(CACHE_DIRECTORY);
+
+        if (diskBudget > 0) {
+            loadDiskEntries();
+        }
+    }
+
+
+    /**
+     * builds the cache key of an upload under the current configuration
+     * entries from an earlier configuration are dropped the first time a new fingerprint is seen
+     * @param contentHash SHA-256 of the upload, hex encoded
+     * @return cache key
+     */
+    public String createKey(String contentHash) {
+
+        String currentFingerprint = fingerprintConfiguration();
+
+        synchronized (this) {
+            if (!currentFingerprint.equals(fingerprint)) {
+                fingerprint = currentFingerprint;
+                removeStaleEntries();
+            }
+        }
+        return contentHash + "-" + currentFingerprint;
+    }
+
+
+    /**
+     * restores cached output files into a job's output directory, the summary is written for this upload
+     * @param key cache key from createKey
+     * @param inputFilePath uploaded file, described by the summary
+     * @param outputDirectory job output directory
+     * @return result listing the restored files, null on a miss
+     */
+    public AnalysisResult restore(String key, String inputFilePath, Path outputDirectory) {
+
+        if (memoryBudget <= 0 && diskBudget <= 0) {
+            return null;
+        }
+
+        CachedFiles cachedFiles;
+        boolean onDisk;
+
+        synchronized (this) {
+            cachedFiles = memoryEntries.get(key);
+            onDisk = cachedFiles == null && diskEntries.get(key) != null;
+        }
+
+        //listed before each file is written so a partly restored file is removed with the rest
+        Map<String, Path> outputFiles = new LinkedHashMap<>();
+
+        try {
+            if (cachedFiles != null) {
+                for (Map.Entry<String, byte[]> file : cachedFiles.files.entrySet()) {
+                    Path outputFile = outputDirectory.resolve(file.getKey());
+                    outputFiles.put(file.getKey(), outputFile);
+
+                    if (file.getKey().equals(cachedFiles.summaryName)) {
+                        writeSummary(file.getValue(), inputFilePath, outputFile);
+                    } else {
+                        Files.write(outputFile, file.getValue());
+                    }
+                }
+
+            } else if (onDisk) {
+                Path entryDirectory = cacheDirectory.resolve(key);
+                List<String> fileNames = Files.readAllLines(entryDirectory.resolve(INDEX_FILE));
+
+                //file order is kept in the entry's index, the directory listing order is not stable
+                //the summary's name is the first line, empty if the result had no summary
+                for (String fileName : fileNames.subList(1, fileNames.size())) {
+                    Path outputFile = outputDirectory.resolve(fileName);
+                    outputFiles.put(fileName, outputFile);
+
+                    if (fileName.equals(fileNames.get(0))) {
+                        writeSummary(Files.readAllBytes(entryDirectory.resolve(SUMMARY_FILE)), inputFilePath, outputFile);
+                    } else {
+                        linkOrCopy(entryDirectory.resolve(fileName), outputFile);
+                    }
+                }
+                Files.setLastModifiedTime(entryDirectory, FileTime.fromMillis(System.currentTimeMillis()));
+
+            } else {
+                return null;
+            }
+            return new AnalysisResult(inputFilePath, outputDirectory, outputFiles);
+
+        } catch (IOException exception) {
+            //evicted while restoring - analyze the upload instead
+            //restored files are removed first, the job truncates its outputs and a linked file shares the cached copy
+            // exception.printStackTrace();
+            removeRestoredFiles(outputFiles);
+            return null;
+        }
+    }
+
+
+    /**
+     * stores a job's output files under a key
+     * @param key cache key from createKey
+     * @param result completed analysis result, with its analyzers so the summary can be written again
+     */
+    public void store(String key, AnalysisResult result) {
+
+        if (result.getOutputFiles().isEmpty()) {
+            return;
+        }
+
+        try {
+            //the summary is kept as its analyzer's snapshot rather than as written
+            FileSummaryAnalyzer summaryAnalyzer = result.getAnalyzer(FileSummaryAnalyzer.class);
+            String summaryName = "";
+            byte[] summary = new byte[0];
+
+            if (summaryAnalyzer != null && result.getOutputFiles().containsKey(summaryAnalyzer.getOutputFileName())) {
+                summaryName = summaryAnalyzer.getOutputFileName();
+                summary = createSummarySnapshot(summaryAnalyzer);
+            }
+
+            long resultBytes = summary.length;
+            for (Map.Entry<String, Path> outputFile : result.getOutputFiles().entrySet()) {
+                if (!outputFile.getKey().equals(summaryName)) {
+                    resultBytes += Files.size(outputFile.getValue());
+                }
+            }
+
+            if (resultBytes <= memoryBudget) {
+                storeInMemory(key, result, summaryName, summary, resultBytes);
+            }
+            if (resultBytes <= diskBudget) {
+                storeOnDisk(key, result, summaryName, summary, resultBytes);
+            }
+
+        } catch (IOException exception) {
+            System.out.println("Error caching analysis result");
+            // exception.printStackTrace();
+        }
+    }
+
+
+    /**
+     * keeps a result's file bytes in memory, evicting the least recently used entries past the budget
+     * @param key cache key
+     * @param result completed analysis result
+     * @param summaryName name of the summary file, empty if the result has none
+     * @param summary summary analyzer snapshot, kept in place of the summary file
+     * @param resultBytes total size of the result's files
+     * @throws IOException checked in parent function
+     */
+    private void storeInMemory(String key, AnalysisResult result, String summaryName, byte[] summary,
+                               long resultBytes) throws IOException {
+
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (Map.Entry<String, Path> outputFile : result.getOutputFiles().entrySet()) {
+            files.put(outputFile.getKey(), outputFile.getKey().equals(summaryName)
+                    ? summary : Files.readAllBytes(outputFile.getValue()));
+        }
+
+        synchronized (this) {
+            CachedFiles replaced = memoryEntries.put(key, new CachedFiles(files, summaryName, resultBytes));
+            memoryBytes += resultBytes - (replaced != null ? replaced.bytes : 0);
+
+            Iterator<CachedFiles> leastRecent = memoryEntries.values().iterator();
+            while (memoryBytes > memoryBudget && leastRecent.hasNext()) {
+                memoryBytes -= leastRecent.next().bytes;
+                leastRecent.remove();
+            }
+        }
+    }
+
+
+    /**
+     * copies a result's files to a cache entry directory, evicting the least recently used entries past the budget
+     * files are written to a temporary directory and moved into place, so an entry is never seen half written
+     * @param key cache key
+     * @param result completed analysis result
+     * @param summaryName name of the summary file, empty if the result has none
+     * @param summary summary analyzer snapshot, kept in place of the summary file
+     * @param resultBytes total size of the result's files
+     * @throws IOException checked in parent function
+     */
+    private void storeOnDisk(String key, AnalysisResult result, String summaryName, byte[] summary,
+                             long resultBytes) throws IOException {
+
+        synchronized (this) {
+            if (diskEntries.containsKey(key)) {
+                return;
+            }
+        }
+
+        Files.createDirectories(cacheDirectory);
+        Path temporaryDirectory = Files.createTempDirectory(cacheDirectory, ".entry");
+
+        try {
+            List<String> index = new ArrayList<>();
+            index.add(summaryName);
+
+            for (Map.Entry<String, Path> outputFile : result.getOutputFiles().entrySet()) {
+                if (!outputFile.getKey().equals(summaryName)) {
+                    linkOrCopy(outputFile.getValue(), temporaryDirectory.resolve(outputFile.getKey()));
+                }
+                index.add(outputFile.getKey());
+            }
+            Files.write(temporaryDirectory.resolve(SUMMARY_FILE), summary);
+            Files.write(temporaryDirectory.resolve(INDEX_FILE), index);
+            Files.move(temporaryDirectory, cacheDirectory.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException exception) {
+            AnalysisJobService.removeDirectory(temporaryDirectory);
+
+            //stored by a job analyzing the same upload
+            if (Files.isDirectory(cacheDirectory.resolve(key))) {
+                return;
+            }
+            throw exception;
+        }
+
+        List<String> evictedKeys = new ArrayList<>();
+
+        synchronized (this) {
+            diskEntries.put(key, resultBytes);
+            diskBytes += resultBytes;
+
+            Iterator<Map.Entry<String, Long>> leastRecent = diskEntries.entrySet().iterator();
+            while (diskBytes > diskBudget && leastRecent.hasNext()) {
+                Map.Entry<String, Long> entry = leastRecent.next();
+                diskBytes -= entry.getValue();
+                evictedKeys.add(entry.getKey());
+                leastRecent.remove();
+            }
+        }
+
+        for (String evictedKey : evictedKeys) {
+            AnalysisJobService.removeDirectory(cacheDirectory.resolve(evictedKey));
+        }
+    }
+
+
+    /**drops entries made under another configuration fingerprint - caller holds the lock*/
+    private void removeStaleEntries() {
+
+        String suffix = "-" + fingerprint;
+
+        memoryEntries.entrySet().removeIf(entry -> {
+            if (!entry.getKey().endsWith(suffix)) {
+                memoryBytes -= entry.getValue().bytes;
+                return true;
+            }
+            return false;
+        });
+
+        diskEntries.entrySet().removeIf(entry -> {
+            if (!entry.getKey().endsWith(suffix)) {
+                diskBytes -= entry.getValue();
+                AnalysisJobService.removeDirectory(cacheDirectory.resolve(entry.getKey()));
+                return true;
+            }
+            return false;
+        });
+    }
+
+
+    /**registers the disk entries of earlier runs in order of last use, leftovers of interrupted stores are removed*/
+    private void loadDiskEntries() {
+
+        if (!Files.isDirectory(cacheDirectory)) {
+            return;
+        }
+
+        try (Stream<Path> entries = Files.list(cacheDirectory)) {
+            List<Path> entryDirectories = new ArrayList<>();
+
+            //entries written before summaries were kept as snapshots have no summary file
+            entries.forEach(entryDirectory -> {
+                if (Files.isRegularFile(entryDirectory.resolve(INDEX_FILE))
+                        && Files.isRegularFile(entryDirectory.resolve(SUMMARY_FILE))) {
+                    entryDirectories.add(entryDirectory);
+                } else {
+                    AnalysisJobService.removeDirectory(entryDirectory);
+                }
+            });
+
+            entryDirectories.sort(Comparator.comparingLong(entryDirectory -> entryDirectory.toFile().lastModified()));
+
+            for (Path entryDirectory : entryDirectories) {
+                List<String> fileNames = Files.readAllLines(entryDirectory.resolve(INDEX_FILE));
+                long entryBytes = Files.size(entryDirectory.resolve(SUMMARY_FILE));
+
+                for (String fileName : fileNames.subList(1, fileNames.size())) {
+                    if (!fileName.equals(fileNames.get(0))) {
+                        entryBytes += Files.size(entryDirectory.resolve(fileName));
+                    }
+                }
+                diskEntries.put(entryDirectory.getFileName().toString(), entryBytes);
+                diskBytes += entryBytes;
+            }
+
+        } catch (IOException exception) {
+            System.out.println("Error reading result cache");
+            // exception.printStackTrace();
+        }
+    }
+
+
+    /**
+     * writes the summary for a restored upload from the cached summary analyzer snapshot
+     * @param summary summary analyzer snapshot
+     * @param inputFilePath uploaded file, described by the summary
+     * @param outputFile summary file to write
+     * @throws IOException if the snapshot can't be read or the summary was not written
+     */
+    private void writeSummary(byte[] summary, String inputFilePath, Path outputFile) throws IOException {
+
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(readResource("/" + PROPERTIES_RESOURCE)));
+        properties.setProperty("output.directory", outputFile.getParent().toString() + "/");
+
+        FileSummaryAnalyzer summaryAnalyzer = new FileSummaryAnalyzer(properties);
+        summaryAnalyzer.readSnapshot(new SnapshotInput(new ByteArrayInputStream(summary)));
+        summaryAnalyzer.generateOutputFile(inputFilePath);
+
+        //generateOutputFile reports its own errors, a missing file is treated as a miss
+        if (!Files.isRegularFile(outputFile)) {
+            throw new IOException("Summary not written: " + outputFile);
+        }
+    }
+
+
+    /**
+     * snapshots a summary analyzer, so the summary can be written again for another upload
+     * @param summaryAnalyzer summary analyzer of a completed analysis
+     * @return snapshot bytes
+     * @throws IOException checked in parent function
+     */
+    private static byte[] createSummarySnapshot(FileSummaryAnalyzer summaryAnalyzer) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (SnapshotOutput output = new SnapshotOutput(bytes)) {
+            summaryAnalyzer.writeSnapshot(output);
+        }
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * hashes the analysis configuration - the cache format version, the application version when packaged,
+     * analyzer.properties, and the search token file it names
+     * read on every key so edits to either file take effect without a restart
+     * @return configuration fingerprint, hex encoded
+     */
+    private String fingerprintConfiguration() {
+
+        MessageDigest digest = createDigest();
+        digest.update(Integer.toString(FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+
+        //null when running from classes rather than a packaged jar
+        String applicationVersion = getClass().getPackage().getImplementationVersion();
+        if (applicationVersion != null) {
+            digest.update(applicationVersion.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try {
+            byte[] propertiesBytes = readResource("/" + PROPERTIES_RESOURCE);
+            digest.update(propertiesBytes);
+
+            Properties properties = new Properties();
+            properties.load(new ByteArrayInputStream(propertiesBytes));
+            digest.update(readResource(properties.getProperty("classpath.search.tokens")));
+
+        } catch (IOException exception) {
+            // exception.printStackTrace();
+        }
+
+        //a shortened fingerprint keeps directory names manageable, 64 bits is plenty for configurations
+        return toHex(digest.digest()).substring(0, 16);
+    }
+
+
+    /**
+     * reads a classpath resource
+     * @param resourcePath absolute classpath location
+     * @return resource bytes, empty if not found
+     * @throws IOException handled in parent function
+     */
+    private byte[] readResource(String resourcePath) throws IOException {
+
+        if (resourcePath == null) {
+            return new byte[0];
+        }
+
+        try (InputStream inputStream = getClass().getResourceAsStream(resourcePath)) {
+            return inputStream == null ? new byte[0] : inputStream.readAllBytes();
+        }
+    }
+
+
+    /**
+     * removes the files a failed restore wrote into a job's output directory
+     * @param outputFiles files restored so far
+     */
+    private static void removeRestoredFiles(Map<String, Path> outputFiles) {
+        for (Path outputFile : outputFiles.values()) {
+            try {
+                Files.deleteIfExists(outputFile);
+            } catch (IOException exception) {
+                System.out.println("Error removing restored file " + outputFile);
+                // exception.printStackTrace();
+            }
+        }
+    }
+
+
+    /**
+     * hard links a file, copying when links are not supported
+     * links keep a cached copy alive after the job directory it came from is removed
+     * @param source existing file
+     * @param target new file
+     * @throws IOException checked in parent function
+     */
+    private static void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException notLinked) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+
+    /**
+     * creates a SHA-256 digest for uploads and configuration
+     * @return new digest
+     */
+    static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            //every Java platform is required to provide SHA-256
+            throw new IllegalStateException(exception);
+        }
+    }
+
+
+    /**
+     * encodes bytes as lowercase hex
+     * @param bytes bytes to encode
+     * @return hex string
+     */
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte value : bytes) {
+            hex.append(Character.forDigit((value >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(value & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+
+    /**
+     * output file bytes of one memory tier entry - the summary's bytes are its analyzer's snapshot
+     */
+    private static final class CachedFiles {
+
+        //private instance variables
+        private final Map<String, byte[]> files;
+        private final String summaryName;
+        private final long bytes;
+
+
+        /**
+         * create a memory entry
+         * @param files file bytes by output file name
+         * @param summaryName name of the summary file, empty if the result has none
+         * @param bytes total size of the files
+         */
+        private CachedFiles(Map<String, byte[]> files, String summaryName, long bytes) {
+            this.files = files;
+            this.summaryName = summaryName;
+            this.bytes = bytes;
+        }
+    }
+}
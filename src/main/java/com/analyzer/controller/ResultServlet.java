@@ -1,35 +1,57 @@
 package com.analyzer.controller;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
-import org.springframework.core.io.InputStreamResource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
 
-import com.analyzer.model.Driver;
+import com.analyzer.model.AnalysisResult;
+import com.analyzer.model.FileAnalysis;
+import com.analyzer.model.InvertedIndex;
+import com.analyzer.model.SearchTokenMatcher;
+import com.analyzer.model.WindowedTokenCountsAnalyzer;
+import com.analyzer.model.WindowedTokenLocationSearchAnalyzer;
 
 /**
  * Receives incoming file and sends it to the analyzer main method for analysis.
  * UI added to eliminate the need for running scripts in the terminal.
  * Returns a list of output files with data/analysis on the input file.
+ * Analyses run as background jobs on AnalysisJobService's worker pool, an upload returns a job id right away
+ * and the results page or the /jobs endpoints report the job's status until its output files are ready.
+ * Each job keeps its AnalysisResult, so its output files are listed and served from the result
+ * rather than by scanning a directory other uploads may be writing to.
+ * Downloads are served by FileDownloadService with range requests, ETags, and conditional GETs.
+ * A file followed with FileFollow is reported by /follow from the window snapshot the follower publishes.
  * 
  * Web-based file management (upload/download) and spring-boot/thyme are newer topics to me,
- * collectGeneratedFiles(), removeUploadDirectory(), downloadFile() are a mix of tutorials, research, and AI
- * to learn, troubleshoot, and configure them to work with my application
+ * downloadFile() is a mix of tutorials, research, and AI
+ * to learn, troubleshoot, and configure it to work with my application
  */
 @Controller
 public class ResultServlet {
@@ -37,13 +59,38 @@ public class ResultServlet {
     //used for collecting the generated files from analysis output directory
     String OUTPUT_DIRECTORY = "src/main/output";
 
+    //written by the analysis when analysis.index.enabled is set
+    String INDEX_FILE = "token_index.bin";
+
+    //bounded worker pool running the analyses
+    private final AnalysisJobService jobService;
+
+    //sends output files without copying them through the heap
+    private final FileDownloadService downloadService;
+
+    //largest request body accepted by the streaming endpoint
+    private final long maximumUploadBytes;
+
+
+    /**
+     * create the servlet with the job service that runs its analyses
+     * @param jobService analysis job pool
+     * @param downloadService output file downloads
+     * @param maximumUploadBytes largest streamed upload
+     */
+    public ResultServlet(AnalysisJobService jobService, FileDownloadService downloadService,
+                         @Value("${analysis.upload.max.bytes:8589934592}") long maximumUploadBytes) {
+        this.jobService = jobService;
+        this.downloadService = downloadService;
+        this.maximumUploadBytes = maximumUploadBytes;
+    }
+
     /**
      * analysis servlet that receives an incoming file to analyze
-     * analyzes strings/tokens of input file and produces output files detailing insights
-     * returns the output files as a list of downloadable items to be displayed in results.html
+     * stores the upload and queues its analysis, then redirects to the job's results page
      * @param file file received from form
      * @param model Spring interface to pass data
-     * @return results if successful, otherwise return index
+     * @return redirect to the job's results page if queued, otherwise return index
      */
     @PostMapping("/results")
     public String analyzeUploadedFile(@RequestParam("file") MultipartFile file, Model model) {
@@ -51,78 +98,238 @@ public class ResultServlet {
         //quick check for file upload, redirects back to itself if file is empty
         if (file.isEmpty()) {return "index";}
 
-
-        //initialize temporary directory for try/catch block
-        Path uploadDirectory = null;
-
-        //try catch block to create a temp directory and process input file
         try {
-            uploadDirectory = Files.createTempDirectory("analysisFile");
-            Path uploadFile = uploadDirectory.resolve(file.getOriginalFilename());
-            file.transferTo(uploadFile);
+            AnalysisJob job = submitUpload(file);
+            return "redirect:/results/" + job.getId();
+
+        } catch (RejectedExecutionException rejected) {
+            model.addAttribute("message", "The analyzer is busy, please try again shortly");
+            return "index";
 
-            //pass the file to the main method of the Analysis Driver and analyze file
-            String filePath = uploadFile.toString();
-            Driver.main(new String[]{filePath});
+        } catch (IOException exception) {
+            // exception.printStackTrace();
+            return "index";
+        }
+    }
 
-            //searches project output directory and adds output filepaths to list
-            List<String> generatedFiles = collectGeneratedFiles();
 
-            //make list available to results page
-            model.addAttribute("generatedFiles", generatedFiles);
+    /**
+     * results page for a job - lists the output files once the job completes,
+     * the page refreshes itself while the job is queued or running
+     * @param id job id
+     * @param model Spring interface to pass data
+     * @return results, or index if the job is unknown
+     */
+    @GetMapping("/results/{id}")
+    public String showResults(@PathVariable String id, Model model) {
 
+        AnalysisJob job = jobService.getJob(id);
 
-        } catch (IOException exception) {
-            // exception.printStackTrace();
+        if (job == null) {
+            model.addAttribute("message", "Analysis not found, it may have expired");
             return "index";
-            
-        } finally {
-            //delete the temporary directory when finished
-            if (uploadDirectory != null) {
-                removeUploadDirectory(uploadDirectory);
-            }
         }
-        //forward to results if successfull
+
+        model.addAttribute("job", job.toStatusMap());
+        model.addAttribute("finished", job.isFinished());
+
+        //output file names come from the job's result, the directory is never listed
+        if (job.getResult() != null) {
+            model.addAttribute("generatedFiles", new ArrayList<>(job.getResult().getOutputFiles().keySet()));
+        }
         return "results";
     }
 
 
     /**
-     * scans project directory for output files and returns a list of filenames 
-     * @return list of filePath strings
-     * @throws IOException handled in parent try/catch
+     * queues an analysis of an uploaded file
+     * @param file file received from the request
+     * @return job id and status as JSON - 202 when queued, 503 when the queue is full
      */
-    private List<String> collectGeneratedFiles() throws IOException {
-        List<String> filePaths = new ArrayList<>();
-        Path outputDir = Paths.get(OUTPUT_DIRECTORY);
+    @PostMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> submitJob(@RequestParam("file") MultipartFile file) {
+
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            AnalysisJob job = submitUpload(file);
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/jobs/" + job.getId())
+                    .body(job.toStatusMap());
 
-        //check outputdirectory for files, if true: convert to string and add to list
-        if (Files.exists(outputDir)) {
-            Files.list(outputDir).forEach(item -> {
-                filePaths.add(item.getFileName().toString());
-            });
+        } catch (RejectedExecutionException rejected) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+
+        } catch (IOException exception) {
+            // exception.printStackTrace();
+            return ResponseEntity.internalServerError().build();
         }
-        return filePaths;
     }
 
 
     /**
-     * removes temporary directory and files after completing analysis
-     * not as knowledgeable on this
-     * @param uploadDirectory temporary directory for upload file
+     * analyzes a raw request body while it uploads - the file is sent as the body, not as a form
+     * the body is tokenized as it arrives instead of being staged in a temp file first,
+     * e.g. curl --data-binary @server.log -H "Content-Type: application/octet-stream" "host:8080/jobs/stream?name=server.log"
+     * @param name file name reported in the output files
+     * @param body request body
+     * @param contentLength declared body size, -1 for chunked bodies which are limited as they are read
+     * @return job id and status as JSON once the body is read - 202 when accepted, 400 when the name has no file name,
+     *         413 when too large, 503 when no worker is free to read the body
      */
-    private void removeUploadDirectory(Path uploadDirectory) {
+    @PostMapping("/jobs/stream")
+    public ResponseEntity<Map<String, Object>> streamJob(@RequestParam("name") String name, InputStream body,
+            @RequestHeader(name = HttpHeaders.CONTENT_LENGTH, required = false, defaultValue = "-1") long contentLength) {
+
+        if (contentLength > maximumUploadBytes) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+
+        //keep only the name part, the client controls the name
+        String fileName = toFileName(name);
+
+        if (fileName == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
         try {
-            Files.walk(uploadDirectory)             //generate stream of path objects
-                .sorted(Comparator.reverseOrder())  //delete child files/path objects before parents
-                .map(Path::toFile)                  //maps path objects to file objects to use delete() method
-                .forEach(file -> {                  
-                    if (!file.delete()) {           //designates file for deletion on exit 
-                        file.deleteOnExit();
-                    }
-                });
+            AnalysisJob job = jobService.submitStream(fileName, body, maximumUploadBytes);
+
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/jobs/" + job.getId())
+                    .body(job.toStatusMap());
+
+        } catch (RejectedExecutionException rejected) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.internalServerError().build();
+
         } catch (IOException exception) {
             // exception.printStackTrace();
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+
+    /**
+     * reports a job's status
+     * @param id job id
+     * @return job status as JSON - 404 if unknown
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<Map<String, Object>> getJobStatus(@PathVariable String id) {
+
+        AnalysisJob job = jobService.getJob(id);
+
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toStatusMap());
+    }
+
+
+    /**
+     * lists a completed job's output files
+     * @param id job id
+     * @return job status and output file names as JSON - 404 if unknown, 409 if the job has not completed
+     */
+    @GetMapping("/jobs/{id}/result")
+    public ResponseEntity<Map<String, Object>> getJobResult(@PathVariable String id) {
+
+        AnalysisJob job = jobService.getJob(id);
+
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Map<String, Object> result = job.toStatusMap();
+        AnalysisResult analysisResult = job.getResult();
+
+        if (analysisResult == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+        }
+
+        result.put("files", new ArrayList<>(analysisResult.getOutputFiles().keySet()));
+        return ResponseEntity.ok(result);
+    }
+
+
+    /**
+     * cancels a queued or running job - a running analysis stops at its next token batch
+     * @param id job id
+     * @return job status as JSON - 404 if unknown
+     */
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable String id) {
+
+        AnalysisJob job = jobService.cancel(id);
+
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toStatusMap());
+    }
+
+
+    /**
+     * copies an upload to a temporary directory on the request thread and queues its analysis, or restores its cached result
+     * the multipart file is only valid during the request, the job reads the copy
+     * @param file file received from the request
+     * @return queued job
+     * @throws IOException if the upload cannot be stored
+     */
+    private AnalysisJob submitUpload(MultipartFile file) throws IOException {
+
+        Path uploadDirectory = Files.createTempDirectory("analysisFile");
+
+        try {
+            //keep only the name part, the client controls the original filename
+            String fileName = toFileName(file.getOriginalFilename());
+            Path uploadFile = uploadDirectory.resolve(fileName != null ? fileName : "upload");
+
+            //hash the upload as it is copied so the result cache can be checked without reading it again
+            MessageDigest digest = ResultCache.createDigest();
+            try (InputStream upload = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(upload, uploadFile);
+            }
+            String contentHash = ResultCache.toHex(digest.digest());
+
+            return jobService.submit(uploadFile.getFileName().toString(), uploadDirectory, uploadFile, contentHash);
+
+        } catch (IOException | RuntimeException exception) {
+            //the job deletes the upload once it runs, a job that was never queued cleans up here
+            AnalysisJobService.removeDirectory(uploadDirectory);
+            throw exception;
+        }
+    }
+
+
+    /**
+     * keeps only the last part of a file name given by a client
+     * @param name file name or path from the request
+     * @return file name, null if there is none - empty, a root, . or .., or not a valid path
+     */
+    static String toFileName(String name) {
+
+        if (name == null) {
+            return null;
+        }
+
+        try {
+            Path fileName = Paths.get(name).getFileName();
+
+            if (fileName == null || fileName.toString().isEmpty()
+                    || fileName.toString().equals(".") || fileName.toString().equals("..")) {
+                return null;
+            }
+            return fileName.toString();
+
+        } catch (InvalidPathException invalid) {
+            return null;
         }
     }
 
@@ -130,21 +337,137 @@ public class ResultServlet {
     /**
      * enables download of internal output/server files by browser/client
      * maps get request with analysis files URL patterns
-     * not as knowledgeable on this
+     * only regular files inside the output directory are served
+     * @param filename output file name
+     * @param request download request, its Range and conditional headers are honoured
+     * @param response file as an attachment - 404 if the file is unknown
+     * @throws IOException if the file cannot be sent
      */ 
     @GetMapping("/download/{filename:.+}")
-    public ResponseEntity<InputStreamResource> downloadFile(@PathVariable String filename) {
-        try {
-            Path file = Paths.get(OUTPUT_DIRECTORY).resolve(filename);
-            InputStreamResource resource = new InputStreamResource(Files.newInputStream(file));
+    public void downloadFile(@PathVariable String filename, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+
+        Path outputDirectory = Paths.get(OUTPUT_DIRECTORY).toAbsolutePath().normalize();
+        Path file = outputDirectory.resolve(filename).normalize();
+
+        if (!file.startsWith(outputDirectory) || !Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        downloadService.send(file, filename, request, response);
+    }
+
+
+    /**
+     * downloads an output file of a job
+     * @param id job id
+     * @param filename output file name
+     * @param request download request, its Range and conditional headers are honoured
+     * @param response file as an attachment - 404 if the job or file is unknown
+     * @throws IOException if the file cannot be sent
+     */
+    @GetMapping("/download/{id}/{filename:.+}")
+    public void downloadJobFile(@PathVariable String id, @PathVariable String filename,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        AnalysisJob job = jobService.getJob(id);
+
+        //only files the job's analyzers wrote are served
+        Path file = job != null && job.getResult() != null ? job.getResult().getOutputFile(filename) : null;
+
+        if (file == null || !Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        downloadService.send(file, filename, request, response);
+    }
+
+
+    /**
+     * answers where a token occurs in the last analyzed file from its token index
+     * the index is opened per request, so a new analysis writing the file is picked up right away
+     * @param token token to look up, case sensitive
+     * @param jobId job whose index is searched, the command line output directory if not given
+     * @return token, occurence count, and positions as JSON - 404 if no index has been written
+     */
+    @GetMapping("/index/{token}")
+    public ResponseEntity<Map<String, Object>> lookupToken(@PathVariable String token,
+                                                           @RequestParam(name = "job", required = false) String jobId) {
+
+        Path indexFile = Paths.get(OUTPUT_DIRECTORY).resolve(INDEX_FILE);
+
+        if (jobId != null) {
+            AnalysisJob job = jobService.getJob(jobId);
+            indexFile = job != null && job.getResult() != null ? job.getResult().getOutputFile(INDEX_FILE) : null;
+        }
+
+        if (indexFile == null || !Files.isRegularFile(indexFile)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try (InvertedIndex index = new InvertedIndex(indexFile)) {
+            int[] positions = index.lookup(token);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("token", token);
+            result.put("count", positions.length);
+            result.put("positions", positions);
+
+            return ResponseEntity.ok(result);
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(resource);
         } catch (IOException exception) {
             // exception.printStackTrace();
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * reports the sliding window of a file being followed - read from the snapshot FileFollow last published
+     * to the output directory, so the page sees the window as of the last publish
+     * the window's output files are listed by name and served by /download/{filename}
+     * @param top number of most frequent tokens to list
+     * @return followed file, window span and totals, most frequent tokens, and search token hits as JSON -
+     *         404 if no window has been published
+     */
+    @GetMapping("/follow")
+    public ResponseEntity<Map<String, Object>> getFollowWindow(@RequestParam(name = "top", defaultValue = "25") int top) {
+
+        AnalysisResult window = new FileAnalysis().readFollowWindow(OUTPUT_DIRECTORY + "/");
+
+        if (window == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        WindowedTokenCountsAnalyzer counts = window.getAnalyzer(WindowedTokenCountsAnalyzer.class);
+        WindowedTokenLocationSearchAnalyzer search = window.getAnalyzer(WindowedTokenLocationSearchAnalyzer.class);
+
+        List<Map<String, Object>> topTokens = new ArrayList<>();
+
+        for (String token : counts.getTopTokens(Math.max(0, top))) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("token", token);
+            entry.put("count", counts.getCount(token));
+            topTokens.add(entry);
+        }
+
+        //search tokens in sorted order, each with its occurences in the window
+        Map<String, Object> searchHits = new LinkedHashMap<>();
+        SearchTokenMatcher matcher = search.getMatcher();
+
+        for (int term = 0; term < matcher.size(); term++) {
+            searchHits.put(matcher.getTerm(term), search.getHitCount(term));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("file", window.getInputFilePath());
+        result.put("windowStart", counts.getWindow().getStartTime());
+        result.put("windowEnd", counts.getWindow().getEndTime());
+        result.put("tokens", counts.getWindowTokenCount());
+        result.put("distinctTokens", counts.getWindowDistinctCount());
+        result.put("topTokens", topTokens);
+        result.put("searchHits", searchHits);
+        result.put("files", new ArrayList<>(window.getOutputFiles().keySet()));
+
+        return ResponseEntity.ok(result);
+    }
 }
@@ -0,0 +1,166 @@
+package com.analyzer.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands a request body from the request thread to the job's worker while it is still arriving.
+ * The request thread writes chunks, the worker's analysis reads them through getInputStream().
+ * Only a few chunks are buffered, so a fast client waits on the analysis instead of filling memory,
+ * and a stopped job stops the request thread from waiting on it.
+ */
+public class UploadPipe {
+
+    //marks the end of the body in the queue
+    private static final byte[] END_OF_BODY = new byte[0];
+
+    //private instance variables
+    private final BlockingQueue<byte[]> chunks;
+    private final AnalysisJob job;
+    private final InputStream inputStream = new PipeInputStream();
+    private volatile boolean readerClosed;
+    private volatile String contentHash;
+
+
+    /**
+     * create an empty pipe
+     * @param job job reading the pipe - writes give up once it has finished
+     * @param capacity number of chunks buffered before writes wait
+     */
+    public UploadPipe(AnalysisJob job, int capacity) {
+        this.job = job;
+        this.chunks = new ArrayBlockingQueue<>(capacity);
+    }
+
+
+    /**
+     * returns the stream the analysis reads the body from
+     * @return pipe input stream
+     */
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+
+    /**
+     * returns the SHA-256 of the whole body
+     * @return hex encoded hash, null until the body has been written
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+
+    /**
+     * passes a chunk of the body to the reader, waiting while the pipe is full
+     * @param buffer bytes read from the request
+     * @param length number of bytes in the buffer
+     * @return false if the job has finished or stopped reading - the rest of the body is not needed
+     * @throws InterruptedException if the request thread is interrupted
+     */
+    public boolean write(byte[] buffer, int length) throws InterruptedException {
+        return put(Arrays.copyOf(buffer, length));
+    }
+
+
+    /**
+     * ends the body - the reader sees the end of the stream after the last chunk
+     * @param bodyHash SHA-256 of the whole body, hex encoded
+     * @return false if the job has finished or stopped reading
+     * @throws InterruptedException if the request thread is interrupted
+     */
+    public boolean finish(String bodyHash) throws InterruptedException {
+        contentHash = bodyHash;
+        return put(END_OF_BODY);
+    }
+
+
+    /**
+     * queues a chunk, checking a few times a second that the job still wants it
+     * @param chunk chunk to queue
+     * @return false if the job has finished or stopped reading
+     * @throws InterruptedException if the request thread is interrupted
+     */
+    private boolean put(byte[] chunk) throws InterruptedException {
+
+        while (!chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (readerClosed || job.isFinished()) {
+                return false;
+            }
+        }
+        return !readerClosed;
+    }
+
+
+    /**
+     * reader side of the pipe - blocks until the request thread has written more of the body
+     */
+    private final class PipeInputStream extends InputStream {
+
+        //private instance variables
+        private byte[] chunk = new byte[0];
+        private int position;
+        private boolean ended;
+
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return chunk[position++] & 0xFF;
+        }
+
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+
+            int bytesRead = Math.min(length, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, offset, bytesRead);
+            position += bytesRead;
+            return bytesRead;
+        }
+
+
+        /**
+         * waits for the next chunk once the current one is used up
+         * @return false at the end of the body
+         * @throws IOException if the worker is interrupted, such as by cancelling the job
+         */
+        private boolean fill() throws IOException {
+
+            while (!ended && position == chunk.length) {
+                try {
+                    chunk = chunks.take();
+                    position = 0;
+                    ended = chunk == END_OF_BODY;
+
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("upload read interrupted");
+                }
+            }
+            return !ended;
+        }
+
+
+        /**stops the writer - the rest of the body is dropped*/
+        @Override
+        public void close() {
+            readerClosed = true;
+            chunks.clear();
+        }
+    }
+}
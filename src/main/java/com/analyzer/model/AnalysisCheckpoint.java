@@ -0,0 +1,292 @@
+package com.analyzer.model;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.TreeSet;
+
+
+/**
+ * checkpoint of an incremental analysis of a file that only grows, such as a log
+ * records how far into the file the analyzers have read, the number of tokens read, a hash of the bytes read,
+ * a hash of the configuration, and the analyzers' state in the sections of an AnalysisSnapshot - the next run
+ * loads the state and only tokenizes the bytes appended since
+ * a checkpoint taken under another configuration, such as other search tokens, is not loaded
+ *
+ * layout, big-endian with varints from SnapshotOutput:
+ *      header - magic "ACKP", version, SHA-256 of the configuration, input name, byte offset, token count,
+ *               hash window, SHA-256 of the prefix
+ *      sections - as written by AnalysisSnapshot
+ *
+ * hashing the whole prefix on every run would read the whole file again, so only the first and the last
+ * hash window bytes of the prefix are hashed, along with its length - a file that was replaced, truncated,
+ * or rewritten near its end fails the check, a change deep inside a file that kept its length and both ends
+ * does not, which append-only files never see (a hash window of 0 hashes the whole prefix)
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see FileAnalysis
+ * @see AnalysisSnapshot
+ */
+public final class AnalysisCheckpoint {
+
+    //file header
+    public static final int MAGIC = 0x41434B50;
+    public static final int VERSION = 2;
+
+    //private instance variables
+    private final String inputName;
+    private final long inputByteOffset;
+    private final long tokenCount;
+
+
+    /**
+     * create the header of a checkpoint that has been read
+     * @param inputName name of the analyzed file
+     * @param inputByteOffset number of bytes the analyzers have read
+     * @param tokenCount number of tokens in those bytes
+     */
+    private AnalysisCheckpoint(String inputName, long inputByteOffset, long tokenCount) {
+        this.inputName = inputName;
+        this.inputByteOffset = inputByteOffset;
+        this.tokenCount = tokenCount;
+    }
+
+
+    /**
+     * returns the file the checkpoint was taken of
+     * @return input name
+     */
+    public String getInputName() {
+        return inputName;
+    }
+
+
+    /**
+     * returns how far into the file the analyzers have read - the next run starts reading here
+     * @return byte offset
+     */
+    public long getInputByteOffset() {
+        return inputByteOffset;
+    }
+
+
+    /**
+     * returns the number of tokens before the byte offset - token positions continue from here
+     * @return token count
+     */
+    public long getTokenCount() {
+        return tokenCount;
+    }
+
+
+    /**
+     * writes a checkpoint - the file is written beside its final name and moved into place,
+     * so a crash while writing leaves the previous checkpoint
+     * @param checkpointFile file to write
+     * @param analyzers analyzers holding the results for the bytes before the offset
+     * @param configurationHash hash of the configuration from fingerprintConfiguration()
+     * @param inputName name of the analyzed file
+     * @param input open channel of the analyzed file
+     * @param inputByteOffset number of bytes the analyzers have read
+     * @param tokenCount number of tokens in those bytes
+     * @param hashWindow bytes hashed at each end of the prefix, 0 for the whole prefix
+     * @throws IOException if the checkpoint can't be written
+     */
+    public static void write(Path checkpointFile, Collection<TokenAnalyzer> analyzers, byte[] configurationHash,
+            String inputName, FileChannel input, long inputByteOffset, long tokenCount, long hashWindow)
+            throws IOException {
+
+        byte[] prefixHash = hashPrefix(input, inputByteOffset, hashWindow);
+        Path partialFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(partialFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                SnapshotOutput output = new SnapshotOutput(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.write(configurationHash);
+            output.writeUTF(inputName);
+            output.writeVarLong(inputByteOffset);
+            output.writeVarLong(tokenCount);
+            output.writeVarLong(hashWindow);
+            output.write(prefixHash);
+            AnalysisSnapshot.writeSections(channel, output, analyzers);
+        }
+
+        Files.move(partialFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * checks a checkpoint against the file and loads it into a set of analyzers if the file still starts
+     * with the bytes the checkpoint was taken of and the configuration has not changed
+     * @param checkpointFile file to read
+     * @param configurationHash hash of the current configuration from fingerprintConfiguration()
+     * @param inputName name of the file being analyzed
+     * @param input open channel of the file being analyzed
+     * @param analyzers new analyzers from FileAnalysis.createAnalyzers()
+     * @return checkpoint header, null if it was taken of another file or under another configuration,
+     *         or the file no longer matches - the analyzers are left untouched
+     * @throws IOException if the checkpoint is damaged or was taken with other analyzers -
+     *         the analyzers may be partly loaded
+     */
+    public static AnalysisCheckpoint read(Path checkpointFile, byte[] configurationHash, String inputName,
+            FileChannel input, Collection<TokenAnalyzer> analyzers) throws IOException {
+
+        CountingInputStream countingInput = new CountingInputStream(
+                new BufferedInputStream(Files.newInputStream(checkpointFile), 1 << 16));
+
+        try (SnapshotInput checkpointInput = new SnapshotInput(countingInput)) {
+
+            if (checkpointInput.readInt() != MAGIC) {
+                throw new StreamCorruptedException("Not an analysis checkpoint: " + checkpointFile);
+            }
+
+            int version = checkpointInput.readInt();
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version + ": " + checkpointFile);
+            }
+
+            byte[] savedConfigurationHash = new byte[32];
+            checkpointInput.readFully(savedConfigurationHash);
+
+            AnalysisCheckpoint checkpoint = new AnalysisCheckpoint(checkpointInput.readUTF(),
+                    checkpointInput.readVarLong(), checkpointInput.readVarLong());
+            long hashWindow = checkpointInput.readVarLong();
+            byte[] prefixHash = new byte[32];
+            checkpointInput.readFully(prefixHash);
+
+            //analyzer state from another configuration would mix with state from this one
+            if (!checkpoint.getInputName().equals(inputName)
+                    || !Arrays.equals(savedConfigurationHash, configurationHash)) {
+                return null;
+            }
+
+            //a file shorter than the offset was truncated or replaced
+            if (input.size() < checkpoint.getInputByteOffset()
+                    || !Arrays.equals(prefixHash, hashPrefix(input, checkpoint.getInputByteOffset(), hashWindow))) {
+                return null;
+            }
+
+            //an analyzer turned on since the checkpoint has not seen the prefix
+            if (AnalysisSnapshot.readSections(checkpointInput, countingInput, analyzers, checkpointFile)
+                    != analyzers.size()) {
+                throw new IOException("Checkpoint was taken with other analyzers: " + checkpointFile);
+            }
+            return checkpoint;
+        }
+    }
+
+
+    /**
+     * hashes the configuration an analysis runs with - every property in effect, sorted by name,
+     * and the search token file named by classpath.search.tokens
+     * @param properties loaded analyzer properties
+     * @return SHA-256 hash
+     * @throws IOException if the search token file can't be read
+     */
+    public static byte[] fingerprintConfiguration(Properties properties) throws IOException {
+
+        MessageDigest digest = createDigest();
+
+        for (String name : new TreeSet<>(properties.stringPropertyNames())) {
+            digest.update((name + "=" + properties.getProperty(name) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        String searchTokenPath = properties.getProperty("classpath.search.tokens");
+
+        if (searchTokenPath != null) {
+            try (InputStream searchTokens = AnalysisCheckpoint.class.getResourceAsStream(searchTokenPath)) {
+                if (searchTokens != null) {
+                    digest.update(searchTokens.readAllBytes());
+                }
+            }
+        }
+        return digest.digest();
+    }
+
+
+    /**
+     * hashes the length of a prefix of the file and the bytes at both of its ends
+     * @param input open channel of the file
+     * @param prefixLength number of bytes in the prefix
+     * @param hashWindow bytes hashed at each end, 0 for the whole prefix
+     * @return SHA-256 hash
+     * @throws IOException if the file can't be read
+     */
+    public static byte[] hashPrefix(FileChannel input, long prefixLength, long hashWindow) throws IOException {
+
+        MessageDigest digest = createDigest();
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(0, prefixLength));
+
+        if (hashWindow <= 0 || prefixLength <= 2 * hashWindow) {
+            hashRange(input, 0, prefixLength, digest);
+        } else {
+            hashRange(input, 0, hashWindow, digest);
+            hashRange(input, prefixLength - hashWindow, prefixLength, digest);
+        }
+        return digest.digest();
+    }
+
+
+    /**
+     * creates a SHA-256 digest
+     * @return new digest
+     */
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            //every Java platform is required to provide SHA-256
+            throw new IllegalStateException(exception);
+        }
+    }
+
+
+    /**
+     * adds a byte range of the file to a digest
+     * @param input open channel of the file
+     * @param start first byte
+     * @param end byte after the last
+     * @param digest digest to update
+     * @throws IOException if the file ends before the range does
+     */
+    private static void hashRange(FileChannel input, long start, long end, MessageDigest digest) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long position = start;
+
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int bytesRead = input.read(buffer, position);
+
+            if (bytesRead <= 0) {
+                throw new StreamCorruptedException("File ended at " + position + " while hashing to " + end);
+            }
+
+            buffer.flip();
+            digest.update(buffer);
+            position += bytesRead;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.analyzer.model;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * results of one analysis - the analyzers that produced them and the output files they wrote
+ * output files are recorded as the analyzers name them, so callers never list the output directory,
+ * which may be shared with other analyses
+ * analyzers are closed once their output is written: their counts stay readable,
+ * tokens spilled to temp files are only kept in the output files
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see FileAnalysis
+ */
+public class AnalysisResult {
+
+    //private instance variables
+    private final String inputFilePath;
+    private final Path outputDirectory;
+    private final List<TokenAnalyzer> analyzers;
+    private final Map<String, Path> outputFiles;
+
+
+    /**
+     * create a result from analyzers whose output files have been written
+     * analyzers that failed to write their file are kept, their file is left out
+     * @param inputFilePath analyzed file, directory, or glob pattern
+     * @param outputDirectory directory the output files were written to
+     * @param analyzers analyzers holding the results
+     */
+    public AnalysisResult(String inputFilePath, String outputDirectory, Set<TokenAnalyzer> analyzers) {
+        this.inputFilePath = inputFilePath;
+        this.outputDirectory = Paths.get(outputDirectory);
+        this.analyzers = Collections.unmodifiableList(new ArrayList<>(analyzers));
+
+        Map<String, Path> writtenFiles = new LinkedHashMap<>();
+
+        for (TokenAnalyzer analyzer : analyzers) {
+            String fileName = analyzer.getOutputFileName();
+            Path outputFile = this.outputDirectory.resolve(fileName);
+
+            if (Files.isRegularFile(outputFile)) {
+                writtenFiles.put(fileName, outputFile);
+            }
+        }
+        outputFiles = Collections.unmodifiableMap(writtenFiles);
+    }
+
+
+    /**
+     * create a result from output files restored without analyzing, such as a cache hit - it holds no analyzers
+     * @param inputFilePath analyzed file, directory, or glob pattern
+     * @param outputDirectory directory holding the output files
+     * @param outputFiles file paths by file name, in analyzer order
+     */
+    public AnalysisResult(String inputFilePath, Path outputDirectory, Map<String, Path> outputFiles) {
+        this.inputFilePath = inputFilePath;
+        this.outputDirectory = outputDirectory;
+        this.analyzers = Collections.emptyList();
+        this.outputFiles = Collections.unmodifiableMap(new LinkedHashMap<>(outputFiles));
+    }
+
+
+    /**
+     * returns the analyzed input
+     * @return file, directory, or glob pattern
+     */
+    public String getInputFilePath() {
+        return inputFilePath;
+    }
+
+
+    /**
+     * returns the directory holding the output files
+     * @return output directory
+     */
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+
+    /**
+     * returns the written output files in analyzer order
+     * @return file paths by file name
+     */
+    public Map<String, Path> getOutputFiles() {
+        return outputFiles;
+    }
+
+
+    /**
+     * looks up a written output file by name
+     * @param fileName output file name
+     * @return file path, null if no analyzer wrote a file of that name
+     */
+    public Path getOutputFile(String fileName) {
+        return outputFiles.get(fileName);
+    }
+
+
+    /**
+     * returns the analyzers in the order they ran
+     * @return analyzer list, empty for restored results
+     */
+    public List<TokenAnalyzer> getAnalyzers() {
+        return analyzers;
+    }
+
+
+    /**
+     * copies the result without its analyzers, for results kept long after the analysis, such as a finished job's
+     * @return result holding only the input and its output files
+     */
+    public AnalysisResult withoutAnalyzers() {
+        return analyzers.isEmpty() ? this : new AnalysisResult(inputFilePath, outputDirectory, outputFiles);
+    }
+
+
+    /**
+     * finds the analyzer of a type
+     * @param <T> analyzer type
+     * @param analyzerType analyzer class, e.g. FileSummaryAnalyzer.class
+     * @return analyzer, null if the analysis did not include it or the result was restored
+     */
+    public <T extends TokenAnalyzer> T getAnalyzer(Class<T> analyzerType) {
+
+        for (TokenAnalyzer analyzer : analyzers) {
+            if (analyzerType.isInstance(analyzer)) {
+                return analyzerType.cast(analyzer);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,217 @@
+package com.analyzer.model;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+
+/**
+ * binary snapshot of an analysis - every analyzer's results in a form that can be loaded back and merged,
+ * so results can be combined or regenerated without tokenizing the input again
+ *
+ * layout, big-endian with varints from SnapshotOutput:
+ *      header - magic "ASNP", version, input name, input size in bytes, number of sections
+ *      section - analyzer class name, payload length (8 bytes), payload from the analyzer's writeSnapshot()
+ * sections are matched to analyzers by class name, a section no analyzer reads is skipped by its length,
+ * so a snapshot still loads when the analyzers it was written with have been turned off
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see TokenAnalyzer
+ * @see SnapshotOutput
+ * @see SnapshotInput
+ * @see AnalysisCheckpoint
+ */
+public final class AnalysisSnapshot {
+
+    //file header
+    public static final int MAGIC = 0x41534E50;
+    public static final int VERSION = 1;
+
+    //private instance variables
+    private final String inputName;
+    private final long inputByteCount;
+
+
+    /**
+     * create the header of a snapshot that has been read
+     * @param inputName name of the analyzed input
+     * @param inputByteCount size of the analyzed input
+     */
+    private AnalysisSnapshot(String inputName, long inputByteCount) {
+        this.inputName = inputName;
+        this.inputByteCount = inputByteCount;
+    }
+
+
+    /**
+     * returns the input the snapshot was taken of
+     * @return input name
+     */
+    public String getInputName() {
+        return inputName;
+    }
+
+
+    /**
+     * returns the size of the input the snapshot was taken of
+     * @return input size in bytes
+     */
+    public long getInputByteCount() {
+        return inputByteCount;
+    }
+
+
+    /**
+     * writes a snapshot of a set of analyzers - the file is written beside its final name and moved into place,
+     * so a reader never sees half a snapshot
+     * @param snapshotFile file to write
+     * @param analyzers analyzers holding the results
+     * @param inputName name of the analyzed input
+     * @param inputByteCount size of the analyzed input
+     * @throws IOException if the snapshot can't be written
+     */
+    public static void write(Path snapshotFile, Collection<TokenAnalyzer> analyzers, String inputName,
+            long inputByteCount) throws IOException {
+
+        Path partialFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(partialFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                SnapshotOutput output = new SnapshotOutput(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(inputName);
+            output.writeVarLong(inputByteCount);
+            writeSections(channel, output, analyzers);
+        }
+
+        Files.move(partialFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * writes the number of sections and a section per analyzer - shared with AnalysisCheckpoint
+     * @param channel channel the output writes to, used to fill in payload lengths
+     * @param output snapshot output over the channel
+     * @param analyzers analyzers holding the results
+     * @throws IOException if the sections can't be written
+     */
+    static void writeSections(FileChannel channel, SnapshotOutput output, Collection<TokenAnalyzer> analyzers)
+            throws IOException {
+
+        output.writeVarInt(analyzers.size());
+
+        for (TokenAnalyzer analyzer : analyzers) {
+            output.writeUTF(analyzer.getClass().getSimpleName());
+            output.writeLong(0);
+            output.flush();
+
+            //the payload length is filled in once the analyzer has written its payload
+            long payloadStart = channel.position();
+            analyzer.writeSnapshot(output);
+            output.flush();
+
+            ByteBuffer payloadLength = ByteBuffer.allocate(Long.BYTES);
+            payloadLength.putLong(0, channel.position() - payloadStart);
+            channel.write(payloadLength, payloadStart - Long.BYTES);
+        }
+    }
+
+
+    /**
+     * reads a snapshot into a set of analyzers - each analyzer merges its section into the results it holds,
+     * so reading several snapshots into one set combines them in the order they are read
+     * @param snapshotFile file to read
+     * @param analyzers analyzers to load, from FileAnalysis.createAnalyzers()
+     * @return snapshot header
+     * @throws IOException if the file is not a snapshot, is of another version, or is damaged
+     */
+    public static AnalysisSnapshot read(Path snapshotFile, Collection<TokenAnalyzer> analyzers) throws IOException {
+
+        CountingInputStream countingInput = new CountingInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16));
+
+        try (SnapshotInput input = new SnapshotInput(countingInput)) {
+
+            if (input.readInt() != MAGIC) {
+                throw new StreamCorruptedException("Not an analysis snapshot: " + snapshotFile);
+            }
+
+            int version = input.readInt();
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + snapshotFile);
+            }
+
+            AnalysisSnapshot snapshot = new AnalysisSnapshot(input.readUTF(), input.readVarLong());
+            readSections(input, countingInput, analyzers, snapshotFile);
+            return snapshot;
+        }
+    }
+
+
+    /**
+     * reads the sections written by writeSections() into the analyzers of the same class - shared with AnalysisCheckpoint
+     * @param input snapshot input positioned at the section count
+     * @param countingInput stream below the input, counts the bytes each section takes
+     * @param analyzers analyzers to load
+     * @param snapshotFile file being read, for error messages
+     * @return number of sections read into an analyzer
+     * @throws IOException if a section is damaged
+     */
+    static int readSections(SnapshotInput input, CountingInputStream countingInput,
+            Collection<TokenAnalyzer> analyzers, Path snapshotFile) throws IOException {
+
+        int sectionCount = input.readVarInt();
+        int sectionsRead = 0;
+
+        for (int section = 0; section < sectionCount; section++) {
+            String analyzerName = input.readUTF();
+            long payloadLength = input.readLong();
+            TokenAnalyzer analyzer = findAnalyzer(analyzers, analyzerName);
+
+            if (analyzer == null) {
+                input.skipFully(payloadLength);
+                continue;
+            }
+
+            long payloadStart = countingInput.getCount();
+            analyzer.readSnapshot(input);
+
+            if (countingInput.getCount() - payloadStart != payloadLength) {
+                throw new StreamCorruptedException("Damaged " + analyzerName + " section: " + snapshotFile);
+            }
+            sectionsRead++;
+        }
+        return sectionsRead;
+    }
+
+
+    /**
+     * finds the analyzer that reads a section
+     * @param analyzers analyzers being loaded
+     * @param analyzerName class name the section was written by
+     * @return analyzer, null if none of the analyzers is of that class
+     */
+    private static TokenAnalyzer findAnalyzer(Collection<TokenAnalyzer> analyzers, String analyzerName) {
+
+        for (TokenAnalyzer analyzer : analyzers) {
+            if (analyzer.getClass().getSimpleName().equals(analyzerName)) {
+                return analyzer;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,493 @@
+package com.analyzer.model;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+
+/**
+ * analyzes every file in a directory, matching a glob pattern, or stored in a zip archive within one run
+ * files are analyzed concurrently on a bounded pool - each file gets its own output directory
+ * named after its path relative to the batch root, and every analyzer is merged into one corpus-wide aggregate
+ * zip entries are decompressed as they are read and never extracted to disk
+ *
+ * properties and search tokens are loaded once and shared by every file in the batch
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see FileAnalysis
+ */
+public class BatchAnalysis {
+
+    //private instance variables
+    private final Properties properties;
+    private final SearchTokenMatcher searchTokens;
+
+
+    /**
+     * create a BatchAnalysis object w/loaded configuration
+     * @param properties loaded analyzer properties
+     * @param searchTokens search tokens compiled once for the run
+     */
+    public BatchAnalysis(Properties properties, SearchTokenMatcher searchTokens) {
+        this.properties = properties;
+        this.searchTokens = searchTokens;
+    }
+
+
+    /**
+     * checks if the CLA should be analyzed as a batch instead of a single file
+     * @param inputPath CLA path
+     * @return true for directories, glob patterns, and zip archives
+     */
+    public static boolean isBatchPath(String inputPath) {
+        return hasGlobCharacters(inputPath) || Files.isDirectory(Paths.get(inputPath)) || isArchive(inputPath);
+    }
+
+
+    /**
+     * checks if a path is a zip archive - detected by its magic bytes, not its extension
+     * @param inputPath CLA path
+     * @return true for regular files starting with a zip header
+     */
+    public static boolean isArchive(String inputPath) {
+        Path path = Paths.get(inputPath);
+        return Files.isRegularFile(path) && CompressedInput.detect(path) == CompressedInput.Format.ZIP;
+    }
+
+
+    /**
+     * checks a path for glob syntax
+     * @param path path or path segment
+     * @return true if the path contains a glob character
+     */
+    public static boolean hasGlobCharacters(String path) {
+        return path.indexOf('*') >= 0 || path.indexOf('?') >= 0
+                || path.indexOf('[') >= 0 || path.indexOf('{') >= 0;
+    }
+
+
+    /**
+     * primary controller for a batch - collects files, analyzes them, writes the aggregate
+     * @param inputPath directory, glob pattern, or zip archive
+     * @return aggregate analyzers and output files, null if the batch could not be read or was interrupted
+     */
+    public AnalysisResult analyze(String inputPath) {
+
+        Path batchRoot = findBatchRoot(inputPath);
+
+        try {
+            if (!hasGlobCharacters(inputPath) && isArchive(inputPath)) {
+                return analyzeArchive(batchRoot);
+            }
+
+            List<Path> inputFiles = collectInputFiles(batchRoot, inputPath);
+            AnalysisResult result = analyzeFiles(batchRoot, inputFiles);
+            System.out.println("Analyzed " + inputFiles.size() + " files");
+            return result;
+
+        } catch (IOException exception) {
+            System.out.println("Error reading batch directory");
+            // exception.printStackTrace();
+
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            System.out.println("Batch analysis interrupted");
+        }
+        return null;
+    }
+
+
+    /**
+     * finds the directory a batch is rooted at - the path itself for directories,
+     * the leading segments without glob characters for patterns
+     * @param inputPath directory or glob pattern
+     * @return batch root directory
+     */
+    public Path findBatchRoot(String inputPath) {
+
+        if (!hasGlobCharacters(inputPath)) {
+            return Paths.get(inputPath);
+        }
+
+        int separator = findPatternSeparator(inputPath);
+
+        if (separator < 0) {
+            return Paths.get("");
+        }
+        return Paths.get(separator == 0 ? "/" : inputPath.substring(0, separator));
+    }
+
+
+    /**
+     * finds the last path separator before the first glob character of a pattern
+     * @param inputPath glob pattern
+     * @return index of the separator, -1 when the pattern starts in the working directory
+     */
+    public int findPatternSeparator(String inputPath) {
+
+        int firstGlob = inputPath.length();
+
+        for (char globCharacter : new char[] {'*', '?', '[', '{'}) {
+            int index = inputPath.indexOf(globCharacter);
+
+            if (index >= 0 && index < firstGlob) {
+                firstGlob = index;
+            }
+        }
+        return Math.max(inputPath.lastIndexOf('/', firstGlob), inputPath.lastIndexOf('\\', firstGlob));
+    }
+
+
+    /**
+     * walks the batch root and collects regular files - patterns are matched against the path relative to the root
+     * @param batchRoot batch root directory
+     * @param inputPath directory or glob pattern
+     * @return sorted list of files so aggregate token positions are repeatable
+     * @throws IOException checked in parent function
+     */
+    public List<Path> collectInputFiles(Path batchRoot, String inputPath) throws IOException {
+
+        PathMatcher matcher = null;
+
+        if (hasGlobCharacters(inputPath)) {
+            String pattern = inputPath.substring(findPatternSeparator(inputPath) + 1);
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        }
+
+        final PathMatcher fileMatcher = matcher;
+
+        try (Stream<Path> paths = Files.walk(batchRoot)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> fileMatcher == null || fileMatcher.matches(batchRoot.relativize(path)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+
+    /**
+     * analyzes files on a fixed size pool and merges results into the aggregate in file order
+     * @param batchRoot batch root directory
+     * @param inputFiles files to analyze
+     * @return aggregate analyzers and output files
+     * @throws IOException checked in parent function
+     * @throws InterruptedException checked in parent function
+     */
+    public AnalysisResult analyzeFiles(Path batchRoot, List<Path> inputFiles) throws IOException, InterruptedException {
+
+        Map<String, InputSource> inputs = new LinkedHashMap<>();
+
+        for (Path inputFile : inputFiles) {
+            inputs.put(batchRoot.relativize(inputFile).toString(), new InputSource(inputFile.toString(),
+                    Files.size(inputFile), fileProperties -> analyzeFile(fileProperties, inputFile)));
+        }
+        return analyzeInputs(batchRoot.toString(), inputs);
+    }
+
+
+    /**
+     * analyzes the file entries of a zip archive in entry name order, reading each entry straight from the archive
+     * entries that are themselves gzip or zip compressed are decompressed as well
+     * @param archive zip archive
+     * @return aggregate analyzers and output files
+     * @throws IOException checked in parent function
+     * @throws InterruptedException checked in parent function
+     */
+    public AnalysisResult analyzeArchive(Path archive) throws IOException, InterruptedException {
+
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            List<ZipEntry> entries = collectArchiveEntries(zipFile);
+            Map<String, InputSource> inputs = new LinkedHashMap<>();
+
+            //entries are reported by their uncompressed size, -1 when the archive does not record it
+            for (ZipEntry entry : entries) {
+                inputs.put(entry.getName(), new InputSource(zipFile.getName() + "!/" + entry.getName(),
+                        Math.max(0, entry.getSize()),
+                        entryProperties -> analyzeEntry(entryProperties, zipFile, entry)));
+            }
+
+            AnalysisResult result = analyzeInputs(archive.toString(), inputs);
+            System.out.println("Analyzed " + entries.size() + " archive entries");
+            return result;
+        }
+    }
+
+
+    /**
+     * collects the file entries of an archive - entries whose names would place output outside the output
+     * directory, such as absolute paths or paths climbing out with "..", are skipped
+     * @param zipFile open archive
+     * @return sorted list of entries so aggregate token positions are repeatable
+     */
+    public List<ZipEntry> collectArchiveEntries(ZipFile zipFile) {
+
+        return zipFile.stream()
+                .filter(entry -> !entry.isDirectory())
+                .filter(entry -> {
+                    Path entryPath = Paths.get(entry.getName()).normalize();
+                    return !entryPath.isAbsolute() && !entryPath.startsWith("..")
+                            && !entryPath.toString().isEmpty();
+                })
+                .sorted((first, second) -> first.getName().compareTo(second.getName()))
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * analyzes the inputs of a batch on a fixed size pool and merges results into the aggregate in input order
+     * only a limited number of finished inputs wait to be merged so memory stays bounded for large batches
+     * the aggregate summary lists the inputs that were merged and their combined size
+     * @param batchName name reported for the batch in the aggregate output files
+     * @param inputs inputs to analyze by output directory name, relative to output.directory
+     * @return aggregate analyzers and output files
+     * @throws IOException checked in parent function
+     * @throws InterruptedException checked in parent function
+     */
+    public AnalysisResult analyzeInputs(String batchName, Map<String, InputSource> inputs)
+            throws IOException, InterruptedException {
+
+        final int POOL_SIZE = Integer.parseInt(properties.getProperty("batch.pool.size"));
+
+        //0 threads uses every available core
+        int poolSize = POOL_SIZE > 0 ? POOL_SIZE : Runtime.getRuntime().availableProcessors();
+        int maximumPending = poolSize * 2;
+
+        //aggregate analyzers collect every file's results
+        Properties aggregateProperties = createOutputProperties(properties.getProperty("batch.output.aggregate.directory"));
+        FileAnalysis aggregate = new FileAnalysis(aggregateProperties, searchTokens);
+        aggregate.createInstance(aggregateProperties);
+
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        Deque<Future<Set<TokenAnalyzer>>> pending = new ArrayDeque<>();
+        Deque<InputSource> pendingSources = new ArrayDeque<>();
+
+        //inputs that failed are left out of the aggregate, so they are left out of its summary too
+        List<String> mergedPaths = new ArrayList<>();
+        long mergedByteCount = 0;
+
+        try {
+            for (Map.Entry<String, InputSource> input : inputs.entrySet()) {
+
+                //wait on the oldest file before queueing more work
+                if (pending.size() >= maximumPending) {
+                    mergedByteCount += mergeSource(aggregate, pending.removeFirst(), pendingSources.removeFirst(),
+                            mergedPaths);
+                }
+
+                Properties inputProperties = createOutputProperties(input.getKey() + "/");
+                BatchInput batchInput = input.getValue().getAnalysis();
+                pending.addLast(pool.submit(() -> batchInput.analyze(inputProperties)));
+                pendingSources.addLast(input.getValue());
+            }
+
+            while (!pending.isEmpty()) {
+                mergedByteCount += mergeSource(aggregate, pending.removeFirst(), pendingSources.removeFirst(),
+                        mergedPaths);
+            }
+
+        } finally {
+            pool.shutdownNow();
+        }
+
+        //the batch root is not one file - the summary describes the inputs it combines
+        for (TokenAnalyzer analyzer : aggregate.getAnalyzers()) {
+            if (analyzer instanceof FileSummaryAnalyzer) {
+                ((FileSummaryAnalyzer) analyzer).setInputByteCount(mergedByteCount);
+                ((FileSummaryAnalyzer) analyzer).setInputPaths(mergedPaths);
+            }
+        }
+
+        aggregate.writeOutputFiles(batchName);
+        aggregate.closeAnalyzers();
+        return aggregate.createResult(batchName);
+    }
+
+
+    /**
+     * analyzes a single file of the batch and writes its outputs
+     * @param fileProperties properties with the file's output directory
+     * @param inputFile file to analyze
+     * @return analyzers holding the file's results
+     * @throws IOException if the file could not be read whole - it is left out of the aggregate
+     */
+    public Set<TokenAnalyzer> analyzeFile(Properties fileProperties, Path inputFile) throws IOException {
+        FileAnalysis fileAnalysis = new FileAnalysis(fileProperties, searchTokens);
+
+        if (!fileAnalysis.analyzeFile(inputFile.toString())) {
+            fileAnalysis.closeAnalyzers();
+            throw new IOException("Error analyzing " + inputFile);
+        }
+        return fileAnalysis.getAnalyzers();
+    }
+
+
+    /**
+     * analyzes a single archive entry as it is decompressed and writes its outputs
+     * @param entryProperties properties with the entry's output directory
+     * @param zipFile open archive
+     * @param entry entry to analyze
+     * @return analyzers holding the entry's results
+     * @throws IOException if the entry could not be read whole - it is left out of the aggregate
+     */
+    public Set<TokenAnalyzer> analyzeEntry(Properties entryProperties, ZipFile zipFile, ZipEntry entry)
+            throws IOException {
+
+        FileAnalysis entryAnalysis = new FileAnalysis(entryProperties, searchTokens);
+
+        try (InputStream input = zipFile.getInputStream(entry)) {
+            if (!entryAnalysis.analyzeStream(input, zipFile.getName() + "!/" + entry.getName())) {
+                entryAnalysis.closeAnalyzers();
+                throw new IOException("Error analyzing " + entry.getName());
+            }
+        }
+        return entryAnalysis.getAnalyzers();
+    }
+
+
+    /**
+     * waits for a file's analysis to finish and merges its analyzers into the aggregate
+     * @param aggregate aggregate analysis
+     * @param result pending file analysis
+     * @return true if the file was merged, false if its analysis failed
+     * @throws InterruptedException checked in parent function
+     */
+    public boolean mergeResult(FileAnalysis aggregate, Future<Set<TokenAnalyzer>> result) throws InterruptedException {
+
+        try {
+            aggregate.mergeAnalyzers(result.get());
+            return true;
+
+        } catch (ExecutionException exception) {
+            System.out.println("Error analyzing batch file");
+            // exception.printStackTrace();
+            return false;
+        }
+    }
+
+
+    /**
+     * merges an input's analysis into the aggregate and records the input for the aggregate summary
+     * @param aggregate aggregate analysis
+     * @param result pending analysis of the input
+     * @param source path and size of the input
+     * @param mergedPaths paths of the inputs merged so far
+     * @return size of the input, 0 if its analysis failed
+     * @throws InterruptedException checked in parent function
+     */
+    private long mergeSource(FileAnalysis aggregate, Future<Set<TokenAnalyzer>> result, InputSource source,
+            List<String> mergedPaths) throws InterruptedException {
+
+        if (!mergeResult(aggregate, result)) {
+            return 0;
+        }
+        mergedPaths.add(source.getPath());
+        return source.getByteCount();
+    }
+
+
+    /**
+     * creates properties for one output directory below the configured output directory
+     * shared properties are used as defaults so the configuration is not copied or reloaded
+     * @param subdirectory directory name relative to output.directory
+     * @return properties with output.directory replaced
+     * @throws IOException checked in parent function
+     */
+    public Properties createOutputProperties(String subdirectory) throws IOException {
+
+        String outputDirectory = properties.getProperty("output.directory") + subdirectory;
+        Files.createDirectories(Paths.get(outputDirectory));
+
+        Properties outputProperties = new Properties(properties);
+        outputProperties.setProperty("output.directory", outputDirectory);
+        return outputProperties;
+    }
+
+
+    /**
+     * one input of a batch with the path and size the aggregate summary reports for it
+     */
+    public static final class InputSource {
+
+        //private instance variables
+        private final String path;
+        private final long byteCount;
+        private final BatchInput analysis;
+
+
+        /**
+         * create an input source
+         * @param path file path, or archive path and entry name joined by !/
+         * @param byteCount size of the input - uncompressed for archive entries
+         * @param analysis analyzes the input
+         */
+        public InputSource(String path, long byteCount, BatchInput analysis) {
+            this.path = path;
+            this.byteCount = byteCount;
+            this.analysis = analysis;
+        }
+
+
+        /**
+         * returns where the input is read from
+         * @return file path, or archive path and entry name
+         */
+        public String getPath() {
+            return path;
+        }
+
+
+        /**
+         * returns the size of the input
+         * @return byte count, uncompressed for archive entries
+         */
+        public long getByteCount() {
+            return byteCount;
+        }
+
+
+        /**
+         * returns how the input is analyzed
+         * @return batch input
+         */
+        public BatchInput getAnalysis() {
+            return analysis;
+        }
+    }
+
+
+    /**
+     * one input of a batch - a file or an archive entry
+     */
+    @FunctionalInterface
+    public interface BatchInput {
+
+        /**
+         * analyzes the input and writes its outputs
+         * @param outputProperties properties with the input's output directory
+         * @return analyzers holding the input's results
+         * @throws IOException checked in parent function
+         */
+        Set<TokenAnalyzer> analyze(Properties outputProperties) throws IOException;
+    }
+}
@@ -0,0 +1,81 @@
+package com.analyzer.model;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Set;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * fork-join task that tokenizes one byte range of a memory-mapped input file
+ * every task owns its own set of analyzers - FileAnalysis merges the returned sets in input order
+ *
+ * ranges always end on a non-word byte so no token is split between two tasks
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see FileAnalysis
+ * @see TokenAnalyzer
+ * @see Tokenizer
+ * @see TokenBatchDispatcher
+ */
+//tasks only run in this process's fork-join pool and are never serialized
+@SuppressWarnings("serial")
+public class ChunkAnalysisTask extends RecursiveTask<Set<TokenAnalyzer>> {
+
+    //private instance variables
+    private final FileChannel channel;
+    private final long chunkStart;
+    private final long chunkLength;
+    private final Set<TokenAnalyzer> analyzers;
+    private final int batchSize;
+
+
+    /**
+     * create a task for a single range of the input file
+     * @param channel open channel of the input file
+     * @param chunkStart byte position the range starts at
+     * @param chunkLength number of bytes in the range
+     * @param analyzers analyzers used only by this task
+     * @param batchSize number of tokens per analyzer batch
+     */
+    public ChunkAnalysisTask(FileChannel channel, long chunkStart, long chunkLength, Set<TokenAnalyzer> analyzers,
+            int batchSize) {
+        this.channel = channel;
+        this.chunkStart = chunkStart;
+        this.chunkLength = chunkLength;
+        this.analyzers = analyzers;
+        this.batchSize = batchSize;
+    }
+
+
+    /**
+     * maps the range into memory and passes every token to this task's analyzers
+     * @return analyzers holding the results for this range
+     */
+    @Override
+    protected Set<TokenAnalyzer> compute() {
+
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkLength);
+            readChunk(buffer);
+
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return analyzers;
+    }
+
+
+    /**
+     * passes every token of the mapped range to this task's analyzers
+     * @param buffer mapped range of the input file
+     */
+    public void readChunk(MappedByteBuffer buffer) {
+        TokenBatchDispatcher dispatcher = new TokenBatchDispatcher(analyzers, batchSize);
+        new Tokenizer().tokenize(buffer, dispatcher);
+        dispatcher.flush();
+    }
+}
@@ -0,0 +1,241 @@
+package com.analyzer.model;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+
+/**
+ * recognizes gzip and zip input by its leading magic bytes and decompresses it while it is read,
+ * so compressed files and uploads never have to be expanded on disk first
+ *      gzip - 1F 8B, every member of a multi-member file is read in order
+ *      zip - 50 4B 03 04 (50 4B 05 06 when empty), files are analyzed as a batch of entries,
+ *            streams as their entries one after another
+ * anything else is read as plain text
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see FileAnalysis
+ * @see GzipMemberTask
+ */
+public final class CompressedInput {
+
+    /**input formats told apart by magic bytes*/
+    public enum Format { PLAIN, GZIP, ZIP }
+
+    //decompressed streams read this many bytes at a time
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+
+    /**static helpers only*/
+    private CompressedInput() {}
+
+
+    /**
+     * identifies the format of a file from its first bytes
+     * @param inputFile file to check
+     * @return input format, PLAIN if the file is too short or unreadable
+     */
+    public static Format detect(Path inputFile) {
+
+        byte[] header = new byte[4];
+
+        try (InputStream input = Files.newInputStream(inputFile)) {
+            return detect(header, input.readNBytes(header, 0, header.length));
+
+        } catch (IOException exception) {
+            // exception.printStackTrace();
+            return Format.PLAIN;
+        }
+    }
+
+
+    /**
+     * identifies the format of input from its first bytes
+     * @param header leading bytes of the input
+     * @param length number of valid bytes in header
+     * @return input format
+     */
+    public static Format detect(byte[] header, int length) {
+
+        if (length >= 2 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B) {
+            return Format.GZIP;
+        }
+
+        if (length >= 4 && header[0] == 'P' && header[1] == 'K'
+                && ((header[2] == 3 && header[3] == 4) || (header[2] == 5 && header[3] == 6))) {
+            return Format.ZIP;
+        }
+        return Format.PLAIN;
+    }
+
+
+    /**
+     * opens a file for reading, decompressed if it is gzip compressed
+     * @param inputFile file to open
+     * @return decompressed input
+     * @throws IOException checked in parent function
+     */
+    public static InputStream open(Path inputFile) throws IOException {
+        return decompress(Files.newInputStream(inputFile));
+    }
+
+
+    /**
+     * wraps a stream so it is read decompressed - the format is detected from the stream's first bytes
+     * @param input raw input, closed with the returned stream
+     * @return decompressed input
+     * @throws IOException checked in parent function
+     */
+    public static InputStream decompress(InputStream input) throws IOException {
+
+        BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+        byte[] header = new byte[4];
+
+        buffered.mark(header.length);
+        int length = buffered.readNBytes(header, 0, header.length);
+        buffered.reset();
+
+        switch (detect(header, length)) {
+            case GZIP:
+                return new GZIPInputStream(buffered, BUFFER_SIZE);
+            case ZIP:
+                return readZipEntries(new ZipInputStream(buffered));
+            default:
+                return buffered;
+        }
+    }
+
+
+    /**
+     * joins the entries of a zip stream into one stream, each entry decompressed again if it is gzip
+     * a line break is read between entries so the last token of one entry never runs into the next
+     * @param zipInput zip stream
+     * @return entries one after another
+     */
+    private static InputStream readZipEntries(ZipInputStream zipInput) {
+
+        Enumeration<InputStream> entries = new Enumeration<InputStream>() {
+
+            //entries and separators alternate, the archive moves to the next entry when an entry is closed
+            private ZipEntry nextEntry = findNextEntry(zipInput);
+            private boolean entryNext = true;
+
+            @Override
+            public boolean hasMoreElements() {
+                return nextEntry != null;
+            }
+
+            @Override
+            public InputStream nextElement() {
+
+                if (nextEntry == null) {
+                    throw new NoSuchElementException();
+                }
+
+                if (!entryNext) {
+                    entryNext = true;
+                    return new ByteArrayInputStream(new byte[] {'\n'});
+                }
+                entryNext = false;
+
+                try {
+                    return decompress(new FilterInputStream(zipInput) {
+                        @Override
+                        public void close() {
+                            nextEntry = findNextEntry(zipInput);
+                        }
+                    });
+
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            }
+        };
+
+        return new SequenceInputStream(entries) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                zipInput.close();
+            }
+        };
+    }
+
+
+    /**
+     * moves a zip stream to its next file entry
+     * @param zipInput zip stream
+     * @return next file entry, null after the last
+     */
+    private static ZipEntry findNextEntry(ZipInputStream zipInput) {
+        try {
+            ZipEntry entry = zipInput.getNextEntry();
+
+            while (entry != null && entry.isDirectory()) {
+                entry = zipInput.getNextEntry();
+            }
+            return entry;
+
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+
+    /**
+     * finds the offsets where a gzip member may start - each member begins with 1F 8B 08 and a flag byte
+     * with the reserved bits clear, the same bytes can also turn up inside compressed data,
+     * so GzipMemberTask confirms a candidate by decompressing it
+     * @param channel open channel of a gzip file
+     * @return candidate offsets in file order, starting with 0
+     * @throws IOException checked in parent function
+     */
+    public static List<Long> findGzipMemberCandidates(FileChannel channel) throws IOException {
+
+        List<Long> candidates = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        byte[] bytes = buffer.array();
+        long fileSize = channel.size();
+        long bufferStart = 0;
+
+        while (bufferStart < fileSize) {
+            buffer.clear();
+            int bytesRead = channel.read(buffer, bufferStart);
+
+            if (bytesRead <= 0) {
+                break;
+            }
+
+            for (int index = 0; index + 3 < bytesRead; index++) {
+                if ((bytes[index] & 0xFF) == 0x1F && (bytes[index + 1] & 0xFF) == 0x8B
+                        && bytes[index + 2] == 8 && (bytes[index + 3] & 0xE0) == 0) {
+                    candidates.add(bufferStart + index);
+                }
+            }
+
+            if (bufferStart + bytesRead >= fileSize || bytesRead < 4) {
+                break;
+            }
+
+            //the last 3 bytes are scanned again with the next buffer so headers across the boundary are found
+            bufferStart += bytesRead - 3;
+        }
+        return candidates;
+    }
+}
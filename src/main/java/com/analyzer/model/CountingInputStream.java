@@ -0,0 +1,74 @@
+package com.analyzer.model;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * counts the bytes read through it - gives the size of inputs that are streamed instead of read from a file
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see FileAnalysis
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    //private instance variables
+    private long count;
+
+
+    /**
+     * create a counting stream
+     * @param input stream to read from
+     */
+    public CountingInputStream(InputStream input) {
+        super(input);
+    }
+
+
+    /**
+     * returns number of bytes read or skipped so far
+     * @return byte count
+     */
+    public long getCount() {
+        return count;
+    }
+
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+
+        if (value >= 0) {
+            count++;
+        }
+        return value;
+    }
+
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int bytesRead = super.read(buffer, offset, length);
+
+        if (bytesRead > 0) {
+            count += bytesRead;
+        }
+        return bytesRead;
+    }
+
+
+    @Override
+    public long skip(long length) throws IOException {
+        long skipped = super.skip(length);
+        count += skipped;
+        return skipped;
+    }
+
+
+    /**marks are not supported, a reset would count bytes twice*/
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
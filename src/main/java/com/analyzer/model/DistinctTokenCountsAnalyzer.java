@@ -1,35 +1,39 @@
 package com.analyzer.model;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Map;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Properties;
-import java.util.TreeMap;
 
 
 /**
  * analyzes file to find distinct tokens and how often they occur
+ * tokens are interned in the run's shared SymbolTable and counted in an int array indexed by symbol id,
+ * tokens are resolved and sorted once when the output file is written
  * @author mcherry2
  * @version 4.0
  * @since 2025-2-17
  * @see TokenAnalyzer
+ * @see SymbolTable
  */
 public class DistinctTokenCountsAnalyzer implements TokenAnalyzer {
 
     //private instance variables
     private Properties properties;
-    private Map<String, Integer> distinctTokenCounts;
+    private int[] distinctTokenCounts;
+    private SymbolTable symbols;
 
 
-    /**empty constructor */
+    /**empty constructor - uses a symbol table of its own*/
     public DistinctTokenCountsAnalyzer() {
-        distinctTokenCounts = new TreeMap<>();
+        distinctTokenCounts = new int[1024];
+        symbols = new SymbolTable();
     }
 
 
     /**
-     * create DistinctTokenCounts object and initialize distinctTokenCounts HashMap
+     * create DistinctTokenCounts object and initialize distinctTokenCounts array
      * @param properties properties type from CLA properties file
      */
     public DistinctTokenCountsAnalyzer(Properties properties) {
@@ -39,14 +43,44 @@ public class DistinctTokenCountsAnalyzer implements TokenAnalyzer {
 
 
     /**
-     * gives access to distinctTokensCount
-     * @return count of distinct tokens
+     * create DistinctTokenCounts object that shares a symbol table with other analyzers
+     * @param properties properties type from CLA properties file
+     * @param symbols symbol table of the run
      */
-    public Map<String, Integer> getDistinctTokenCounts() {
+    public DistinctTokenCountsAnalyzer(Properties properties, SymbolTable symbols) {
+        this(properties);
+        this.symbols = symbols;
+    }
+
+
+    /**
+     * gives access to a token's count
+     * @param token token to look up
+     * @return count, 0 if the token was never counted
+     */
+    public int getDistinctTokenCount(CharSequence token) {
+        int symbol = symbols.lookup(token);
+        return symbol >= 0 && symbol < distinctTokenCounts.length ? distinctTokenCounts[symbol] : 0;
+    }
+
+
+    /**
+     * gives access to the counts indexed by symbol id - slots past the table size may be unused
+     * @return counts array
+     */
+    public int[] getDistinctTokenCounts() {
         return distinctTokenCounts;
     }
 
 
+    /**
+     * returns the symbol table the ids belong to
+     * @return symbol table
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
 
     /**
      * processes tokens based on if they are unique or not - counts repeated occurences
@@ -54,18 +88,114 @@ public class DistinctTokenCountsAnalyzer implements TokenAnalyzer {
      */
     @Override
     public void processToken(String token) {
+        countSymbol(symbols.intern(token), 1);
+    }
+
+
+    /**
+     * counts a token view - the symbol table only copies the token the first time it is seen
+     * @param token token view passed in from input file
+     */
+    @Override
+    public void processToken(TokenView token) {
+        countSymbol(symbols.intern(token), 1);
+    }
+
+
+    /**
+     * counts a batch of tokens
+     * @param batch tokens passed in from input file
+     */
+    @Override
+    public void processTokens(TokenBatch batch) {
+        for (int index = 0; index < batch.getSize(); index++) {
+            countSymbol(batch.getSymbol(index, symbols), 1);
+        }
+    }
+
+
+    /**
+     * adds to the count of a symbol - grows the count array as the symbol table grows
+     * @param symbol symbol id
+     * @param amount number of occurences to add
+     */
+    public void countSymbol(int symbol, int amount) {
+
+        if (symbol >= distinctTokenCounts.length) {
+            distinctTokenCounts = Arrays.copyOf(distinctTokenCounts, Math.max(symbol + 1, distinctTokenCounts.length * 2));
+        }
+        distinctTokenCounts[symbol] += amount;
+    }
+
+
+    /**
+     * adds the counts of a partial analyzer to this analyzer's counts - partial ids are re-interned in this table
+     * @param partialAnalyzer DistinctTokenCountsAnalyzer from a later section of the input
+     */
+    @Override
+    public void mergeAnalyzer(TokenAnalyzer partialAnalyzer) {
+        DistinctTokenCountsAnalyzer partial = (DistinctTokenCountsAnalyzer) partialAnalyzer;
+        int[] partialCounts = partial.getDistinctTokenCounts();
+        TokenView token = new TokenView();
+
+        for (int symbol = 0; symbol < partial.getSymbols().size() && symbol < partialCounts.length; symbol++) {
+            if (partialCounts[symbol] > 0) {
+                partial.getSymbols().viewSymbol(symbol, token);
+                countSymbol(symbols.intern(token), partialCounts[symbol]);
+            }
+        }
+    }
+
+
+    /**
+     * writes the counted tokens to a snapshot as a sorted token list, each token followed by its count
+     * @param output snapshot output
+     * @throws IOException handled by AnalysisSnapshot
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+
+        try {
+            symbols.forEachSortedSymbol(findCountedSymbols(), (token, symbol) -> {
+                try {
+                    output.writeToken(token);
+                    output.writeVarInt(distinctTokenCounts[symbol]);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+        output.endTokenList();
+    }
 
-        //if the key already exists, update it's value
-        if (distinctTokenCounts.containsKey(token)) {
-            distinctTokenCounts.put(token, distinctTokenCounts.get(token) + 1);
 
-        } else {
-            //else add new token and set initial value to 1
-            distinctTokenCounts.put(token, 1);
+    /**
+     * adds the token counts of a snapshot to this analyzer's counts
+     * @param input snapshot input
+     * @throws IOException if the snapshot is cut off
+     */
+    @Override
+    public void readSnapshot(SnapshotInput input) throws IOException {
+
+        for (String token = input.readToken(); token != null; token = input.readToken()) {
+            countSymbol(symbols.intern(token), input.readVarInt());
         }
     }
 
 
+    /**
+     * names the output file written by generateOutputFile
+     * @return output file name from properties
+     */
+    @Override
+    public String getOutputFileName() {
+        return OutputFileWriter.getFileName(properties, "output.file.distinct.counts");
+    }
+
+
     /**
      * generate a formatted output file
      * @param inputFilePath input filepath
@@ -75,10 +205,10 @@ public class DistinctTokenCountsAnalyzer implements TokenAnalyzer {
         
 
         String directoryFilePath = properties.getProperty("output.directory");
-        String outputFilePath = directoryFilePath + properties.getProperty("output.file.distinct.counts");
+        String outputFilePath = directoryFilePath + getOutputFileName();
         
 
-        try (PrintWriter print = new PrintWriter(new BufferedWriter(new FileWriter(outputFilePath)))) {
+        try (PrintWriter print = OutputFileWriter.open(outputFilePath, properties)) {
 
             //loop and write tokens
             writeDistinctTokenCounts(print);
@@ -96,22 +226,33 @@ public class DistinctTokenCountsAnalyzer implements TokenAnalyzer {
 
 
     /**
-     * loops through map to print key and value pairs
+     * resolves and sorts the counted tokens and prints key and value pairs
+     * the sort runs once here, split across cores by SymbolTable.forEachSortedSymbol(),
+     * and each count is read by symbol id rather than looked up by token
      * @param print printwriter
      */
     public void writeDistinctTokenCounts(PrintWriter print) throws IOException {
 
-        //updated to use a stringbuilder
-        StringBuilder output = new StringBuilder();
+        symbols.forEachSortedSymbol(findCountedSymbols(), (token, symbol) -> {
+            print.print(token);
+            print.print('\t');
+            print.println(distinctTokenCounts[symbol]);
+        });
+    }
+
 
-        for (Map.Entry<String, Integer> entry : distinctTokenCounts.entrySet()) {
+    /**
+     * finds the symbols this analyzer counted - other analyzers may have interned more
+     * @return bits set for each counted symbol id
+     */
+    public BitSet findCountedSymbols() {
 
-            output.append(entry.getKey());
-            output.append("\t");
-            output.append(entry.getValue());
-            
-            print.println(output.toString());
-            output.setLength(0);
+        BitSet countedSymbols = new BitSet();
+        for (int symbol = 0; symbol < distinctTokenCounts.length; symbol++) {
+            if (distinctTokenCounts[symbol] > 0) {
+                countedSymbols.set(symbol);
+            }
         }
+        return countedSymbols;
     }
 }
\ No newline at end of file
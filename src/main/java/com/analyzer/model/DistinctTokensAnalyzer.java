@@ -1,32 +1,38 @@
 package com.analyzer.model;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.BitSet;
 import java.util.Properties;
-import java.util.Set;
-import java.util.TreeSet;
 
 
 /**
  * responsible for adding only unique tokens into a list and 
  * generating an output file containing all unique tokens
+ * tokens are interned in the run's shared SymbolTable - this analyzer only keeps one bit per distinct token
+ * with distinct.memory.budget set, tokens go to a SpillingTokenSet of their own instead, which spills sorted runs
+ * to temp files so inputs with more distinct tokens than fit in memory still produce sorted output
  * 
  * @author mcherry2
  * @version 4.0
  * @since 2025-2-17
  * @see TokenAnalyzer
+ * @see SymbolTable
+ * @see SpillingTokenSet
  */
 public class DistinctTokensAnalyzer implements TokenAnalyzer {
 
     //private instance variables
-    private Set<String> distinctTokens;
+    private BitSet distinctTokens;
+    private SymbolTable symbols;
+    private SpillingTokenSet spillingTokens;        //null unless a memory budget is set
     private Properties properties;
 
 
-    /**empty constructor*/
+    /**empty constructor - uses a symbol table of its own*/
     public DistinctTokensAnalyzer() {
-        distinctTokens = new TreeSet<>();
+        distinctTokens = new BitSet();
+        symbols = new SymbolTable();
     }
     
     
@@ -37,28 +43,193 @@ public class DistinctTokensAnalyzer implements TokenAnalyzer {
     public DistinctTokensAnalyzer(Properties properties) {
         this();
         this.properties = properties;
+
+        //0 or no value keeps every distinct token in memory
+        long memoryBudget = Long.parseLong(properties.getProperty("distinct.memory.budget", "0"));
+
+        if (memoryBudget > 0) {
+            spillingTokens = new SpillingTokenSet(memoryBudget);
+        }
     }
 
 
     /**
-     * returns distinct tokens set
-     * @return distinctTokens
+     * create a DistinctTokensAnalyzer object w/properties that shares a symbol table with other analyzers
+     * @param properties properties of analyzer
+     * @param symbols symbol table of the run
      */
-    public Set<String> getDistinctTokens() {
+    public DistinctTokensAnalyzer(Properties properties, SymbolTable symbols) {
+        this(properties);
+        this.symbols = symbols;
+    }
+
+
+    /**
+     * returns ids of the distinct tokens
+     * @return bits set for each distinct token's symbol id
+     */
+    public BitSet getDistinctTokens() {
         return distinctTokens;
     }
 
 
+    /**
+     * returns the bounded memory token set
+     * @return spilling token set, null when no memory budget is set
+     */
+    public SpillingTokenSet getSpillingTokens() {
+        return spillingTokens;
+    }
+
+
+    /**
+     * returns the symbol table the ids belong to
+     * @return symbol table
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+
     /**
      * adds tokens to a Set list - only collects unique tokens
      * @param token passed from input file
      */
     @Override
     public void processToken(String token) {
-        distinctTokens.add(token);
+
+        if (spillingTokens != null) {
+            spillingTokens.add(token);
+        } else {
+            distinctTokens.set(symbols.intern(token));
+        }
     }
 
 
+    /**
+     * adds a token view - the symbol table only copies the token the first time it is seen
+     * @param token token view passed from input file
+     */
+    @Override
+    public void processToken(TokenView token) {
+
+        if (spillingTokens != null) {
+            spillingTokens.add(token);
+        } else {
+            distinctTokens.set(symbols.intern(token));
+        }
+    }
+
+
+    /**
+     * adds a batch of tokens to the set
+     * @param batch tokens passed from input file
+     */
+    @Override
+    public void processTokens(TokenBatch batch) {
+
+        if (spillingTokens != null) {
+            for (int index = 0; index < batch.getSize(); index++) {
+                spillingTokens.add(batch.getView(index));
+            }
+            return;
+        }
+
+        for (int index = 0; index < batch.getSize(); index++) {
+            distinctTokens.set(batch.getSymbol(index, symbols));
+        }
+    }
+
+
+    /**
+     * adds the distinct tokens of a partial analyzer - partial ids are re-interned in this analyzer's table
+     * @param partialAnalyzer DistinctTokensAnalyzer from a later section of the input
+     */
+    @Override
+    public void mergeAnalyzer(TokenAnalyzer partialAnalyzer) {
+        DistinctTokensAnalyzer partial = (DistinctTokensAnalyzer) partialAnalyzer;
+
+        if (spillingTokens != null) {
+            spillingTokens.addAll(partial.getSpillingTokens());
+            return;
+        }
+
+        BitSet partialTokens = partial.getDistinctTokens();
+        TokenView token = new TokenView();
+
+        for (int symbol = partialTokens.nextSetBit(0); symbol >= 0; symbol = partialTokens.nextSetBit(symbol + 1)) {
+            partial.getSymbols().viewSymbol(symbol, token);
+            distinctTokens.set(symbols.intern(token));
+        }
+    }
+
+
+    /**
+     * writes the distinct tokens to a snapshot as a sorted token list
+     * @param output snapshot output
+     * @throws IOException handled by AnalysisSnapshot
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+
+        if (spillingTokens != null) {
+            try {
+                spillingTokens.forEachSorted(token -> {
+                    try {
+                        output.writeToken(token);
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+
+            } catch (UncheckedIOException exception) {
+                throw exception.getCause();
+            }
+
+        } else {
+            for (String token : symbols.getSortedSymbols(distinctTokens)) {
+                output.writeToken(token);
+            }
+        }
+        output.endTokenList();
+    }
+
+
+    /**
+     * adds the distinct tokens of a snapshot
+     * @param input snapshot input
+     * @throws IOException if the snapshot is cut off
+     */
+    @Override
+    public void readSnapshot(SnapshotInput input) throws IOException {
+
+        for (String token = input.readToken(); token != null; token = input.readToken()) {
+            processToken(token);
+        }
+    }
+
+
+    /**
+     * deletes the sorted runs spilled to temp files
+     */
+    @Override
+    public void close() {
+
+        if (spillingTokens != null) {
+            spillingTokens.close();
+        }
+    }
+
+
+    /**
+     * names the output file written by generateOutputFile
+     * @return output file name from properties
+     */
+    @Override
+    public String getOutputFileName() {
+        return OutputFileWriter.getFileName(properties, "output.file.distinct");
+    }
+
 
     /**
      * generates an output file of only distinct tokens
@@ -69,10 +240,10 @@ public class DistinctTokensAnalyzer implements TokenAnalyzer {
 
         //reference hard-coded values from properties file
         String directoryFilePath = properties.getProperty("output.directory");
-        String outputFilePath = directoryFilePath + properties.getProperty("output.file.distinct");
+        String outputFilePath = directoryFilePath + getOutputFileName();
 
 
-        try (PrintWriter print = new PrintWriter(new BufferedWriter(new FileWriter(outputFilePath)))) {
+        try (PrintWriter print = OutputFileWriter.open(outputFilePath, properties)) {
 
             //loop through list of tokens and print individually
             writeDistinctTokens(print);
@@ -91,13 +262,19 @@ public class DistinctTokensAnalyzer implements TokenAnalyzer {
 
 
     /**
-     * loops through set list of distinct tokens and writes them on their own line
+     * resolves and sorts distinct tokens, then writes them on their own line
      * @param print BufferedReader object for input file
      * @throws IOException IO already validated in gnerateOutputFile
      */
     public void writeDistinctTokens(PrintWriter print) throws IOException {
 
-        for (String token: distinctTokens) {
+        //merges the spilled runs when a memory budget is set
+        if (spillingTokens != null) {
+            spillingTokens.writeSorted(print);
+            return;
+        }
+
+        for (String token: symbols.getSortedSymbols(distinctTokens)) {
             print.println(token);
         }
     }
@@ -1,11 +1,34 @@
 package com.analyzer.model;
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import com.analyzer.utilities.PropertiesLoader;
 
@@ -24,11 +47,53 @@ import com.analyzer.utilities.PropertiesLoader;
  * @see LargestTokensAnalyzer
  * @see TokenLengthsAnalyzer
  * @see TokenLocationSearchAnalyzer
+ * @see ChunkAnalysisTask
+ * @see GzipMemberTask
+ * @see CompressedInput
+ * @see AnalysisSnapshot
+ * @see AnalysisCheckpoint
+ * @see TailReader
+ * @see WindowedTokenAnalyzer
  */
 public class FileAnalysis implements PropertiesLoader {
 
+    //shared by every analysis so writer threads keep their output buffers between analyses
+    private static final ExecutorService OUTPUT_WRITERS = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "output-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     //instance variables
     private Set<TokenAnalyzer> analyzers;
+    private Properties properties;
+    private SearchTokenMatcher searchTokens;
+
+
+    /**empty constructor - properties and search tokens are loaded by analyze()*/
+    public FileAnalysis() {}
+
+
+    /**
+     * create a FileAnalysis object that reuses configuration already loaded by a batch run
+     * @param properties loaded analyzer properties
+     * @param searchTokens search tokens compiled once for the run
+     */
+    public FileAnalysis(Properties properties, SearchTokenMatcher searchTokens) {
+        this();
+        this.properties = properties;
+        this.searchTokens = searchTokens;
+    }
+
+
+    /**
+     * gives access to the analyzers of the most recent analysis
+     * @return analyzer set
+     */
+    public Set<TokenAnalyzer> getAnalyzers() {
+        return analyzers;
+    }
 
 
     /**
@@ -44,8 +109,13 @@ public class FileAnalysis implements PropertiesLoader {
             System.out.println("Please enter the file name/path to be analyzed");
 
         } else {
-            analyze(arguments);
-            System.out.println("Process Concluded");
+            try {
+                analyze(arguments);
+                System.out.println("Process Concluded");
+
+            } catch (IllegalArgumentException invalidSetting) {
+                System.out.println("Error in analysis settings: " + invalidSetting.getMessage());
+            }
         }
     }
 
@@ -60,11 +130,326 @@ public class FileAnalysis implements PropertiesLoader {
         String propertiesFilePath = "config/analyzer.properties";
 
         //load and assign properties for validation 
-        Properties properties = loadProperties(propertiesFilePath);
+        properties = loadProperties(propertiesFilePath);
+        analyzeInput(inputFilePath);
+    }
+
+
+    /**
+     * executes analysis with outputs written to a directory of their own instead of output.directory
+     * in-process entry point - each call uses its own analyzers and directory, so analyses can run at the same time
+     * @param inputFilePath file, directory, or glob pattern to be analyzed
+     * @param outputDirectory existing output directory, ending with a separator
+     * @return analyzers and written output files, null if the analysis was cancelled or the input could not be read
+     */
+    public AnalysisResult analyze(String inputFilePath, String outputDirectory) {
+
+        properties = loadProperties("config/analyzer.properties");
+        properties.setProperty("output.directory", outputDirectory);
+        return analyzeInput(inputFilePath);
+    }
+
+
+    /**
+     * executes analysis of a stream as it is read, such as an upload still arriving - nothing is staged on disk
+     * streams are always read sequentially, the parallel settings only apply to files
+     * @param input stream to analyze, read to its end but not closed
+     * @param inputName name reported for the input in the output files
+     * @param outputDirectory existing output directory, ending with a separator
+     * @return analyzers and written output files, null if the analysis was cancelled or the stream failed
+     */
+    public AnalysisResult analyze(InputStream input, String inputName, String outputDirectory) {
+
+        properties = loadProperties("config/analyzer.properties");
+        properties.setProperty("output.directory", outputDirectory);
+        searchTokens = new TokenLocationSearchAnalyzer(properties).getMatcher();
+
+        boolean completed = analyzeStream(input, inputName);
+        closeAnalyzers();
+        return completed ? createResult(inputName) : null;
+    }
+
+
+    /**
+     * analyzes a stream with the loaded properties and search tokens and writes its outputs
+     * gzip and zip streams are decompressed while they are read, a zip stream as its entries one after another
+     * @param input stream to analyze, read to its end but not closed
+     * @param inputName name reported for the input in the output files
+     * @return false if the analysis was cancelled or the stream failed - no output is written
+     */
+    public boolean analyzeStream(InputStream input, String inputName) {
+
+        createInstance(properties);
+
+        CountingInputStream countingInput = new CountingInputStream(input);
+        boolean completed = false;
+
+        try {
+            //not closed - the caller owns the stream
+            readInputFile(new InputStreamReader(CompressedInput.decompress(countingInput)));
+            completed = true;
+
+        } catch (CancellationException cancelled) {
+            System.out.println("Analysis cancelled");
+
+        } catch (IOException | UncheckedIOException exception) {
+            System.out.println("Error reading input stream");
+            // exception.printStackTrace();
+        }
+
+        //a cancelled or broken stream leaves no output behind
+        if (!completed || Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+
+        for (TokenAnalyzer analyzer : analyzers) {
+            if (analyzer instanceof FileSummaryAnalyzer) {
+                ((FileSummaryAnalyzer) analyzer).setInputByteCount(countingInput.getCount());
+            }
+        }
+
+        writeOutputFiles(inputName);
+        return true;
+    }
+
+
+    /**
+     * combines snapshots of earlier analyses into one result without reading their inputs again
+     * snapshots are merged in the order given - token positions continue from one snapshot into the next,
+     * as if the inputs had been analyzed as one file, a single snapshot just regenerates its output files
+     * outputs are written to output.directory, and a snapshot of the combined result to output.file.merged.snapshot -
+     * never to output.file.snapshot, which is usually one of the snapshots being merged
+     * @param snapshotFilePaths snapshots written with analysis.snapshot.enabled
+     * @return combined analyzers and output files, null if a snapshot could not be read
+     */
+    public AnalysisResult mergeSnapshots(String[] snapshotFilePaths) {
+
+        properties = loadProperties("config/analyzer.properties");
+        properties.setProperty("analysis.snapshot.enabled", "true");
+        properties.setProperty("output.file.snapshot",
+                properties.getProperty("output.file.merged.snapshot", "merged.snapshot"));
+        searchTokens = new TokenLocationSearchAnalyzer(properties).getMatcher();
+        createInstance(properties);
+
+        long inputByteCount = 0;
+        List<String> inputPaths = new ArrayList<>();
+
+        for (String snapshotFilePath : snapshotFilePaths) {
+            try {
+                AnalysisSnapshot snapshot = AnalysisSnapshot.read(Paths.get(snapshotFilePath), analyzers);
+                inputByteCount += snapshot.getInputByteCount();
+                inputPaths.add(snapshot.getInputName());
+
+            } catch (IOException exception) {
+                System.out.println("Error reading analysis snapshot " + snapshotFilePath);
+                // exception.printStackTrace();
+                closeAnalyzers();
+                return null;
+            }
+        }
+
+        //the summary reports the merged inputs and their combined size
+        for (TokenAnalyzer analyzer : analyzers) {
+            if (analyzer instanceof FileSummaryAnalyzer) {
+                ((FileSummaryAnalyzer) analyzer).setInputByteCount(inputByteCount);
+                ((FileSummaryAnalyzer) analyzer).setInputPaths(inputPaths);
+            }
+        }
+
+        String mergedName = String.join(", ", inputPaths);
+        writeOutputFiles(mergedName);
+        closeAnalyzers();
+        return createResult(mergedName);
+    }
+
+
+    /**
+     * follows a file as it is written, the way tail -f does - appended tokens pass through windowed analyzers
+     * that only keep the last follow.window.seconds / follow.window.tokens of the input, and the window is
+     * published to output.directory every follow.publish.seconds
+     * runs until the thread is interrupted, then publishes the window once more
+     * @param inputFilePath file to follow
+     */
+    public void follow(String inputFilePath) {
+
+        properties = loadProperties("config/analyzer.properties");
+        searchTokens = new TokenLocationSearchAnalyzer(properties).getMatcher();
+        analyzers = createFollowAnalyzers(properties);
+
+        final long POLL_MILLIS = Long.parseLong(properties.getProperty("follow.poll.millis"));
+        final long PUBLISH_MILLIS = Long.parseLong(properties.getProperty("follow.publish.seconds")) * 1000;
+        final boolean FROM_START = Boolean.parseBoolean(properties.getProperty("follow.from.start"));
+
+        TokenBatchDispatcher dispatcher = new TokenBatchDispatcher(analyzers, getBatchSize());
+        long position = 0;
+
+        try (TailReader reader = new TailReader(Paths.get(inputFilePath), FROM_START)) {
+
+            long nextPublishTime = System.currentTimeMillis() + PUBLISH_MILLIS;
+
+            while (!Thread.currentThread().isInterrupted()) {
+                long bytesRead = reader.readAppended(dispatcher);
+                dispatcher.flush();
+                position = reader.getPosition();
+
+                if (System.currentTimeMillis() >= nextPublishTime) {
+                    publishFollowWindow(inputFilePath, position);
+                    nextPublishTime = System.currentTimeMillis() + PUBLISH_MILLIS;
+                }
+
+                //nothing new - give the writer time to append more
+                if (bytesRead == 0) {
+                    Thread.sleep(POLL_MILLIS);
+                }
+            }
+
+        } catch (InterruptedException | CancellationException | ClosedByInterruptException stopped) {
+            Thread.currentThread().interrupt();
+
+        } catch (IOException exception) {
+            System.out.println("Error following file");
+            // exception.printStackTrace();
+        }
+
+        //an interrupted thread can't write through a FileChannel - the flag is restored once the window is written
+        boolean interrupted = Thread.interrupted();
+        publishFollowWindow(inputFilePath, position);
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * builds the analyzers a followed file is read with - each keeps a window of its own over the same tokens
+     * @see WindowedTokenCountsAnalyzer
+     * @see WindowedTokenLocationSearchAnalyzer
+     * @param properties properties type retreived from CLA
+     * @return new analyzer set
+     */
+    public Set<TokenAnalyzer> createFollowAnalyzers(Properties properties) {
+
+        Set<TokenAnalyzer> analyzerSet = new LinkedHashSet<>();
+        analyzerSet.add(new WindowedTokenCountsAnalyzer(properties));
+        analyzerSet.add(new WindowedTokenLocationSearchAnalyzer(properties, searchTokens));
+        return analyzerSet;
+    }
+
+
+    /**
+     * drops what has aged out of the window, then writes the window's output files and
+     * a snapshot of it to output.file.follow.snapshot - the snapshot is moved into place whole, so the web UI
+     * never reads half of one
+     * @param inputFilePath followed file
+     * @param position bytes of the file read so far
+     */
+    public void publishFollowWindow(String inputFilePath, long position) {
 
-        createInstance(properties);         //add instances to HashSet<TokenAnalyzer> for loop execution
-        openInputFile(inputFilePath);       
+        long now = System.currentTimeMillis();
+
+        for (TokenAnalyzer analyzer : analyzers) {
+            if (analyzer instanceof WindowedTokenAnalyzer) {
+                ((WindowedTokenAnalyzer) analyzer).advanceWindow(now);
+            }
+            analyzer.generateOutputFile(inputFilePath);
+        }
+
+        String snapshotFilePath = properties.getProperty("output.directory")
+                + properties.getProperty("output.file.follow.snapshot");
+
+        try {
+            AnalysisSnapshot.write(Paths.get(snapshotFilePath), analyzers, inputFilePath, position);
+
+        } catch (IOException exception) {
+            System.out.println("Error writing follow snapshot");
+            // exception.printStackTrace();
+        }
+    }
+
+
+    /**
+     * loads the window last published by follow() into a new set of follow analyzers
+     * in-process entry point for the web UI, which reads the window while another process follows the file
+     * @param outputDirectory directory follow() publishes to, ending with a separator
+     * @return followed file and window analyzers as published, null if nothing has been published
+     */
+    public AnalysisResult readFollowWindow(String outputDirectory) {
+
+        properties = loadProperties("config/analyzer.properties");
+        properties.setProperty("output.directory", outputDirectory);
+        searchTokens = new TokenLocationSearchAnalyzer(properties).getMatcher();
+        analyzers = createFollowAnalyzers(properties);
+
+        Path snapshotFile = Paths.get(outputDirectory + properties.getProperty("output.file.follow.snapshot"));
+
+        if (!Files.isRegularFile(snapshotFile)) {
+            return null;
+        }
+
+        try {
+            return new AnalysisResult(AnalysisSnapshot.read(snapshotFile, analyzers).getInputName(),
+                    outputDirectory, analyzers);
+
+        } catch (IOException exception) {
+            System.out.println("Error reading follow snapshot");
+            // exception.printStackTrace();
+            return null;
+        }
+    }
+
+
+    /**
+     * loads search tokens and analyzes a file or batch with the loaded properties
+     * @param inputFilePath file, directory, or glob pattern to be analyzed
+     * @return analyzers and written output files - the aggregate's for a batch, null if cancelled or not read
+     */
+    public AnalysisResult analyzeInput(String inputFilePath) {
+
+        searchTokens = new TokenLocationSearchAnalyzer(properties).getMatcher();
+
+        //directories, glob patterns, and zip archives are analyzed as a batch of files
+        if (BatchAnalysis.isBatchPath(inputFilePath)) {
+            return new BatchAnalysis(properties, searchTokens).analyze(inputFilePath);
+        }
+
+        boolean completed = analyzeFile(inputFilePath);
+        closeAnalyzers();
+
+        //a cancelled or failed analysis wrote no output
+        return completed ? createResult(inputFilePath) : null;
+    }
+
+
+    /**
+     * analyzes a single file with the loaded properties and search tokens
+     * @param inputFilePath file to be analyzed
+     * @return false if the analysis was cancelled or the file could not be read - no output is written
+     */
+    public boolean analyzeFile(String inputFilePath) {
+
+        createInstance(properties);         //add instances to Set<TokenAnalyzer> for loop execution
+
+        boolean completed;
+
+        //incremental mode resumes from the last run's checkpoint - compressed files are analyzed whole
+        if (Boolean.parseBoolean(properties.getProperty("analysis.incremental.enabled"))
+                && CompressedInput.detect(Paths.get(inputFilePath)) == CompressedInput.Format.PLAIN) {
+            completed = openIncrementalInputFile(inputFilePath);
+
+        //parallel mode maps the file and splits it across fork-join workers
+        } else if (Boolean.parseBoolean(properties.getProperty("analysis.parallel.enabled"))) {
+            completed = openMappedInputFile(inputFilePath);
+        } else {
+            completed = openInputFile(inputFilePath);
+        }
+
+        //a cancelled analysis stops at a batch boundary, a failed read anywhere - neither leaves output
+        if (!completed || Thread.currentThread().isInterrupted()) {
+            return false;
+        }
         writeOutputFiles(inputFilePath);
+        return true;
     }
 
     
@@ -77,31 +462,83 @@ public class FileAnalysis implements PropertiesLoader {
      * @param properties properties type retreived from CLA
      */
     public void createInstance(Properties properties) {
-        analyzers = new HashSet<>();
-        analyzers.add(new FileSummaryAnalyzer(properties));
-        analyzers.add(new DistinctTokensAnalyzer(properties));
-        analyzers.add(new LargestTokensAnalyzer(properties));
-        analyzers.add(new DistinctTokenCountsAnalyzer(properties));
-        analyzers.add(new TokenLengthsAnalyzer(properties));
-        analyzers.add(new TokenLocationSearchAnalyzer(properties));
+        analyzers = createAnalyzers(properties);
+    }
+
+
+    /**
+     * builds a new set of analyzer objects
+     * insertion ordered so two sets can be paired up analyzer by analyzer when merging
+     * analyzers that store tokens share one SymbolTable
+     * a distinct.memory.budget leaves out the distinct count analyzer, and the largest word analyzer unless
+     * largest.words.maximum.count bounds it - they keep every distinct token in the shared table, which no budget
+     * bounds, so only distinct_tokens.txt is written within it
+     * @param properties properties type retreived from CLA
+     * @return new analyzer set
+     * @throws IllegalArgumentException if analysis.index.enabled is set along with a distinct.memory.budget
+     */
+    public Set<TokenAnalyzer> createAnalyzers(Properties properties) {
+        //one symbol table per set so each token string is stored once
+        SymbolTable symbols = new SymbolTable();
+        boolean memoryBudgeted = Long.parseLong(properties.getProperty("distinct.memory.budget", "0")) > 0;
+        boolean indexEnabled = Boolean.parseBoolean(properties.getProperty("analysis.index.enabled"));
+
+        //the index keeps every distinct token and position - asking for it within a budget can't be honoured
+        if (memoryBudgeted && indexEnabled) {
+            throw new IllegalArgumentException("analysis.index.enabled can't be used with distinct.memory.budget, "
+                    + "the index keeps every distinct token in memory");
+        }
+
+        //a maximum count keeps the largest words in a bounded heap instead of the shared table
+        boolean largestWordsBounded =
+                Integer.parseInt(properties.getProperty("largest.words.maximum.count", "0")) > 0;
+
+        Set<TokenAnalyzer> analyzerSet = new LinkedHashSet<>();
+        analyzerSet.add(new FileSummaryAnalyzer(properties));
+
+        //exact distinct analyzers keep every distinct token - huge files can rely on the summary's estimate instead
+        if (Boolean.parseBoolean(properties.getProperty("analysis.exact.distinct.enabled", "true"))) {
+            analyzerSet.add(new DistinctTokensAnalyzer(properties, symbols));
+
+            if (!memoryBudgeted || largestWordsBounded) {
+                analyzerSet.add(new LargestTokensAnalyzer(properties, symbols));
+            }
+            if (!memoryBudgeted) {
+                analyzerSet.add(new DistinctTokenCountsAnalyzer(properties, symbols));
+            }
+        }
+        analyzerSet.add(new TokenLengthsAnalyzer(properties));
+        analyzerSet.add(new TopTokensAnalyzer(properties));
+        analyzerSet.add(new TokenLocationSearchAnalyzer(properties, searchTokens));
+
+        //full positional index is optional - it keeps every token position in memory until output
+        if (indexEnabled) {
+            analyzerSet.add(new InvertedIndexAnalyzer(properties, symbols));
+        }
+        return analyzerSet;
     }
     
 
     /**
-     * opens input file to send data to analyzers
+     * opens input file to send data to analyzers - gzip files are decompressed as they are read
      * @param inputFilePath input file retrieved from CLA
+     * @return false if the file could not be read whole or the analysis was cancelled
      */
-    public void openInputFile(String inputFilePath) {
+    public boolean openInputFile(String inputFilePath) {
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(inputFilePath))) {
+        try (Reader reader = new InputStreamReader(CompressedInput.open(Paths.get(inputFilePath)))) {
 
             //loop through input file
             readInputFile(reader);
+            return true;
 
-        } catch (FileNotFoundException fileNotFound) {
+        } catch (NoSuchFileException fileNotFound) {
             System.out.println("Error finding file");
             // fileNotFound.printStackTrace();
 
+        } catch (CancellationException cancelled) {
+            System.out.println("Analysis cancelled");
+
         } catch (IOException exception) {
             System.out.println("Error opening file");
             // exception.printStackTrace();
@@ -110,64 +547,595 @@ public class FileAnalysis implements PropertiesLoader {
             System.out.println("Error processing file");
             // exception.printStackTrace();
         }
+        return false;
     }
 
 
     /**
-     * loops through input file - passes tokens to processTokens() one at a time - parses out non-word characters
-     * @param reader reader object from openInputFile()
-     * @throws IOException IO is already checked in parent function: openInputFile()
+     * memory-maps the input file and analyzes it in parallel chunks - gzip files are split by member instead
+     * @param inputFilePath input file retrieved from CLA
+     * @return false if the file could not be read whole, the settings are invalid, or the analysis was cancelled
      */
-    public void readInputFile(BufferedReader reader) throws IOException {
+    public boolean openMappedInputFile(String inputFilePath) {
+
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+
+            //split file, analyze chunks, merge chunk results
+            if (CompressedInput.detect(Paths.get(inputFilePath)) == CompressedInput.Format.GZIP) {
+                readGzipInputFile(channel);
+            } else {
+                readMappedInputFile(channel);
+            }
+            return true;
+
+        } catch (NoSuchFileException fileNotFound) {
+            System.out.println("Error finding file");
+            // fileNotFound.printStackTrace();
+
+        } catch (CancellationException cancelled) {
+            System.out.println("Analysis cancelled");
 
-        while (reader.ready()) {
+        } catch (IOException exception) {
+            System.out.println("Error opening file");
+            // exception.printStackTrace();
 
-            String fileLine = reader.readLine();
-            String[] tokens = fileLine.split("\\W");        //parse out non-word characters here
+        } catch (IllegalArgumentException invalidSetting) {
+            System.out.println("Error in analysis settings: " + invalidSetting.getMessage());
 
-            //pass tokens of String[] indiviually
-            passTokens(tokens);
+        } catch (Exception exception) {
+            System.out.println("Error processing file");
+            // exception.printStackTrace();
         }
+        return false;
     }
 
 
     /**
-     * passes tokens one-by-one from their string array to analyzers
-     * filters out empty strings
-     * @param tokens tokens from parent function: readInputFile()
+     * analyzes only the bytes appended to a file since the last run - the analyzers start from the checkpoint
+     * in output.file.checkpoint, which is only used while the file still starts with the bytes it was taken of
+     * the new checkpoint ends after the last non-word byte, the token the file ends in may still be growing,
+     * so it is analyzed for this run's output and read again by the next run
+     * @param inputFilePath input file retrieved from CLA
+     * @return false if the file could not be read whole, the settings are invalid, or the analysis was cancelled
      */
-    public void passTokens (String[] tokens) {
+    public boolean openIncrementalInputFile(String inputFilePath) {
+
+        Path checkpointFile = Paths.get(properties.getProperty("output.directory")
+                + properties.getProperty("output.file.checkpoint"));
+
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
 
-        for (String token : tokens) {
+            long fileSize = channel.size();
+            long checkpointStart = loadCheckpoint(checkpointFile, inputFilePath, channel);
+            long checkpointEnd = findCheckpointEnd(channel, checkpointStart, fileSize);
 
-            //filter out empty tokens if encountered
-            if (token.length() > 0) {
+            readMappedRange(channel, checkpointStart, checkpointEnd);
 
-                //passes tokens to each analyzer individually via loop through analyzer list
-                initiateProcessTokens(token); 
+            //nothing whole was appended - the last checkpoint still holds
+            if (checkpointEnd > checkpointStart) {
+                writeCheckpoint(checkpointFile, inputFilePath, channel, checkpointEnd);
             }
+            readMappedRange(channel, checkpointEnd, fileSize);
+            return true;
+
+        } catch (NoSuchFileException fileNotFound) {
+            System.out.println("Error finding file");
+            // fileNotFound.printStackTrace();
+
+        } catch (CancellationException cancelled) {
+            System.out.println("Analysis cancelled");
+
+        } catch (IOException exception) {
+            System.out.println("Error opening file");
+            // exception.printStackTrace();
+
+        } catch (IllegalArgumentException invalidSetting) {
+            System.out.println("Error in analysis settings: " + invalidSetting.getMessage());
+
+        } catch (Exception exception) {
+            System.out.println("Error processing file");
+            // exception.printStackTrace();
+        }
+        return false;
+    }
+
+
+    /**
+     * loads the last run's checkpoint into the analyzers
+     * @param checkpointFile checkpoint of the last run
+     * @param inputFilePath input file retrieved from CLA
+     * @param channel open channel of the input file
+     * @return byte offset the analysis resumes at, 0 when there is no checkpoint or it does not match the file
+     */
+    public long loadCheckpoint(Path checkpointFile, String inputFilePath, FileChannel channel) {
+
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+
+        try {
+            AnalysisCheckpoint checkpoint = AnalysisCheckpoint.read(checkpointFile,
+                    AnalysisCheckpoint.fingerprintConfiguration(properties), inputFilePath, channel, analyzers);
+
+            if (checkpoint != null) {
+                System.out.println("Resuming at byte " + checkpoint.getInputByteOffset()
+                        + " after " + checkpoint.getTokenCount() + " tokens");
+                return checkpoint.getInputByteOffset();
+            }
+
+        } catch (IOException exception) {
+            System.out.println("Error reading analysis checkpoint");
+            // exception.printStackTrace();
+
+            //a partly loaded checkpoint leaves the analyzers unusable
+            closeAnalyzers();
+            createInstance(properties);
+        }
+        return 0;
+    }
+
+
+    /**
+     * writes a checkpoint of the analyzers - the next run resumes at its byte offset
+     * @param checkpointFile file to write
+     * @param inputFilePath input file retrieved from CLA
+     * @param channel open channel of the input file
+     * @param inputByteOffset number of bytes the analyzers have read
+     */
+    public void writeCheckpoint(Path checkpointFile, String inputFilePath, FileChannel channel, long inputByteOffset) {
+
+        final long VERIFY_BYTES = Long.parseLong(properties.getProperty("analysis.incremental.verify.bytes"));
+        long tokenCount = 0;
+
+        for (TokenAnalyzer analyzer : analyzers) {
+            if (analyzer instanceof FileSummaryAnalyzer) {
+                tokenCount = ((FileSummaryAnalyzer) analyzer).getTotalTokensCount();
+            }
+        }
+
+        try {
+            AnalysisCheckpoint.write(checkpointFile, analyzers, AnalysisCheckpoint.fingerprintConfiguration(properties),
+                    inputFilePath, channel, inputByteOffset, tokenCount, VERIFY_BYTES);
+
+        } catch (IOException exception) {
+            System.out.println("Error writing analysis checkpoint");
+            // exception.printStackTrace();
+        }
+    }
+
+
+    /**
+     * finds the end of the last whole token of a range - just past its last non-word byte
+     * @param channel open channel of the input file
+     * @param start first byte of the range
+     * @param end byte after the last
+     * @return position after the last non-word byte, start if the range has none
+     * @throws IOException checked in parent function
+     */
+    public long findCheckpointEnd(FileChannel channel, long start, long end) throws IOException {
+
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long position = end;
+
+        while (position > start) {
+            int probeLength = (int) Math.min(probe.capacity(), position - start);
+            probe.clear();
+            probe.limit(probeLength);
+            int bytesRead = channel.read(probe, position - probeLength);
+
+            //the file shrank while it was being read - resume where this run started
+            if (bytesRead < probeLength) {
+                return start;
+            }
+
+            for (int index = probeLength - 1; index >= 0; index--) {
+                if (!Tokenizer.isWordByte(probe.get(index))) {
+                    return position - probeLength + index + 1;
+                }
+            }
+            position -= probeLength;
+        }
+        return start;
+    }
+
+
+    /**
+     * splits the file into byte ranges, tokenizes every range on its own fork-join worker,
+     * then merges the chunk analyzers into the primary analyzers in file order
+     * @param channel open channel of the input file
+     * @throws IOException IO is already checked in parent function: openMappedInputFile()
+     */
+    public void readMappedInputFile(FileChannel channel) throws IOException {
+        readMappedRange(channel, 0, channel.size());
+    }
+
+
+    /**
+     * analyzes a byte range of the file in parallel chunks - the range has to end on a token boundary
+     * positions in the range continue from the analyzers' current token position
+     * at most two chunks per worker are in flight, so the number of live chunk analyzers does not grow with the file
+     * @param channel open channel of the input file
+     * @param rangeStart first byte of the range
+     * @param rangeEnd byte after the last
+     * @throws IOException IO is already checked in parent function
+     */
+    public void readMappedRange(FileChannel channel, long rangeStart, long rangeEnd) throws IOException {
+
+        final long CHUNK_SIZE = getChunkSize();
+        final int THREADS = Integer.parseInt(properties.getProperty("analysis.parallel.threads"));
+
+        //0 threads uses every available core
+        int parallelism = THREADS > 0 ? THREADS : Runtime.getRuntime().availableProcessors();
+        int maximumPending = parallelism * 2;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Deque<ChunkAnalysisTask> pending = new ArrayDeque<>();
+
+        try {
+            long chunkStart = rangeStart;
+
+            while (chunkStart < rangeEnd || !pending.isEmpty()) {
+
+                //create one task per chunk - each task gets its own analyzer instances
+                if (chunkStart < rangeEnd && pending.size() < maximumPending) {
+                    long chunkEnd = findChunkEnd(channel, Math.min(chunkStart + CHUNK_SIZE, rangeEnd), rangeEnd);
+                    ChunkAnalysisTask task = new ChunkAnalysisTask(channel, chunkStart, chunkEnd - chunkStart,
+                            createAnalyzers(properties), getBatchSize());
+
+                    pool.execute(task);
+                    pending.addLast(task);
+                    chunkStart = chunkEnd;
+                    continue;
+                }
+
+                //join in file order so token positions can be rebased chunk by chunk
+                mergeAnalyzers(pending.removeFirst().join());
+
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("analysis interrupted");
+                }
+            }
+
+        } finally {
+            pool.shutdownNow();
+
+            //chunks left unmerged after a failure - release whatever they hold
+            for (ChunkAnalysisTask task : pending) {
+                task.quietlyJoin();
+
+                if (task.isCompletedNormally()) {
+                    for (TokenAnalyzer analyzer : task.getRawResult()) {
+                        analyzer.close();
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * reads the number of bytes per parallel chunk
+     * @return chunk size from properties
+     * @throws IllegalArgumentException if the size is not positive, or too large to map as one buffer
+     */
+    public long getChunkSize() {
+
+        long chunkSize = Long.parseLong(properties.getProperty("analysis.parallel.chunk.size"));
+
+        if (chunkSize <= 0 || chunkSize >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("analysis.parallel.chunk.size must be between 1 and "
+                    + (Integer.MAX_VALUE - 1) + " bytes");
+        }
+        return chunkSize;
+    }
+
+
+    /**
+     * splits a gzip file into ranges of whole members, decompresses and tokenizes every range on its own
+     * fork-join worker, then merges the range analyzers in file order
+     * ranges start at member candidates, and the chain of ranges is followed from the start of the file through
+     * each range's real member end, so a false candidate inside compressed data is never merged
+     * a file compressed as one member is read by one worker
+     * @param channel open channel of the gzip file
+     * @throws IOException IO is already checked in parent function: openMappedInputFile()
+     */
+    public void readGzipInputFile(FileChannel channel) throws IOException {
+
+        final long CHUNK_SIZE = getChunkSize();
+        final int THREADS = Integer.parseInt(properties.getProperty("analysis.parallel.threads"));
+
+        //0 threads uses every available core
+        int parallelism = THREADS > 0 ? THREADS : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Map<Long, GzipMemberTask> tasks = new LinkedHashMap<>();
+
+        try {
+            long fileSize = channel.size();
+            List<Long> rangeStarts = new ArrayList<>();
+
+            //one range per chunk size of compressed input, each starting at a member candidate
+            for (long candidate : CompressedInput.findGzipMemberCandidates(channel)) {
+                if (rangeStarts.isEmpty() || candidate >= rangeStarts.get(rangeStarts.size() - 1) + CHUNK_SIZE) {
+                    rangeStarts.add(candidate);
+                }
+            }
+
+            for (int index = 0; index < rangeStarts.size(); index++) {
+                long rangeEnd = index + 1 < rangeStarts.size() ? rangeStarts.get(index + 1) : fileSize;
+                GzipMemberTask task = new GzipMemberTask(channel, rangeStarts.get(index), rangeEnd,
+                        createAnalyzers(properties), getBatchSize());
+
+                pool.execute(task);
+                tasks.put(rangeStarts.get(index), task);
+            }
+
+            //word characters at range edges wait here until the token they belong to is complete
+            StringBuilder carry = new StringBuilder();
+            long position = 0;
+
+            while (position < fileSize) {
+                GzipMemberTask task = tasks.remove(position);
+
+                //a member ended past the next range start, so that start was a false candidate
+                if (task == null) {
+                    long rangeEnd = fileSize;
+
+                    for (long rangeStart : tasks.keySet()) {
+                        if (rangeStart > position) {
+                            rangeEnd = rangeStart;
+                            break;
+                        }
+                    }
+                    task = new GzipMemberTask(channel, position, rangeEnd, createAnalyzers(properties), getBatchSize());
+                    pool.execute(task);
+                }
+
+                Set<TokenAnalyzer> partialAnalyzers;
+
+                try {
+                    partialAnalyzers = task.join();
+
+                } catch (UncheckedIOException exception) {
+                    //bytes after the last member that don't start a gzip header are ignored, as GZIPInputStream
+                    //ignores them - a damaged, truncated, or CRC failing member fails the analysis
+                    if (position == 0 || task.startsWithHeader()) {
+                        throw exception.getCause();
+                    }
+                    break;
+                }
+
+                carry.append(task.getLeadingFragment());
+
+                if (task.isSeparated()) {
+                    mergeFragment(carry);
+                    mergeAnalyzers(partialAnalyzers);
+                    carry.append(task.getTrailingFragment());
+                } else {
+                    mergeAnalyzers(partialAnalyzers);
+                }
+                position = task.getMemberEnd();
+
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("analysis interrupted");
+                }
+            }
+            mergeFragment(carry);
+
+        } finally {
+            pool.shutdownNow();
+
+            //ranges left unmerged started at false candidates - release whatever they hold
+            for (GzipMemberTask task : tasks.values()) {
+                task.quietlyJoin();
+
+                if (task.isCompletedNormally()) {
+                    for (TokenAnalyzer analyzer : task.getRawResult()) {
+                        analyzer.close();
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * merges a token joined from range edge fragments and empties the fragment buffer
+     * @param fragments characters of the token, nothing is merged when empty
+     */
+    public void mergeFragment(StringBuilder fragments) {
+
+        if (fragments.length() == 0) {
+            return;
+        }
+
+        char[] characters = fragments.toString().toCharArray();
+        TokenView token = new TokenView();
+        token.set(characters, 0, characters.length);
+
+        Set<TokenAnalyzer> partialAnalyzers = createAnalyzers(properties);
+        TokenBatchDispatcher dispatcher = new TokenBatchDispatcher(partialAnalyzers, 1);
+        dispatcher.accept(token);
+        dispatcher.flush();
+
+        mergeAnalyzers(partialAnalyzers);
+        fragments.setLength(0);
+    }
+
+
+    /**
+     * moves a proposed chunk end forward until it lands on a non-word byte so tokens are never split
+     * @param channel open channel of the input file
+     * @param position proposed end of the chunk
+     * @param fileSize end of the range being split, the size of the input file unless only part of it is read
+     * @return position of the first non-word byte at or after position, or fileSize
+     * @throws IOException checked in parent function
+     */
+    public long findChunkEnd(FileChannel channel, long position, long fileSize) throws IOException {
+
+        ByteBuffer probe = ByteBuffer.allocate(256);
+
+        while (position < fileSize) {
+            probe.clear();
+            probe.limit((int) Math.min(probe.capacity(), fileSize - position));
+            int bytesRead = channel.read(probe, position);
+
+            if (bytesRead <= 0) {
+                return fileSize;
+            }
+
+            for (int index = 0; index < bytesRead; index++) {
+                if (!Tokenizer.isWordByte(probe.get(index))) {
+                    return position + index;
+                }
+            }
+            position += bytesRead;
+        }
+        return fileSize;
+    }
+
+
+    /**
+     * merges a set of partial analyzers into the primary analyzers
+     * both sets come from createAnalyzers() so they iterate in the same order
+     * partial analyzers are closed once they are merged
+     * @param partialAnalyzers analyzers from the next chunk of the input file
+     */
+    public void mergeAnalyzers(Set<TokenAnalyzer> partialAnalyzers) {
+
+        Iterator<TokenAnalyzer> partialIterator = partialAnalyzers.iterator();
+
+        for (TokenAnalyzer analyzer : analyzers) {
+            TokenAnalyzer partialAnalyzer = partialIterator.next();
+            analyzer.mergeAnalyzer(partialAnalyzer);
+            partialAnalyzer.close();
         }
     }
 
 
+    /**
+     * scans input file and passes tokens to the analyzers in batches - non-word characters separate tokens
+     * @param reader reader object from openInputFile()
+     * @throws IOException IO is already checked in parent function: openInputFile()
+     */
+    public void readInputFile(Reader reader) throws IOException {
+        TokenBatchDispatcher dispatcher = new TokenBatchDispatcher(analyzers, getBatchSize());
+        new Tokenizer().tokenize(reader, dispatcher);
+        dispatcher.flush();
+    }
+
+
+    /**
+     * reads the number of tokens passed to analyzers per call
+     * @return batch size from properties
+     */
+    public int getBatchSize() {
+        return Integer.parseInt(properties.getProperty("analysis.batch.size"));
+    }
+
+
     /**
      * loop analyzers and generate output
+     * output.parallel.enabled=true writes every analyzer's file at the same time on the output writer threads
+     * analysis.snapshot.enabled=true also writes a snapshot of the analyzers once their files are written
      * @param inputFilePath input file retrieved via CLA
      */
     public void writeOutputFiles(String inputFilePath) {
+
+        if (!Boolean.parseBoolean(properties.getProperty("output.parallel.enabled"))) {
+            for (TokenAnalyzer analyzer : analyzers) {
+                analyzer.generateOutputFile(inputFilePath); 
+            }
+        } else {
+            writeOutputFilesInParallel(inputFilePath);
+        }
+
+        if (Boolean.parseBoolean(properties.getProperty("analysis.snapshot.enabled"))) {
+            writeSnapshot(inputFilePath);
+        }
+    }
+
+
+    /**
+     * generates every analyzer's output at the same time on the output writer threads
+     * @param inputFilePath input file retrieved via CLA
+     */
+    public void writeOutputFilesInParallel(String inputFilePath) {
+
+        List<Future<?>> writes = new ArrayList<>();
+
+        for (TokenAnalyzer analyzer : analyzers) {
+            writes.add(OUTPUT_WRITERS.submit(() -> analyzer.generateOutputFile(inputFilePath)));
+        }
+
+        //every write has to finish before the analyzers are closed, even when this thread is interrupted
+        boolean interrupted = false;
+
+        for (Future<?> write : writes) {
+            while (true) {
+                try {
+                    write.get();
+                    break;
+
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+
+                } catch (ExecutionException exception) {
+                    System.out.println("Error writing output file");
+                    // exception.printStackTrace();
+                    break;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * writes a binary snapshot of the analyzers to output.file.snapshot - FileAnalysis.mergeSnapshots() loads it back
+     * written after the output files, which may still be reading the analyzers' spilled tokens
+     * @param inputFilePath analyzed input
+     */
+    public void writeSnapshot(String inputFilePath) {
+
+        //streamed inputs have no file to measure
+        long inputByteCount = new File(inputFilePath).length();
+
         for (TokenAnalyzer analyzer : analyzers) {
-            analyzer.generateOutputFile(inputFilePath); 
+            if (analyzer instanceof FileSummaryAnalyzer && ((FileSummaryAnalyzer) analyzer).getInputByteCount() >= 0) {
+                inputByteCount = ((FileSummaryAnalyzer) analyzer).getInputByteCount();
+            }
+        }
+
+        String snapshotFilePath = properties.getProperty("output.directory") + properties.getProperty("output.file.snapshot");
+
+        try {
+            AnalysisSnapshot.write(Paths.get(snapshotFilePath), analyzers, inputFilePath, inputByteCount);
+
+        } catch (IOException exception) {
+            System.out.println("Error writing analysis snapshot");
+            // exception.printStackTrace();
         }
     }
 
 
     /**
-     * loops through analyzer objects and passes tokens
-     * @param token tokens from input file
+     * collects the analyzers and the output files they wrote
+     * @param inputFilePath analyzed file, directory, or glob pattern
+     * @return analysis result
+     */
+    public AnalysisResult createResult(String inputFilePath) {
+        return new AnalysisResult(inputFilePath, properties.getProperty("output.directory"), analyzers);
+    }
+
+
+    /**
+     * releases temp files held by the analyzers - called once their output is written and nothing merges them
      */
-    public void initiateProcessTokens(String token) {
+    public void closeAnalyzers() {
         for (TokenAnalyzer analyzer : analyzers) {
-            analyzer.processToken(token);
+            analyzer.close();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.analyzer.model;
+
+/**
+ * main method for following a file as it is written - analyzes what is appended to the file named on the
+ * command line over a sliding window and publishes the window to output.directory until it is stopped
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see FileAnalysis
+ * @see TailReader
+ */
+public class FileFollow {
+
+    /**
+     * main method for follow mode
+     * @param args file to follow
+     */
+    public static void main(String[] args) {
+
+        if (args.length != 1) {
+            System.out.println("Please enter the file name/path to be followed");
+            return;
+        }
+
+        //ctrl-c interrupts the follow loop and waits for it to publish the window one last time
+        Thread followThread = Thread.currentThread();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            followThread.interrupt();
+
+            try {
+                followThread.join(10000);
+            } catch (InterruptedException exception) {
+                // exception.printStackTrace();
+            }
+        }));
+
+        System.out.println("Following " + args[0]);
+        new FileAnalysis().follow(args[0]);
+        System.out.println("Follow stopped");
+    }
+}
@@ -1,28 +1,32 @@
 package com.analyzer.model;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.URI;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.Properties;
+import java.util.StringJoiner;
 
 /**
  * responsible for producing a summary output file for the analyzed file
  * formats file display and counts total tokens
+ * estimates distinct tokens with a HyperLogLog of summary.distinct.precision bits (0 leaves the estimate out)
  * 
  * @author mcherry2
  * @version 4.0
  * @since 2025-2-17
  * @see TokenAnalyzer
+ * @see HyperLogLog
  */
 public class FileSummaryAnalyzer implements TokenAnalyzer {
 
     //private instance variable
     private Properties properties;
     private int totalTokensCount;
+    private HyperLogLog distinctTokensEstimate;     //null when the estimate is turned off
+    private long inputByteCount = -1;               //set for streamed input, which has no file to measure
+    private List<String> inputPaths;                //set for merged snapshots, which describe several inputs
 
 
     /**empty constructor*/
@@ -36,6 +40,12 @@ public class FileSummaryAnalyzer implements TokenAnalyzer {
     public FileSummaryAnalyzer(Properties properties) {
         this();
         this.properties = properties;
+
+        int precision = Integer.parseInt(properties.getProperty("summary.distinct.precision", "0"));
+
+        if (precision > 0) {
+            distinctTokensEstimate = new HyperLogLog(precision);
+        }
     }
 
 
@@ -48,6 +58,43 @@ public class FileSummaryAnalyzer implements TokenAnalyzer {
     }
 
 
+    /**
+     * returns the distinct token estimator
+     * @return estimator, null when the estimate is turned off
+     */
+    public HyperLogLog getDistinctTokensEstimate() {
+        return distinctTokensEstimate;
+    }
+
+
+    /**
+     * returns the size of a streamed input
+     * @return bytes read from the stream, -1 when the input is a file
+     */
+    public long getInputByteCount() {
+        return inputByteCount;
+    }
+
+
+    /**
+     * sets the size of an input that was streamed rather than read from a file
+     * the summary reports this size, and the analysis date as the last modified date
+     * @param inputByteCount bytes read from the stream
+     */
+    public void setInputByteCount(long inputByteCount) {
+        this.inputByteCount = inputByteCount;
+    }
+
+
+    /**
+     * sets the inputs a merged result combines - the summary lists their paths and URIs in place of one file's
+     * @param inputPaths analyzed files of the merged snapshots, in merge order
+     */
+    public void setInputPaths(List<String> inputPaths) {
+        this.inputPaths = inputPaths;
+    }
+
+
     /**
      * counts the total number of tokens - increments every time called
      * @param token token item passed from input file
@@ -55,8 +102,110 @@ public class FileSummaryAnalyzer implements TokenAnalyzer {
     @Override
     public void processToken(String token) {
         totalTokensCount++;
+
+        if (distinctTokensEstimate != null) {
+            distinctTokensEstimate.add(token);
+        }
+    }
+
+
+    /**
+     * counts a token view - the token's characters are only read by the estimate
+     * @param token token view passed from input file
+     */
+    @Override
+    public void processToken(TokenView token) {
+        totalTokensCount++;
+
+        if (distinctTokensEstimate != null) {
+            distinctTokensEstimate.add(token);
+        }
+    }
+
+
+    /**
+     * counts a whole batch at once
+     * @param batch tokens passed from input file
+     */
+    @Override
+    public void processTokens(TokenBatch batch) {
+        totalTokensCount += batch.getSize();
+
+        if (distinctTokensEstimate != null) {
+            for (int index = 0; index < batch.getSize(); index++) {
+                distinctTokensEstimate.add(batch.getView(index));
+            }
+        }
     }
-    
+
+
+    /**
+     * adds the token total of a partial summary to this summary
+     * @param partialAnalyzer FileSummaryAnalyzer from a later section of the input
+     */
+    @Override
+    public void mergeAnalyzer(TokenAnalyzer partialAnalyzer) {
+        FileSummaryAnalyzer partial = (FileSummaryAnalyzer) partialAnalyzer;
+        totalTokensCount += partial.getTotalTokensCount();
+
+        if (distinctTokensEstimate != null) {
+            distinctTokensEstimate.merge(partial.getDistinctTokensEstimate());
+        }
+    }
+
+
+    /**
+     * writes the token total and the distinct token estimate to a snapshot
+     * @param output snapshot output
+     * @throws IOException handled by AnalysisSnapshot
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+
+        output.writeVarInt(totalTokensCount);
+        output.writeBoolean(distinctTokensEstimate != null);
+
+        if (distinctTokensEstimate != null) {
+            distinctTokensEstimate.writeSnapshot(output);
+        }
+    }
+
+
+    /**
+     * adds the token total of a snapshot - its estimate is merged when this summary keeps one
+     * @param input snapshot input
+     * @throws IOException if the snapshot's estimate has a different precision
+     */
+    @Override
+    public void readSnapshot(SnapshotInput input) throws IOException {
+
+        totalTokensCount += input.readVarInt();
+
+        if (!input.readBoolean()) {
+            return;
+        }
+
+        HyperLogLog savedEstimate = HyperLogLog.readSnapshot(input);
+
+        if (distinctTokensEstimate != null) {
+            if (savedEstimate.getPrecision() != distinctTokensEstimate.getPrecision()) {
+                throw new IOException("Snapshot estimate precision " + savedEstimate.getPrecision()
+                        + " does not match summary.distinct.precision " + distinctTokensEstimate.getPrecision());
+            }
+            distinctTokensEstimate.merge(savedEstimate);
+        }
+    }
+
+
+    /**
+     * names the output file written by generateOutputFile
+     * @return output file name from properties
+     */
+    @Override
+    public String getOutputFileName() {
+        return OutputFileWriter.getFileName(properties, "output.file.summary");
+    }
+
 
     /**
      * writes formatted file analysis summary from input file data
@@ -67,7 +216,7 @@ public class FileSummaryAnalyzer implements TokenAnalyzer {
 
         //reference hard-coded values from config/project2.prop
         String directoryFilePath = properties.getProperty("output.directory");
-        String outputFilePath = directoryFilePath + properties.getProperty("output.file.summary");
+        String outputFilePath = directoryFilePath + getOutputFileName();
         String applicationName = properties.getProperty("application.name");
         String authorName = properties.getProperty("author");
         String authorEmail = properties.getProperty("author.email.address");
@@ -75,21 +224,34 @@ public class FileSummaryAnalyzer implements TokenAnalyzer {
         //file property variables
         File file = new File(inputFilePath);
         String absolutePath = file.getAbsolutePath();
-        URI fileUri = file.toURI();
+        String fileUri = file.toURI().toString();
+
+        //a merged result describes every input it combines
+        if (inputPaths != null) {
+            StringJoiner absolutePaths = new StringJoiner(", ");
+            StringJoiner fileUris = new StringJoiner(", ");
+
+            for (String inputPath : inputPaths) {
+                absolutePaths.add(new File(inputPath).getAbsolutePath());
+                fileUris.add(new File(inputPath).toURI().toString());
+            }
+            absolutePath = absolutePaths.toString();
+            fileUri = fileUris.toString();
+        }
         
         //date/format variables
         SimpleDateFormat dateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss z yyyy");
         Date now = new Date();
 
         
-        try (PrintWriter print = new PrintWriter(new BufferedWriter(new FileWriter(outputFilePath)))) {
+        try (PrintWriter print = OutputFileWriter.open(outputFilePath, properties)) {
             
             //lastModifiedTime precision conversion to work with Date
-            long lastModifiedTime = file.lastModified();
+            long lastModifiedTime = inputByteCount < 0 ? file.lastModified() : now.getTime();
             Date lastModifiedDate = new Date(lastModifiedTime);
 
             //file size
-            long fileByteSize = file.length();
+            long fileByteSize = inputByteCount < 0 ? file.length() : inputByteCount;
 
             //format dates
             String formattedLastModifiedTime = dateFormat.format(lastModifiedDate);
@@ -107,6 +269,10 @@ public class FileSummaryAnalyzer implements TokenAnalyzer {
             print.println("File URI: " + fileUri);
             print.println("Total Tokens: " + totalTokensCount);
 
+            if (distinctTokensEstimate != null) {
+                print.println("Estimated Distinct Tokens: " + distinctTokensEstimate.estimate());
+            }
+
 
         } catch (IOException exception) {
             System.out.println("Error writing to summary file");
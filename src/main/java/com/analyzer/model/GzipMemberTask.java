@@ -0,0 +1,448 @@
+package com.analyzer.model;
+import java.io.EOFException;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Set;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+
+/**
+ * fork-join task that decompresses and tokenizes the gzip members in one byte range of a multi-member gzip file
+ * members are decompressed one after another from the range start until a member ends at or past the range end,
+ * each with its CRC and length checked, so a range starting at a false member candidate fails instead of
+ * producing tokens
+ *
+ * decompressed ranges do not end on a non-word character the way mapped chunks do, so the word characters
+ * before the first separator and after the last one are held back as fragments - FileAnalysis joins the
+ * fragments of neighbouring ranges into whole tokens while merging
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see FileAnalysis
+ * @see CompressedInput
+ * @see ChunkAnalysisTask
+ */
+//tasks only run in this process's fork-join pool and are never serialized
+@SuppressWarnings("serial")
+public class GzipMemberTask extends RecursiveTask<Set<TokenAnalyzer>> {
+
+    //gzip header flag bits
+    private static final int FLAG_HEADER_CRC = 2;
+    private static final int FLAG_EXTRA = 4;
+    private static final int FLAG_NAME = 8;
+    private static final int FLAG_COMMENT = 16;
+
+    //private instance variables
+    private final FileChannel channel;
+    private final long rangeStart;
+    private final long rangeEnd;
+    private final Set<TokenAnalyzer> analyzers;
+    private final int batchSize;
+    private long memberEnd;
+    private String leadingFragment = "";
+    private String trailingFragment = "";
+    private boolean separated;
+    private boolean headerRead;
+
+
+    /**
+     * create a task for the members starting in a byte range
+     * @param channel open channel of the gzip file
+     * @param rangeStart offset of the first member
+     * @param rangeEnd offset the last member ends at or after
+     * @param analyzers analyzers used only by this task
+     * @param batchSize number of tokens per analyzer batch
+     */
+    public GzipMemberTask(FileChannel channel, long rangeStart, long rangeEnd, Set<TokenAnalyzer> analyzers,
+            int batchSize) {
+        this.channel = channel;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.analyzers = analyzers;
+        this.batchSize = batchSize;
+    }
+
+
+    /**
+     * returns the offset just past the last member decompressed - the next range must start here
+     * @return end offset of the last member
+     */
+    public long getMemberEnd() {
+        return memberEnd;
+    }
+
+
+    /**
+     * returns the word characters before the first separator - they continue the previous range's last token
+     * @return leading fragment, empty if the range starts with a separator
+     */
+    public String getLeadingFragment() {
+        return leadingFragment;
+    }
+
+
+    /**
+     * returns the word characters after the last separator - the next range's first token may continue them
+     * @return trailing fragment, empty if the range ends with a separator
+     */
+    public String getTrailingFragment() {
+        return trailingFragment;
+    }
+
+
+    /**
+     * checks if the range holds a separator - a range without one is a fragment of a single token
+     * @return true if any non-word character was decompressed
+     */
+    public boolean isSeparated() {
+        return separated;
+    }
+
+
+    /**
+     * checks if the range starts with a whole gzip member header - a range that fails without one
+     * starts at a false candidate or at bytes after the last member, one that fails with one holds damaged data
+     * @return true once the first member's header has been read
+     */
+    public boolean startsWithHeader() {
+        return headerRead;
+    }
+
+
+    /**
+     * decompresses the members and passes every whole token to this task's analyzers
+     * @return analyzers holding the results for this range
+     */
+    @Override
+    protected Set<TokenAnalyzer> compute() {
+
+        boolean completed = false;
+
+        try (EdgeReader reader = new EdgeReader(new InputStreamReader(new MemberInputStream()))) {
+            readRange(reader);
+            completed = true;
+
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+
+        } finally {
+            //a false candidate, a damaged member, or a cancelled analysis - its analyzers are never merged
+            if (!completed) {
+                for (TokenAnalyzer analyzer : analyzers) {
+                    analyzer.close();
+                }
+            }
+        }
+        return analyzers;
+    }
+
+
+    /**
+     * tokenizes the decompressed range, holding back the fragments at either end
+     * @param reader decompressed range
+     * @throws IOException checked in parent function
+     */
+    private void readRange(EdgeReader reader) throws IOException {
+
+        TokenBatchDispatcher dispatcher = new TokenBatchDispatcher(analyzers, batchSize);
+        int[] tokenCount = new int[1];
+
+        new Tokenizer().tokenize(reader, token -> {
+
+            //the first token is a fragment when the range starts inside it
+            if (tokenCount[0]++ == 0 && reader.startsWithWord()) {
+                leadingFragment = token.toString();
+                return;
+            }
+            dispatcher.accept(token);
+        });
+
+        //a single token with no separator on either side is all fragment
+        separated = reader.hasCharacters() && !(reader.startsWithWord() && reader.endsWithWord() && tokenCount[0] == 1);
+
+        if (separated && reader.endsWithWord()) {
+            trailingFragment = dispatcher.removeLastToken();
+        }
+        dispatcher.flush();
+    }
+
+
+    /**
+     * reader that remembers the first and last character read
+     */
+    private static final class EdgeReader extends FilterReader {
+
+        //private instance variables
+        private int firstCharacter = -1;
+        private int lastCharacter = -1;
+
+
+        /**
+         * create an edge tracking reader
+         * @param reader decompressed input
+         */
+        private EdgeReader(Reader reader) {
+            super(reader);
+        }
+
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int charactersRead = super.read(buffer, offset, length);
+
+            if (charactersRead > 0) {
+                if (firstCharacter < 0) {
+                    firstCharacter = buffer[offset];
+                }
+                lastCharacter = buffer[offset + charactersRead - 1];
+            }
+            return charactersRead;
+        }
+
+
+        @Override
+        public int read() throws IOException {
+            int character = super.read();
+
+            if (character >= 0) {
+                if (firstCharacter < 0) {
+                    firstCharacter = character;
+                }
+                lastCharacter = character;
+            }
+            return character;
+        }
+
+
+        private boolean hasCharacters() {
+            return firstCharacter >= 0;
+        }
+
+
+        private boolean startsWithWord() {
+            return firstCharacter >= 0 && Tokenizer.isWordCharacter((char) firstCharacter);
+        }
+
+
+        private boolean endsWithWord() {
+            return lastCharacter >= 0 && Tokenizer.isWordCharacter((char) lastCharacter);
+        }
+    }
+
+
+    /**
+     * decompressed bytes of the range's members, read through the channel at absolute offsets
+     */
+    private final class MemberInputStream extends InputStream {
+
+        //private instance variables
+        private final byte[] input = new byte[64 * 1024];
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private long inputStart;            //file offset of input[0]
+        private int inputPosition;
+        private int inputLimit;
+        private long memberBytes;
+        private boolean ended;
+
+
+        /**
+         * create a stream positioned on the first member's header
+         * @throws IOException if the range does not start with a gzip header
+         */
+        private MemberInputStream() throws IOException {
+            inputStart = rangeStart;
+            readHeader();
+            headerRead = true;
+        }
+
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            while (!ended) {
+                try {
+                    int bytesInflated = inflater.inflate(buffer, offset, length);
+
+                    if (bytesInflated > 0) {
+                        crc.update(buffer, offset, bytesInflated);
+                        memberBytes += bytesInflated;
+                        return bytesInflated;
+                    }
+
+                } catch (DataFormatException exception) {
+                    throw new ZipException("Invalid gzip data at " + rangeStart + ": " + exception.getMessage());
+                }
+
+                if (inflater.finished()) {
+                    finishMember();
+
+                } else if (inflater.needsInput()) {
+                    if (inputPosition == inputLimit && !fill()) {
+                        throw new EOFException("Unexpected end of gzip member");
+                    }
+                    inflater.setInput(input, inputPosition, inputLimit - inputPosition);
+                    inputPosition = inputLimit;
+
+                } else if (inflater.needsDictionary()) {
+                    throw new ZipException("Gzip member needs a preset dictionary");
+                }
+            }
+            return -1;
+        }
+
+
+        @Override
+        public void close() {
+            inflater.end();
+        }
+
+
+        /**
+         * checks the member trailer, then moves on to the next member unless the range end has been reached
+         * @throws IOException if the trailer does not match the decompressed data
+         */
+        private void finishMember() throws IOException {
+
+            //bytes handed to the inflater but not used belong to the trailer
+            inputPosition -= inflater.getRemaining();
+
+            long expectedCrc = readInt();
+            long expectedSize = readInt();
+
+            if (expectedCrc != crc.getValue() || expectedSize != (memberBytes & 0xFFFFFFFFL)) {
+                throw new ZipException("Corrupt gzip member at " + rangeStart);
+            }
+
+            memberEnd = inputStart + inputPosition;
+
+            if (memberEnd >= rangeEnd || memberEnd >= channel.size()) {
+                ended = true;
+                return;
+            }
+
+            inflater.reset();
+            crc.reset();
+            memberBytes = 0;
+
+            try {
+                readHeader();
+
+            } catch (ZipException | EOFException trailingBytes) {
+                //bytes after the last member are ignored the same way GZIPInputStream ignores them
+                ended = true;
+            }
+        }
+
+
+        /**
+         * reads a member header, skipping its optional fields
+         * @throws IOException if the bytes are not a gzip header
+         */
+        private void readHeader() throws IOException {
+
+            if (readByte() != 0x1F || readByte() != 0x8B || readByte() != 8) {
+                throw new ZipException("Not in gzip format at " + (inputStart + inputPosition));
+            }
+
+            int flags = readByte();
+
+            if ((flags & 0xE0) != 0) {
+                throw new ZipException("Reserved gzip flags set");
+            }
+
+            //modification time, extra flags, operating system
+            for (int index = 0; index < 6; index++) {
+                readByte();
+            }
+
+            if ((flags & FLAG_EXTRA) != 0) {
+                int extraLength = readByte() | (readByte() << 8);
+
+                for (int index = 0; index < extraLength; index++) {
+                    readByte();
+                }
+            }
+
+            if ((flags & FLAG_NAME) != 0) {
+                while (readByte() != 0) {
+                    //skip zero terminated file name
+                }
+            }
+
+            if ((flags & FLAG_COMMENT) != 0) {
+                while (readByte() != 0) {
+                    //skip zero terminated comment
+                }
+            }
+
+            if ((flags & FLAG_HEADER_CRC) != 0) {
+                readByte();
+                readByte();
+            }
+        }
+
+
+        /**
+         * reads a little-endian 32 bit value
+         * @return unsigned value
+         * @throws IOException at the end of the file
+         */
+        private long readInt() throws IOException {
+            return readByte() | (readByte() << 8) | (readByte() << 16) | ((long) readByte() << 24);
+        }
+
+
+        /**
+         * reads one raw byte
+         * @return unsigned byte
+         * @throws IOException at the end of the file
+         */
+        private int readByte() throws IOException {
+
+            if (inputPosition == inputLimit && !fill()) {
+                throw new EOFException("Unexpected end of gzip member");
+            }
+            return input[inputPosition++] & 0xFF;
+        }
+
+
+        /**
+         * reads the next block of compressed bytes once the current block is used up
+         * @return false at the end of the file
+         * @throws IOException checked in parent function
+         */
+        private boolean fill() throws IOException {
+
+            inputStart += inputLimit;
+            inputPosition = 0;
+            inputLimit = 0;
+
+            int bytesRead = channel.read(ByteBuffer.wrap(input), inputStart);
+
+            if (bytesRead <= 0) {
+                return false;
+            }
+            inputLimit = bytesRead;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.analyzer.model;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+
+/**
+ * HyperLogLog estimate of the number of distinct tokens in fixed memory
+ * each token is hashed to 64 bits - the first precision bits pick a register and the register keeps the longest run
+ * of leading zeros seen in the remaining bits, the estimate is a bias corrected harmonic mean of the registers
+ * 2^precision registers of one byte each, the standard error is about 1.04 / sqrt(2^precision):
+ *      precision 12 - 4KB, about 1.6%        precision 14 - 16KB, about 0.8%
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see FileSummaryAnalyzer
+ */
+public final class HyperLogLog {
+
+    //precision limits - fewer registers are too noisy, more stop fitting in a few KB
+    public static final int MINIMUM_PRECISION = 4;
+    public static final int MAXIMUM_PRECISION = 18;
+
+    //private instance variables
+    private final int precision;
+    private final byte[] registers;
+
+
+    /**
+     * create an empty estimator
+     * @param precision number of register index bits, clamped to 4 - 18
+     */
+    public HyperLogLog(int precision) {
+        this.precision = Math.max(MINIMUM_PRECISION, Math.min(MAXIMUM_PRECISION, precision));
+        registers = new byte[1 << this.precision];
+    }
+
+
+    /**
+     * returns number of register index bits
+     * @return precision
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+
+    /**
+     * adds a token - tokens seen before leave the registers unchanged
+     * @param token token or token view
+     */
+    public void add(CharSequence token) {
+
+        //FNV-1a over the characters, then a 64 bit finalizer so every bit depends on every character
+        long hash = 0xCBF29CE484222325L;
+
+        for (int index = 0; index < token.length(); index++) {
+            hash = (hash ^ token.charAt(index)) * 0x100000001B3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+
+        int register = (int) (hash >>> (64 - precision));
+
+        //a 1 bit is set below the remaining bits so the run of zeros ends by the last bit
+        long remainingBits = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remainingBits) + 1);
+
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+    }
+
+
+    /**
+     * combines another estimator into this one - the result estimates the union of both inputs
+     * @param other estimator with the same precision
+     */
+    public void merge(HyperLogLog other) {
+
+        if (other.getPrecision() != precision) {
+            throw new IllegalArgumentException("HyperLogLog precision " + other.getPrecision() + " != " + precision);
+        }
+
+        for (int register = 0; register < registers.length; register++) {
+            if (other.registers[register] > registers[register]) {
+                registers[register] = other.registers[register];
+            }
+        }
+    }
+
+
+    /**
+     * writes the estimator to a snapshot - precision, then one byte per register
+     * @param output snapshot output
+     * @throws IOException handled by the caller
+     */
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+        output.writeVarInt(precision);
+        output.write(registers);
+    }
+
+
+    /**
+     * reads an estimator written by writeSnapshot()
+     * @param input snapshot input
+     * @return estimator
+     * @throws IOException if the snapshot is cut off or the precision is out of range
+     */
+    public static HyperLogLog readSnapshot(SnapshotInput input) throws IOException {
+
+        int precision = input.readVarInt();
+
+        if (precision < MINIMUM_PRECISION || precision > MAXIMUM_PRECISION) {
+            throw new StreamCorruptedException("HyperLogLog precision out of range: " + precision);
+        }
+
+        HyperLogLog estimator = new HyperLogLog(precision);
+        input.readFully(estimator.registers);
+        return estimator;
+    }
+
+
+    /**
+     * estimates the number of distinct tokens added
+     * @return estimated distinct count
+     */
+    public long estimate() {
+
+        int registerCount = registers.length;
+        double inverseSum = 0;
+        int emptyRegisters = 0;
+
+        for (byte rank : registers) {
+            inverseSum += 1.0 / (1L << rank);
+
+            if (rank == 0) {
+                emptyRegisters++;
+            }
+        }
+
+        double alpha;
+
+        switch (registerCount) {
+            case 16:
+                alpha = 0.673;
+                break;
+            case 32:
+                alpha = 0.697;
+                break;
+            case 64:
+                alpha = 0.709;
+                break;
+            default:
+                alpha = 0.7213 / (1 + 1.079 / registerCount);
+        }
+
+        double estimate = alpha * registerCount * registerCount / inverseSum;
+
+        //small cardinalities are counted more accurately from the empty registers
+        if (estimate <= 2.5 * registerCount && emptyRegisters > 0) {
+            estimate = registerCount * Math.log((double) registerCount / emptyRegisters);
+        }
+        return Math.round(estimate);
+    }
+}
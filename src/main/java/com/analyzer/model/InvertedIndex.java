@@ -0,0 +1,215 @@
+package com.analyzer.model;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * read access to a token index written by InvertedIndexAnalyzer
+ * the file is memory-mapped once when it is opened - the term dictionary is binary searched and a term's postings
+ * are decoded straight from the mapping, so answering where a token occurs touches a few pages of the index
+ * instead of rescanning the input file
+ *
+ * file layout, all values big-endian:
+ *      header      - magic, version, term count, total tokens (4 ints)
+ *      dictionary  - one entry per term in sorted order: postings offset (long), postings bytes, position count,
+ *                    term character offset, term length (ints)
+ *      characters  - term characters end to end, 2 bytes each
+ *      postings    - each term's positions as PostingList gap encoded bytes
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see InvertedIndexAnalyzer
+ * @see PostingList
+ */
+public class InvertedIndex implements Closeable {
+
+    //file format values shared with InvertedIndexAnalyzer
+    public static final int MAGIC = 0x54494458;     //"TIDX"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int ENTRY_BYTES = 24;
+
+    //header, dictionary, and characters are mapped as one buffer
+    public static final long MAXIMUM_DICTIONARY_BYTES = Integer.MAX_VALUE;
+
+    //postings are mapped in segments, a single mapping can't be larger than 2GB
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    //private instance variables
+    private final FileChannel channel;
+    private final MappedByteBuffer dictionary;
+    private final MappedByteBuffer[] postingSegments;
+    private final int termCount;
+    private final int totalTokens;
+    private final int charactersOffset;
+
+
+    /**
+     * opens an index file and maps its dictionary, term characters, and postings
+     * @param indexFile index file written by InvertedIndexAnalyzer
+     * @throws IOException if the file can't be read or is not a token index
+     */
+    public InvertedIndex(Path indexFile) throws IOException {
+
+        channel = FileChannel.open(indexFile, StandardOpenOption.READ);
+
+        try {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("not a token index: " + indexFile);
+            }
+
+            termCount = header.getInt(8);
+            totalTokens = header.getInt(12);
+            long fileSize = channel.size();
+            long termsEnd = HEADER_BYTES + (long) termCount * ENTRY_BYTES;
+
+            //characters end where the first term's postings begin
+            long postingsOffset = termCount <= 0 || termsEnd + Long.BYTES > fileSize ? termsEnd
+                    : channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, Long.BYTES).getLong(0);
+
+            if (termCount < 0 || postingsOffset < termsEnd || postingsOffset > fileSize
+                    || postingsOffset > MAXIMUM_DICTIONARY_BYTES) {
+                throw new IOException("token index dictionary can't be mapped: " + indexFile);
+            }
+
+            charactersOffset = (int) termsEnd;
+            dictionary = channel.map(FileChannel.MapMode.READ_ONLY, 0, postingsOffset);
+
+            //segment boundaries are file offsets, so a position is found with a shift and a mask
+            postingSegments = new MappedByteBuffer[(int) ((fileSize + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+
+            for (int segment = 0; segment < postingSegments.length; segment++) {
+                long segmentStart = (long) segment << SEGMENT_SHIFT;
+                postingSegments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart,
+                        Math.min(fileSize - segmentStart, SEGMENT_MASK + 1));
+            }
+
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+
+    /**
+     * returns number of distinct tokens in the index
+     * @return term count
+     */
+    public int getTermCount() {
+        return termCount;
+    }
+
+
+    /**
+     * returns number of tokens in the indexed input
+     * @return total tokens
+     */
+    public int getTotalTokens() {
+        return totalTokens;
+    }
+
+
+    /**
+     * finds every position of a token - case sensitive, like the other token outputs
+     * @param token token to look up
+     * @return positions in increasing order, empty if the token does not occur
+     */
+    public int[] lookup(CharSequence token) {
+
+        int entry = findEntry(token);
+
+        if (entry < 0) {
+            return new int[0];
+        }
+
+        int entryOffset = HEADER_BYTES + entry * ENTRY_BYTES;
+        long postingsOffset = dictionary.getLong(entryOffset);
+        int[] positions = new int[dictionary.getInt(entryOffset + 12)];
+        int position = 0;
+
+        //same gap encoding as PostingList.Cursor
+        for (int index = 0; index < positions.length; index++) {
+            int gap = 0;
+            int shift = 0;
+            byte current;
+
+            do {
+                MappedByteBuffer segment = postingSegments[(int) (postingsOffset >>> SEGMENT_SHIFT)];
+                current = segment.get((int) (postingsOffset++ & SEGMENT_MASK));
+                gap |= (current & 0x7F) << shift;
+                shift += 7;
+            } while (current < 0);
+
+            position += gap;
+            positions[index] = position;
+        }
+        return positions;
+    }
+
+
+    /**
+     * binary searches the sorted dictionary
+     * @param token token to find
+     * @return dictionary entry number, -1 if not found
+     */
+    private int findEntry(CharSequence token) {
+
+        int low = 0;
+        int high = termCount - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareTerm(middle, token);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * compares a dictionary term with a token in String order, reading the term straight from the mapping
+     * @param entry dictionary entry number
+     * @param token token to compare
+     * @return negative, zero, or positive as the term sorts before, equal to, or after the token
+     */
+    private int compareTerm(int entry, CharSequence token) {
+
+        int entryOffset = HEADER_BYTES + entry * ENTRY_BYTES;
+        int termStart = charactersOffset + dictionary.getInt(entryOffset + 16) * 2;
+        int termLength = dictionary.getInt(entryOffset + 20);
+        int sharedLength = Math.min(termLength, token.length());
+
+        for (int index = 0; index < sharedLength; index++) {
+            int difference = dictionary.getChar(termStart + index * 2) - token.charAt(index);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return termLength - token.length();
+    }
+
+
+    /**
+     * closes the index file - the mappings stay valid until they are garbage collected
+     * @throws IOException if the channel can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
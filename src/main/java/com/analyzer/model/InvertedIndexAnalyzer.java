@@ -0,0 +1,308 @@
+package com.analyzer.model;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Properties;
+
+
+/**
+ * optional analyzer that records the position of every token and writes a positional inverted index
+ * positions are kept in a PostingList per symbol id of the run's shared SymbolTable,
+ * the index is written next to the other output files and read back with InvertedIndex
+ * enabled with analysis.index.enabled - it keeps roughly one byte per token of input in memory
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see TokenAnalyzer
+ * @see InvertedIndex
+ */
+public class InvertedIndexAnalyzer implements TokenAnalyzer {
+
+    //private instance variables
+    private Properties properties;
+    private PostingList[] postings;
+    private SymbolTable symbols;
+    private int currentTokenLocation;
+
+
+    /**empty constructor - uses a symbol table of its own*/
+    public InvertedIndexAnalyzer() {
+        postings = new PostingList[1024];
+        symbols = new SymbolTable();
+    }
+
+
+    /**
+     * create InvertedIndexAnalyzer object that shares a symbol table with other analyzers
+     * @param properties properties type from CLA properties file
+     * @param symbols symbol table of the run
+     */
+    public InvertedIndexAnalyzer(Properties properties, SymbolTable symbols) {
+        this();
+        this.properties = properties;
+        this.symbols = symbols;
+    }
+
+
+    /**
+     * gives access to the postings indexed by symbol id - null for symbols this analyzer never saw
+     * @return postings array
+     */
+    public PostingList[] getPostings() {
+        return postings;
+    }
+
+
+    /**
+     * returns the symbol table the ids belong to
+     * @return symbol table
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+
+    /**
+     * gives access to the running token position
+     * @return number of tokens processed so far
+     */
+    public int getCurrentTokenLocation() {
+        return currentTokenLocation;
+    }
+
+
+    /**
+     * records the position of a token
+     * @param token token passed in from input file
+     */
+    @Override
+    public void processToken(String token) {
+        addPosition(symbols.intern(token), ++currentTokenLocation);
+    }
+
+
+    /**
+     * records the position of a token view
+     * @param token token view passed in from input file
+     */
+    @Override
+    public void processToken(TokenView token) {
+        addPosition(symbols.intern(token), ++currentTokenLocation);
+    }
+
+
+    /**
+     * records the positions of a batch of tokens
+     * @param batch tokens passed in from input file
+     */
+    @Override
+    public void processTokens(TokenBatch batch) {
+
+        int batchSize = batch.getSize();
+
+        for (int index = 0; index < batchSize; index++) {
+            addPosition(batch.getSymbol(index, symbols), batch.getPosition(index));
+        }
+
+        if (batchSize > 0) {
+            currentTokenLocation = batch.getPosition(batchSize - 1);
+        }
+    }
+
+
+    /**
+     * appends a position to a symbol's postings
+     * @param symbol symbol id
+     * @param position token position
+     */
+    public void addPosition(int symbol, int position) {
+        findPostings(symbol).add(position);
+    }
+
+
+    /**
+     * returns a symbol's postings, creating them the first time - grows the postings array as the symbol table grows
+     * @param symbol symbol id
+     * @return postings of the symbol
+     */
+    private PostingList findPostings(int symbol) {
+
+        if (symbol >= postings.length) {
+            postings = Arrays.copyOf(postings, Math.max(symbol + 1, postings.length * 2));
+        }
+
+        if (postings[symbol] == null) {
+            postings[symbol] = new PostingList();
+        }
+        return postings[symbol];
+    }
+
+
+    /**
+     * appends the postings of a partial analyzer, rebased by the number of tokens this analyzer has already seen
+     * partial ids are re-interned in this analyzer's table
+     * @param partialAnalyzer InvertedIndexAnalyzer from the next section of the input
+     */
+    @Override
+    public void mergeAnalyzer(TokenAnalyzer partialAnalyzer) {
+        InvertedIndexAnalyzer partial = (InvertedIndexAnalyzer) partialAnalyzer;
+        PostingList[] partialPostings = partial.getPostings();
+        TokenView token = new TokenView();
+
+        for (int symbol = 0; symbol < partialPostings.length; symbol++) {
+            if (partialPostings[symbol] != null) {
+                partial.getSymbols().viewSymbol(symbol, token);
+                findPostings(symbols.intern(token)).addAll(partialPostings[symbol], currentTokenLocation);
+            }
+        }
+        currentTokenLocation += partial.getCurrentTokenLocation();
+    }
+
+
+    /**
+     * writes the running token position and a sorted token list of every indexed token to a snapshot,
+     * each followed by its positions
+     * @param output snapshot output
+     * @throws IOException handled by AnalysisSnapshot
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+
+        output.writeVarInt(currentTokenLocation);
+
+        for (String term : symbols.getSortedSymbols(findIndexedSymbols())) {
+            output.writeToken(term);
+            postings[symbols.lookup(term)].writeSnapshot(output);
+        }
+        output.endTokenList();
+    }
+
+
+    /**
+     * appends the postings of a snapshot, rebased like a partial analyzer's
+     * @param input snapshot input
+     * @throws IOException if the snapshot is cut off
+     */
+    @Override
+    public void readSnapshot(SnapshotInput input) throws IOException {
+
+        int savedTokenLocation = input.readVarInt();
+
+        for (String term = input.readToken(); term != null; term = input.readToken()) {
+            findPostings(symbols.intern(term)).addAll(PostingList.readSnapshot(input), currentTokenLocation);
+        }
+        currentTokenLocation += savedTokenLocation;
+    }
+
+
+    /**
+     * names the output file written by generateOutputFile
+     * @return output file name from properties
+     */
+    @Override
+    public String getOutputFileName() {
+        return properties.getProperty("output.file.index");
+    }
+
+
+    /**
+     * generate the index file
+     * @param inputFilePath input filepath
+     */
+    @Override
+    public void generateOutputFile(String inputFilePath) {
+
+        String directoryFilePath = properties.getProperty("output.directory");
+        String outputFilePath = directoryFilePath + getOutputFileName();
+
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(outputFilePath), 1 << 16))) {
+
+            writeIndex(output);
+
+        } catch (IOException exception) {
+            System.out.println("Error writing token index file: " + exception.getMessage());
+            // exception.printStackTrace();
+
+            //a partial index would fail when it is opened - no index is reported as not found instead
+            new File(outputFilePath).delete();
+
+        } catch (Exception exception) {
+            System.out.println("Error processing token index file");
+            // exception.printStackTrace();
+        }
+    }
+
+
+    /**
+     * writes header, sorted dictionary, term characters, and postings in the layout InvertedIndex reads
+     * @param output data output stream
+     * @throws IOException handled in generateOutputFile - also thrown, before anything is written,
+     *         when the dictionary is too large for InvertedIndex to map
+     */
+    public void writeIndex(DataOutputStream output) throws IOException {
+
+        String[] terms = symbols.getSortedSymbols(findIndexedSymbols());
+        PostingList[] sortedPostings = new PostingList[terms.length];
+        long characterCount = 0;
+
+        for (int term = 0; term < terms.length; term++) {
+            sortedPostings[term] = postings[symbols.lookup(terms[term])];
+            characterCount += terms[term].length();
+        }
+
+        long postingsOffset = InvertedIndex.HEADER_BYTES + (long) terms.length * InvertedIndex.ENTRY_BYTES
+                + characterCount * 2;
+
+        if (postingsOffset > InvertedIndex.MAXIMUM_DICTIONARY_BYTES) {
+            throw new IOException(terms.length + " terms need a " + postingsOffset + " byte dictionary, over the "
+                    + InvertedIndex.MAXIMUM_DICTIONARY_BYTES + " bytes the index can map");
+        }
+
+        output.writeInt(InvertedIndex.MAGIC);
+        output.writeInt(InvertedIndex.VERSION);
+        output.writeInt(terms.length);
+        output.writeInt(currentTokenLocation);
+        int characterOffset = 0;
+
+        for (int term = 0; term < terms.length; term++) {
+            output.writeLong(postingsOffset);
+            output.writeInt(sortedPostings[term].getByteCount());
+            output.writeInt(sortedPostings[term].size());
+            output.writeInt(characterOffset);
+            output.writeInt(terms[term].length());
+
+            postingsOffset += sortedPostings[term].getByteCount();
+            characterOffset += terms[term].length();
+        }
+
+        for (String term : terms) {
+            output.writeChars(term);
+        }
+
+        for (PostingList termPostings : sortedPostings) {
+            termPostings.writeTo(output);
+        }
+    }
+
+
+    /**
+     * finds the symbols this analyzer indexed - other analyzers may have interned more
+     * @return bits set for each indexed symbol id
+     */
+    public BitSet findIndexedSymbols() {
+
+        BitSet indexedSymbols = new BitSet();
+        for (int symbol = 0; symbol < postings.length; symbol++) {
+            if (postings[symbol] != null) {
+                indexedSymbols.set(symbol);
+            }
+        }
+        return indexedSymbols;
+    }
+}
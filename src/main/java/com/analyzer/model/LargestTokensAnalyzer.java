@@ -1,29 +1,35 @@
 package com.analyzer.model;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Properties;
-import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * analyzes file for tokens of a predetermined length or larger indicated in properties file
+ * large tokens are interned in the run's shared SymbolTable - this analyzer only keeps one bit per token
+ * with largest.words.maximum.count set, only that many of the longest distinct tokens are kept in a LongestTokensHeap
  * @author mcherry2
  * @version 4.0
  * @since 2025-2-17
  * @see TokenAnalyzer
+ * @see SymbolTable
+ * @see LongestTokensHeap
  */
 public class LargestTokensAnalyzer implements TokenAnalyzer {
 
     //private instance variables
     private Properties properties;
-    private Set<String> largestTokens;
+    private BitSet largestTokens;
+    private SymbolTable symbols;
     private int minimumTokenLength;
+    private LongestTokensHeap longestTokens;        //null unless a maximum count is set
+    private int currentTokenLocation;
 
-    /**empty constructor */
+    /**empty constructor - uses a symbol table of its own*/
     public LargestTokensAnalyzer() {
-        largestTokens = new TreeSet<>();
+        largestTokens = new BitSet();
+        symbols = new SymbolTable();
     }
 
 
@@ -36,30 +42,223 @@ public class LargestTokensAnalyzer implements TokenAnalyzer {
         this.properties = properties;
         String minimumTokenLengthString = properties.getProperty("largest.words.minimum.length");
         minimumTokenLength = Integer.parseInt(minimumTokenLengthString);
+
+        //0 or no value keeps every token of the minimum length
+        int maximumCount = Integer.parseInt(properties.getProperty("largest.words.maximum.count", "0"));
+
+        if (maximumCount > 0) {
+            longestTokens = new LongestTokensHeap(maximumCount);
+        }
     }
 
 
     /**
-     * get method for largestToken, not used right now
-     * @return largestTokens HashSet
+     * create LargestTokens object w/ pre-loaded arguments that shares a symbol table with other analyzers
+     * @param properties properties type from CLA
+     * @param symbols symbol table of the run
      */
-    public Set<String> getLargestTokens() {
+    public LargestTokensAnalyzer(Properties properties, SymbolTable symbols) {
+        this(properties);
+        this.symbols = symbols;
+    }
+
+
+    /**
+     * get method for largestToken ids
+     * @return bits set for each large token's symbol id
+     */
+    public BitSet getLargestTokens() {
         return largestTokens;
     }
 
 
+    /**
+     * get method for the bounded longest tokens
+     * @return longest tokens heap, null when no maximum count is set
+     */
+    public LongestTokensHeap getLongestTokens() {
+        return longestTokens;
+    }
+
+
+    /**
+     * gives access to the running token position
+     * @return number of tokens processed so far
+     */
+    public int getCurrentTokenLocation() {
+        return currentTokenLocation;
+    }
+
+
+    /**
+     * returns the symbol table the ids belong to
+     * @return symbol table
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+
     /**
      * process tokens meeting properties parameters for min length
      * @param token token passed in from input file
      */
     @Override
     public void processToken(String token) {
+
+        currentTokenLocation++;
+
+        if (token.length() >= minimumTokenLength) {
+            if (longestTokens != null) {
+                longestTokens.offer(token, currentTokenLocation);
+            } else {
+                largestTokens.set(symbols.intern(token));
+            }
+        }
+    }
+
+
+    /**
+     * process token views meeting properties parameters for min length
+     * @param token token view passed in from input file
+     */
+    @Override
+    public void processToken(TokenView token) {
+
+        currentTokenLocation++;
+
         if (token.length() >= minimumTokenLength) {
-            largestTokens.add(token);
+            if (longestTokens != null) {
+                longestTokens.offer(token, currentTokenLocation);
+            } else {
+                largestTokens.set(symbols.intern(token));
+            }
         }
     }
 
 
+    /**
+     * process a batch - short tokens are skipped on their length without touching their characters
+     * @param batch tokens passed in from input file
+     */
+    @Override
+    public void processTokens(TokenBatch batch) {
+
+        int batchSize = batch.getSize();
+
+        for (int index = 0; index < batchSize; index++) {
+            if (batch.getLength(index) >= minimumTokenLength) {
+                if (longestTokens != null) {
+                    longestTokens.offer(batch.getView(index), batch.getPosition(index));
+                } else {
+                    largestTokens.set(batch.getSymbol(index, symbols));
+                }
+            }
+        }
+
+        if (batchSize > 0) {
+            currentTokenLocation = batch.getPosition(batchSize - 1);
+        }
+    }
+
+
+    /**
+     * adds the largest tokens of a partial analyzer - both were filtered by the same minimum length
+     * bounded partial tokens are offered at positions rebased by the number of tokens this analyzer has seen
+     * @param partialAnalyzer LargestTokensAnalyzer from a later section of the input
+     */
+    @Override
+    public void mergeAnalyzer(TokenAnalyzer partialAnalyzer) {
+        LargestTokensAnalyzer partial = (LargestTokensAnalyzer) partialAnalyzer;
+
+        if (longestTokens != null) {
+            LongestTokensHeap partialTokens = partial.getLongestTokens();
+
+            for (int index = 0; index < partialTokens.size(); index++) {
+                longestTokens.offer(partialTokens.getToken(index), partialTokens.getPosition(index) + currentTokenLocation);
+            }
+            currentTokenLocation += partial.getCurrentTokenLocation();
+            return;
+        }
+
+        BitSet partialTokens = partial.getLargestTokens();
+        TokenView token = new TokenView();
+
+        for (int symbol = partialTokens.nextSetBit(0); symbol >= 0; symbol = partialTokens.nextSetBit(symbol + 1)) {
+            partial.getSymbols().viewSymbol(symbol, token);
+            largestTokens.set(symbols.intern(token));
+        }
+        currentTokenLocation += partial.getCurrentTokenLocation();
+    }
+
+
+    /**
+     * writes the running token position and a sorted token list of the largest tokens to a snapshot,
+     * each token followed by its first position when a maximum count is set, 0 otherwise
+     * @param output snapshot output
+     * @throws IOException handled by AnalysisSnapshot
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+
+        output.writeVarInt(currentTokenLocation);
+
+        if (longestTokens != null) {
+            Integer[] heapIndexes = new Integer[longestTokens.size()];
+            for (int index = 0; index < heapIndexes.length; index++) {
+                heapIndexes[index] = index;
+            }
+            Arrays.sort(heapIndexes, (first, second) ->
+                    longestTokens.getToken(first).compareTo(longestTokens.getToken(second)));
+
+            for (int index : heapIndexes) {
+                output.writeToken(longestTokens.getToken(index));
+                output.writeVarInt(longestTokens.getPosition(index));
+            }
+
+        } else {
+            for (String token : symbols.getSortedSymbols(largestTokens)) {
+                output.writeToken(token);
+                output.writeVarInt(0);
+            }
+        }
+        output.endTokenList();
+    }
+
+
+    /**
+     * adds the largest tokens of a snapshot - positions are rebased like a partial analyzer's
+     * @param input snapshot input
+     * @throws IOException if the snapshot is cut off
+     */
+    @Override
+    public void readSnapshot(SnapshotInput input) throws IOException {
+
+        int savedTokenLocation = input.readVarInt();
+
+        for (String token = input.readToken(); token != null; token = input.readToken()) {
+            int position = input.readVarInt();
+
+            if (longestTokens != null) {
+                longestTokens.offer(token, position + currentTokenLocation);
+            } else {
+                largestTokens.set(symbols.intern(token));
+            }
+        }
+        currentTokenLocation += savedTokenLocation;
+    }
+
+
+    /**
+     * names the output file written by generateOutputFile
+     * @return output file name from properties
+     */
+    @Override
+    public String getOutputFileName() {
+        return OutputFileWriter.getFileName(properties, "output.file.largest.words");
+    }
+
+
     /**
      * generate a formatted output file
      * @param inputFilePath input file to be analyzed
@@ -69,10 +268,10 @@ public class LargestTokensAnalyzer implements TokenAnalyzer {
 
         //reference hard-coded values from properties file
         String directoryFilePath = properties.getProperty("output.directory");          //controls where file goes - output/ - in this case
-        String outputFilePath = directoryFilePath + properties.getProperty("output.file.largest.words"); //combine directory path with output file name
+        String outputFilePath = directoryFilePath + getOutputFileName(); //combine directory path with output file name
 
 
-        try (PrintWriter print = new PrintWriter(new BufferedWriter(new FileWriter(outputFilePath)))) {
+        try (PrintWriter print = OutputFileWriter.open(outputFilePath, properties)) {
 
             //loops through tokens and writes individually
             writeLargestTokens(print);
@@ -95,7 +294,9 @@ public class LargestTokensAnalyzer implements TokenAnalyzer {
      */
     public void writeLargestTokens(PrintWriter print) throws IOException {
 
-        for (String token : largestTokens) {
+        String[] tokens = longestTokens != null ? longestTokens.getSortedTokens() : symbols.getSortedSymbols(largestTokens);
+
+        for (String token : tokens) {
             print.println(token);
         }
     }
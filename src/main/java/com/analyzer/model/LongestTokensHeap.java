@@ -0,0 +1,191 @@
+package com.analyzer.model;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * keeps the N longest distinct tokens in a fixed-size min-heap, with a set of the kept tokens to drop repeats
+ * tokens of equal length are ranked by first position, so the result is the same however the input is split:
+ *      the heap root is the shortest, latest kept token - once the heap is full a token no longer than the root
+ *      is rejected on its length alone, its characters are never read
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see LargestTokensAnalyzer
+ */
+public class LongestTokensHeap {
+
+    //private instance variables
+    private final String[] tokens;
+    private final int[] positions;
+    private final Set<String> keptTokens;
+    private int size;
+
+
+    /**
+     * create an empty heap
+     * @param capacity number of tokens to keep
+     */
+    public LongestTokensHeap(int capacity) {
+        tokens = new String[capacity];
+        positions = new int[capacity];
+        keptTokens = new HashSet<>();
+    }
+
+
+    /**
+     * returns number of kept tokens
+     * @return heap size
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * returns a kept token
+     * @param index heap index
+     * @return token
+     */
+    public String getToken(int index) {
+        return tokens[index];
+    }
+
+
+    /**
+     * returns the first position of a kept token
+     * @param index heap index
+     * @return token position
+     */
+    public int getPosition(int index) {
+        return positions[index];
+    }
+
+
+    /**
+     * offers a token - kept if the heap has room or the token outranks the root
+     * @param token token or token view, copied only when it is kept
+     * @param position token position within the input
+     */
+    public void offer(CharSequence token, int position) {
+
+        int length = token.length();
+
+        if (size == tokens.length) {
+
+            //single length comparison for nearly every token once the heap is full
+            if (length < tokens[0].length()) {
+                return;
+            }
+
+            if (!ranksAbove(length, position, 0)) {
+                return;
+            }
+        }
+
+        String keptToken = token.toString();
+
+        if (!keptTokens.add(keptToken)) {
+            return;
+        }
+
+        if (size < tokens.length) {
+            tokens[size] = keptToken;
+            positions[size] = position;
+            siftUp(size++);
+            return;
+        }
+
+        keptTokens.remove(tokens[0]);
+        tokens[0] = keptToken;
+        positions[0] = position;
+        siftDown(0);
+    }
+
+
+    /**
+     * returns the kept tokens in String order
+     * @return sorted tokens
+     */
+    public String[] getSortedTokens() {
+        String[] sortedTokens = Arrays.copyOf(tokens, size);
+        Arrays.sort(sortedTokens);
+        return sortedTokens;
+    }
+
+
+    /**
+     * checks if a token ranks above a heap entry - longer, or as long and seen first
+     * @param length token length
+     * @param position token position
+     * @param index heap index
+     * @return true if the token ranks above the entry
+     */
+    private boolean ranksAbove(int length, int position, int index) {
+        int entryLength = tokens[index].length();
+        return length > entryLength || (length == entryLength && position < positions[index]);
+    }
+
+
+    /**
+     * moves a heap entry up while it ranks below its parent
+     * @param index heap index
+     */
+    private void siftUp(int index) {
+
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+
+            if (!ranksAbove(tokens[parent].length(), positions[parent], index)) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+
+    /**
+     * moves a heap entry down while a child ranks below it
+     * @param index heap index
+     */
+    private void siftDown(int index) {
+
+        while (true) {
+            int child = 2 * index + 1;
+
+            if (child >= size) {
+                break;
+            }
+
+            if (child + 1 < size && ranksAbove(tokens[child].length(), positions[child], child + 1)) {
+                child++;
+            }
+
+            if (!ranksAbove(tokens[index].length(), positions[index], child)) {
+                break;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+
+    /**
+     * swaps two heap entries
+     * @param first heap index
+     * @param second heap index
+     */
+    private void swap(int first, int second) {
+
+        String token = tokens[first];
+        tokens[first] = tokens[second];
+        tokens[second] = token;
+
+        int position = positions[first];
+        positions[first] = positions[second];
+        positions[second] = position;
+    }
+}
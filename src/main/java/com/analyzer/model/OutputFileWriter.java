@@ -0,0 +1,298 @@
+package com.analyzer.model;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+
+/**
+ * writer for analyzer output files - encodes characters straight into a large direct buffer
+ * and writes it through a FileChannel, optionally gzip compressed
+ * replaces PrintWriter(BufferedWriter(FileWriter)), which copies every character through two 8K buffers
+ *
+ * direct buffers are expensive to allocate, so each thread keeps its buffers between files -
+ * output writer threads reuse them for every file they write
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see FileAnalysis
+ */
+public class OutputFileWriter extends Writer {
+
+    //gzip member header - deflate, no flags, no time, unknown OS
+    private static final byte[] GZIP_HEADER = {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF};
+
+    //buffers of the thread's last closed writer, taken while a writer is open so nested writers never share them
+    private static final ThreadLocal<ByteBuffer> ENCODED_BUFFERS = new ThreadLocal<>();
+    private static final ThreadLocal<ByteBuffer> COMPRESSED_BUFFERS = new ThreadLocal<>();
+
+    //private instance variables
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer characters = CharBuffer.allocate(8192);
+    private final ByteBuffer encodedBytes;
+    private final ByteBuffer compressedBytes;
+    private final Deflater deflater;
+    private final CRC32 crc;
+    private long uncompressedSize;
+    private boolean closed;
+
+
+    /**
+     * create a writer that replaces the file
+     * @param outputFilePath file to write
+     * @param bufferSize bytes encoded before each channel write
+     * @param compress true to write a gzip file
+     * @throws IOException if the file cannot be opened
+     */
+    public OutputFileWriter(String outputFilePath, int bufferSize, boolean compress) throws IOException {
+
+        channel = FileChannel.open(Paths.get(outputFilePath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        //same charset and replacement behaviour as FileWriter
+        encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        encodedBytes = takeBuffer(ENCODED_BUFFERS, bufferSize);
+
+        if (compress) {
+            //outputs are written at the end of every analysis, so speed matters more than size
+            deflater = new Deflater(Deflater.BEST_SPEED, true);
+            crc = new CRC32();
+            compressedBytes = takeBuffer(COMPRESSED_BUFFERS, bufferSize);
+            writeBytes(ByteBuffer.wrap(GZIP_HEADER));
+        } else {
+            deflater = null;
+            crc = null;
+            compressedBytes = null;
+        }
+    }
+
+
+    /**
+     * opens a PrintWriter for an output file with the output settings from properties
+     *      output.buffer.size - bytes encoded before each channel write
+     *      output.compress.enabled - gzip the file, its name from getFileName() ends with .gz
+     * @param outputFilePath file to write
+     * @param properties loaded analyzer properties
+     * @return print writer over an OutputFileWriter
+     * @throws IOException if the file cannot be opened
+     */
+    public static PrintWriter open(String outputFilePath, Properties properties) throws IOException {
+
+        int bufferSize = Integer.parseInt(properties.getProperty("output.buffer.size", "1048576"));
+        boolean compress = Boolean.parseBoolean(properties.getProperty("output.compress.enabled"));
+        return new PrintWriter(new OutputFileWriter(outputFilePath, bufferSize, compress));
+    }
+
+
+    /**
+     * names an output file - .gz is appended when outputs are compressed
+     * @param properties loaded analyzer properties
+     * @param fileNameProperty property holding the uncompressed file name, e.g. output.file.summary
+     * @return output file name
+     */
+    public static String getFileName(Properties properties, String fileNameProperty) {
+
+        String fileName = properties.getProperty(fileNameProperty);
+        return Boolean.parseBoolean(properties.getProperty("output.compress.enabled")) ? fileName + ".gz" : fileName;
+    }
+
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+
+        while (length > 0) {
+            int charactersCopied = Math.min(length, characters.remaining());
+            characters.put(buffer, offset, charactersCopied);
+            offset += charactersCopied;
+            length -= charactersCopied;
+
+            if (!characters.hasRemaining()) {
+                encodeCharacters(false);
+            }
+        }
+    }
+
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+
+        int end = offset + length;
+
+        while (offset < end) {
+            int charactersCopied = Math.min(end - offset, characters.remaining());
+            characters.put(text, offset, offset + charactersCopied);
+            offset += charactersCopied;
+
+            if (!characters.hasRemaining()) {
+                encodeCharacters(false);
+            }
+        }
+    }
+
+
+    /**
+     * encodes buffered characters - the file is written as the byte buffer fills, not on every flush,
+     * so PrintWriter's flushes stay cheap
+     * @throws IOException checked in parent function
+     */
+    @Override
+    public void flush() throws IOException {
+        encodeCharacters(false);
+    }
+
+
+    /**
+     * writes the remaining bytes and the gzip trailer, then closes the file and hands the buffers back to the thread
+     * @throws IOException checked in parent function
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            encodeCharacters(true);
+
+            while (encoder.flush(encodedBytes).isOverflow()) {
+                drainEncodedBytes(false);
+            }
+            drainEncodedBytes(true);
+
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+                COMPRESSED_BUFFERS.set(compressedBytes);
+            }
+            ENCODED_BUFFERS.set(encodedBytes);
+            channel.close();
+        }
+    }
+
+
+    /**
+     * moves buffered characters into the byte buffer, writing the byte buffer whenever it fills
+     * an unpaired surrogate at the end is kept for the next call unless the input has ended
+     * @param endOfInput true when no more characters follow
+     * @throws IOException checked in parent function
+     */
+    private void encodeCharacters(boolean endOfInput) throws IOException {
+
+        characters.flip();
+
+        while (true) {
+            CoderResult result = encoder.encode(characters, encodedBytes, endOfInput);
+
+            if (result.isOverflow()) {
+                drainEncodedBytes(false);
+            } else {
+                if (result.isError()) {
+                    result.throwException();
+                }
+                break;
+            }
+        }
+        characters.compact();
+    }
+
+
+    /**
+     * writes the encoded bytes to the file, compressing them first for gzip files
+     * @param finish true for the last call - ends the deflate stream and writes the gzip trailer
+     * @throws IOException checked in parent function
+     */
+    private void drainEncodedBytes(boolean finish) throws IOException {
+
+        encodedBytes.flip();
+
+        if (deflater == null) {
+            writeBytes(encodedBytes);
+            encodedBytes.clear();
+            return;
+        }
+
+        uncompressedSize += encodedBytes.remaining();
+        crc.update(encodedBytes.duplicate());
+        deflater.setInput(encodedBytes);
+
+        while (!deflater.needsInput()) {
+            writeCompressedBytes();
+        }
+
+        if (finish) {
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                writeCompressedBytes();
+            }
+
+            ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) crc.getValue());
+            trailer.putInt((int) uncompressedSize);
+            trailer.flip();
+            writeBytes(trailer);
+        }
+        encodedBytes.clear();
+    }
+
+
+    /**
+     * deflates into the compressed buffer and writes whatever was produced
+     * @throws IOException checked in parent function
+     */
+    private void writeCompressedBytes() throws IOException {
+        deflater.deflate(compressedBytes);
+        compressedBytes.flip();
+        writeBytes(compressedBytes);
+        compressedBytes.clear();
+    }
+
+
+    /**
+     * writes a whole buffer to the channel
+     * @param bytes buffer positioned at the bytes to write
+     * @throws IOException checked in parent function
+     */
+    private void writeBytes(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+
+    /**
+     * takes the thread's cached buffer if it is large enough, otherwise allocates one
+     * @param buffers thread's cached buffer
+     * @param bufferSize minimum size in bytes
+     * @return empty direct buffer, owned by the caller until it is handed back
+     */
+    private static ByteBuffer takeBuffer(ThreadLocal<ByteBuffer> buffers, int bufferSize) {
+
+        ByteBuffer buffer = buffers.get();
+        buffers.remove();
+
+        if (buffer == null || buffer.capacity() < bufferSize) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+}
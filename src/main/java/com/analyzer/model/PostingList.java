@@ -0,0 +1,200 @@
+package com.analyzer.model;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+
+/**
+ * compact list of increasing token positions
+ * each position is stored as the gap from the previous one in a variable length byte encoding,
+ * 7 bits per byte with the high bit marking that more bytes follow - gaps under 128 take a single byte
+ * positions are read back in order with a Cursor without creating Integer objects
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see TokenLocationSearchAnalyzer
+ */
+public final class PostingList {
+
+    //shared by lists that have no positions yet
+    private static final byte[] EMPTY = new byte[0];
+
+    //private instance variables
+    private byte[] encoded;
+    private int byteCount;
+    private int size;
+    private int lastPosition;
+
+
+    /**empty constructor - storage is allocated by the first position*/
+    public PostingList() {
+        encoded = EMPTY;
+    }
+
+
+    /**
+     * appends a position - positions must be added in increasing order
+     * @param position token position, at least the last position added
+     */
+    public void add(int position) {
+
+        int gap = position - lastPosition;
+
+        //a varint is at most 5 bytes
+        if (byteCount + 5 > encoded.length) {
+            encoded = Arrays.copyOf(encoded, Math.max(16, encoded.length * 2));
+        }
+
+        while ((gap & ~0x7F) != 0) {
+            encoded[byteCount++] = (byte) ((gap & 0x7F) | 0x80);
+            gap >>>= 7;
+        }
+        encoded[byteCount++] = (byte) gap;
+
+        lastPosition = position;
+        size++;
+    }
+
+
+    /**
+     * appends the positions of another list, shifted by an offset
+     * @param positions list to append, its first position shifted must not be below this list's last position
+     * @param offset amount added to each position
+     */
+    public void addAll(PostingList positions, int offset) {
+
+        Cursor cursor = positions.cursor();
+
+        while (cursor.hasNext()) {
+            add(cursor.next() + offset);
+        }
+    }
+
+
+    /**
+     * returns number of positions in the list
+     * @return position count
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * checks if the list has no positions
+     * @return true when empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    /**
+     * returns number of bytes used by the encoded positions
+     * @return encoded size in bytes
+     */
+    public int getByteCount() {
+        return byteCount;
+    }
+
+
+    /**
+     * writes the encoded positions as they are stored - read back by InvertedIndex
+     * @param output stream to write to
+     * @throws IOException handled by the caller
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        output.write(encoded, 0, byteCount);
+    }
+
+
+    /**
+     * writes the list to a snapshot - position count, byte count, then the gap encoded positions as they are stored
+     * @param output snapshot output
+     * @throws IOException handled by the caller
+     */
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+        output.writeVarInt(size);
+        output.writeVarInt(byteCount);
+        output.write(encoded, 0, byteCount);
+    }
+
+
+    /**
+     * reads a list written by writeSnapshot()
+     * @param input snapshot input
+     * @return posting list
+     * @throws IOException if the snapshot is cut off
+     */
+    public static PostingList readSnapshot(SnapshotInput input) throws IOException {
+
+        PostingList positions = new PostingList();
+        int positionCount = input.readVarInt();
+        int encodedBytes = input.readVarInt();
+
+        if (encodedBytes > 0) {
+            positions.encoded = new byte[encodedBytes];
+            input.readFully(positions.encoded);
+        }
+        positions.byteCount = encodedBytes;
+        positions.size = positionCount;
+
+        //the last position is only needed to append more positions
+        Cursor cursor = positions.cursor();
+        while (cursor.hasNext()) {
+            positions.lastPosition = cursor.next();
+        }
+        return positions;
+    }
+
+
+    /**
+     * starts reading the positions from the beginning
+     * @return cursor over the positions
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+
+    /**
+     * reads positions in order, decoding one gap per call
+     */
+    public final class Cursor {
+
+        //private instance variables
+        private int byteIndex;
+        private int position;
+
+
+        /**
+         * checks if there are positions left to read
+         * @return true if next() has a position to return
+         */
+        public boolean hasNext() {
+            return byteIndex < byteCount;
+        }
+
+
+        /**
+         * decodes the next position
+         * @return token position
+         */
+        public int next() {
+
+            int gap = 0;
+            int shift = 0;
+            byte current;
+
+            do {
+                current = encoded[byteIndex++];
+                gap |= (current & 0x7F) << shift;
+                shift += 7;
+            } while (current < 0);
+
+            position += gap;
+            return position;
+        }
+    }
+}
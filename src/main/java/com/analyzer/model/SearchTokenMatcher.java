@@ -0,0 +1,260 @@
+package com.analyzer.model;
+import java.util.Collection;
+import java.util.TreeSet;
+
+
+/**
+ * case insensitive multi-term matcher compiled once from the search token list
+ * terms are numbered 0 to size() - 1 in sorted order, match() returns a token's term number or -1
+ *
+ * most tokens are not search terms, so match() rejects them as cheaply as possible:
+ *      1. a bit mask of term lengths
+ *      2. a Bloom filter keyed on the length, first, and last character - no loop over the token, so it only
+ *         rejects tokens whose key belongs to no term
+ *      3. only then the token is hashed and probed in an open-addressing table of case folded terms
+ * nothing is allocated per token and the cost per token stays flat as the term list grows
+ *
+ * the matcher is immutable so one instance is shared by every analyzer and thread of a run
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see TokenLocationSearchAnalyzer
+ */
+public final class SearchTokenMatcher {
+
+    //private instance variables
+    private final String[] terms;
+    private final long lengthMask;
+    private final long[] bloomBits;
+    private final int bloomMask;
+    private final int[] slots;          //term number + 1 for each slot, 0 when empty
+    private final int[] termHashes;
+
+
+    /**
+     * compile a matcher from search tokens
+     * @param searchTokens search tokens - folded to lowercase, blanks and duplicates removed
+     */
+    public SearchTokenMatcher(Collection<String> searchTokens) {
+
+        //fold and sort so term numbers follow output order
+        TreeSet<String> foldedTerms = new TreeSet<>();
+        for (String token : searchTokens) {
+            if (token.length() != 0) {
+                foldedTerms.add(fold(token));
+            }
+        }
+        terms = foldedTerms.toArray(new String[0]);
+
+        //16 filter bits per term and two probes let about 1.5% of the keys that belong to no term pass
+        //the key is just the length, first, and last character, so every token sharing those with a term passes too
+        //and is rejected by the hash table instead
+        int bloomSize = Integer.highestOneBit(Math.max(64, terms.length * 16) - 1) << 1;
+        bloomBits = new long[bloomSize / 64];
+        bloomMask = bloomSize - 1;
+
+        slots = new int[Integer.highestOneBit(Math.max(2, terms.length * 2) - 1) << 2];
+        termHashes = new int[terms.length];
+
+        long mask = 0;
+
+        for (int term = 0; term < terms.length; term++) {
+            String value = terms[term];
+            mask |= lengthBit(value.length());
+
+            int signature = signature(value);
+            int secondProbe = secondProbe(signature);
+            bloomBits[(signature & bloomMask) >>> 6] |= 1L << signature;
+            bloomBits[(secondProbe & bloomMask) >>> 6] |= 1L << secondProbe;
+
+            termHashes[term] = foldedHash(value);
+            insertTerm(term);
+        }
+        lengthMask = mask;
+    }
+
+
+    /**
+     * returns number of distinct search terms
+     * @return term count
+     */
+    public int size() {
+        return terms.length;
+    }
+
+
+    /**
+     * returns a search term
+     * @param term term number
+     * @return lowercase search term
+     */
+    public String getTerm(int term) {
+        return terms[term];
+    }
+
+
+    /**
+     * finds the search term a token matches, ignoring case
+     * @param token token or token view from input file
+     * @return term number, -1 if the token is not a search term
+     */
+    public int match(CharSequence token) {
+
+        int length = token.length();
+
+        //reject on length and on the Bloom filter before reading more than two characters
+        if (length == 0 || (lengthMask & lengthBit(length)) == 0) {
+            return -1;
+        }
+
+        int signature = signature(token);
+
+        if ((bloomBits[(signature & bloomMask) >>> 6] & (1L << signature)) == 0) {
+            return -1;
+        }
+
+        int secondProbe = secondProbe(signature);
+
+        if ((bloomBits[(secondProbe & bloomMask) >>> 6] & (1L << secondProbe)) == 0) {
+            return -1;
+        }
+
+        int hash = foldedHash(token);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        while (slots[slot] != 0) {
+            int term = slots[slot] - 1;
+
+            if (termHashes[term] == hash && foldedEquals(terms[term], token)) {
+                return term;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    /**
+     * places a term in the open-addressing table
+     * @param term term number
+     */
+    private void insertTerm(int term) {
+
+        int mask = slots.length - 1;
+        int slot = termHashes[term] & mask;
+
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = term + 1;
+    }
+
+
+    /**
+     * compares a folded term with a token, folding the token's characters as they are read
+     * @param term lowercase term
+     * @param token token to compare
+     * @return true if they match ignoring case
+     */
+    private static boolean foldedEquals(String term, CharSequence token) {
+
+        if (term.length() != token.length()) {
+            return false;
+        }
+
+        for (int index = 0; index < term.length(); index++) {
+            if (term.charAt(index) != fold(token.charAt(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * builds the Bloom filter key from the length, first, and last character
+     * @param token token to sign
+     * @return first filter position - the low bits address the filter, however large it is
+     */
+    private static int signature(CharSequence token) {
+
+        int length = token.length();
+        int key = (fold(token.charAt(0)) << 16) ^ (fold(token.charAt(length - 1)) << 5) ^ length;
+
+        //multiplicative mix so similar keys land on unrelated bits
+        key *= 0x9E3779B1;
+        return key ^ (key >>> 15);
+    }
+
+
+    /**
+     * derives the second filter position from the first with an independent mix, so both can reach every bit
+     * @param signature first filter position
+     * @return second filter position
+     */
+    private static int secondProbe(int signature) {
+
+        int key = signature * 0x85EBCA6B;
+        key ^= key >>> 13;
+        key *= 0xC2B2AE35;
+        return key ^ (key >>> 16);
+    }
+
+
+    /**
+     * hashes a token's characters after folding them to lowercase
+     * @param token token to hash
+     * @return hash
+     */
+    private static int foldedHash(CharSequence token) {
+
+        int hash = 0;
+
+        for (int index = 0; index < token.length(); index++) {
+            hash = 31 * hash + fold(token.charAt(index));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+
+    /**
+     * returns the length mask bit of a length - lengths of 63 and over share the last bit
+     * @param length token length
+     * @return mask bit
+     */
+    private static long lengthBit(int length) {
+        return 1L << Math.min(length, 63);
+    }
+
+
+    /**
+     * folds a character to lowercase - ASCII letters, the only letters a token holds, skip the table lookup
+     * @param value character
+     * @return lowercase character
+     */
+    private static char fold(char value) {
+
+        if (value < 128) {
+            return value >= 'A' && value <= 'Z' ? (char) (value + 32) : value;
+        }
+        return Character.toLowerCase(value);
+    }
+
+
+    /**
+     * folds a search token to lowercase one character at a time, the same way tokens are folded when matching
+     * @param token search token
+     * @return lowercase token
+     */
+    private static String fold(String token) {
+
+        char[] folded = new char[token.length()];
+
+        for (int index = 0; index < folded.length; index++) {
+            folded[index] = fold(token.charAt(index));
+        }
+        return new String(folded);
+    }
+}
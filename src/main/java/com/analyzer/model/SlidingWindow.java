@@ -0,0 +1,186 @@
+package com.analyzer.model;
+import java.util.Properties;
+import java.util.function.IntConsumer;
+
+
+/**
+ * ring of buckets that a windowed analyzer keeps its data in - tokens go to the head bucket,
+ * and once the ring is full the oldest bucket is expired and reused as the new head, so old data is dropped
+ * a bucket at a time instead of token by token
+ *
+ * the head moves on when it has been the head for windowMillis / bucketCount, or once it holds
+ * windowTokens / bucketCount tokens, whichever comes first - a limit of 0 is never reached
+ * the window therefore covers between bucketCount - 1 and bucketCount bucket spans
+ *
+ * buckets are identified by their slot in the ring, 0 to bucketCount - 1 - the analyzer keeps its
+ * per bucket data in arrays indexed by slot and clears a slot when it is expired
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see WindowedTokenCountsAnalyzer
+ * @see WindowedTokenLocationSearchAnalyzer
+ */
+public final class SlidingWindow {
+
+    //private instance variables
+    private final int bucketCount;
+    private final long bucketMillis;
+    private final long bucketTokens;
+    private final long[] startTimes;
+    private final long[] tokenCounts;
+    private int head;
+    private int size;
+    private long headSequence;
+    private long lastTime = -1;
+
+
+    /**
+     * create a window from follow.window.buckets, follow.window.seconds, and follow.window.tokens
+     * @param properties properties type from CLA properties file
+     */
+    public SlidingWindow(Properties properties) {
+        this(Integer.parseInt(properties.getProperty("follow.window.buckets")),
+                Long.parseLong(properties.getProperty("follow.window.seconds")) * 1000,
+                Long.parseLong(properties.getProperty("follow.window.tokens")));
+    }
+
+
+    /**
+     * create an empty window
+     * @param bucketCount number of buckets in the ring, at least 1
+     * @param windowMillis length of the window in milliseconds, 0 for no time limit
+     * @param windowTokens number of tokens in the window, 0 for no token limit
+     */
+    public SlidingWindow(int bucketCount, long windowMillis, long windowTokens) {
+        this.bucketCount = Math.max(1, bucketCount);
+        this.bucketMillis = windowMillis > 0 ? Math.max(1, windowMillis / this.bucketCount) : 0;
+        this.bucketTokens = windowTokens > 0 ? Math.max(1, (windowTokens + this.bucketCount - 1) / this.bucketCount) : 0;
+        startTimes = new long[this.bucketCount];
+        tokenCounts = new long[this.bucketCount];
+        size = 1;
+    }
+
+
+    /**
+     * returns the number of slots in the ring
+     * @return bucket count
+     */
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+
+    /**
+     * returns the slot of the bucket tokens are added to
+     * @return head slot
+     */
+    public int getHead() {
+        return head;
+    }
+
+
+    /**
+     * returns a number that changes every time a new bucket becomes the head
+     * @return head sequence
+     */
+    public long getHeadSequence() {
+        return headSequence;
+    }
+
+
+    /**
+     * returns the number of tokens added to the head bucket
+     * @return head token count
+     */
+    public long getHeadTokenCount() {
+        return tokenCounts[head];
+    }
+
+
+    /**
+     * returns when the oldest bucket in the window started
+     * @return start time in milliseconds, -1 before the window has been advanced
+     */
+    public long getStartTime() {
+        return lastTime < 0 ? -1 : startTimes[Math.floorMod(head - size + 1, bucketCount)];
+    }
+
+
+    /**
+     * returns the time the window was last advanced to
+     * @return time in milliseconds, -1 before the window has been advanced
+     */
+    public long getEndTime() {
+        return lastTime;
+    }
+
+
+    /**
+     * moves the head on by one bucket for every bucket span that has passed - a window left idle for longer than
+     * its length is emptied, one expiry per slot
+     * @param now current time in milliseconds
+     * @param expire called with each slot that leaves the window, before the slot is reused
+     */
+    public void advance(long now, IntConsumer expire) {
+
+        if (lastTime < 0) {
+            startTimes[head] = now;
+        }
+        lastTime = Math.max(lastTime, now);
+
+        if (bucketMillis == 0) {
+            return;
+        }
+
+        long elapsedBuckets = (lastTime - startTimes[head]) / bucketMillis;
+
+        if (elapsedBuckets <= 0) {
+            return;
+        }
+
+        //the head starts at the last bucket boundary before now
+        long headStart = startTimes[head] + elapsedBuckets * bucketMillis;
+
+        for (long step = Math.min(elapsedBuckets, bucketCount); step > 0; step--) {
+            rotate(startTimes[head] + bucketMillis, expire);
+        }
+        startTimes[head] = headStart;
+    }
+
+
+    /**
+     * counts a token into the head bucket, moving the head on first when it already holds its share of tokens
+     * @param expire called with a slot that leaves the window, before the slot is reused
+     * @return slot the token belongs to
+     */
+    public int addToken(IntConsumer expire) {
+
+        if (bucketTokens > 0 && tokenCounts[head] >= bucketTokens) {
+            rotate(Math.max(lastTime, startTimes[head]), expire);
+        }
+        tokenCounts[head]++;
+        return head;
+    }
+
+
+    /**
+     * makes the next slot the head - the oldest bucket is expired once every slot is in use
+     * @param startTime start time of the new head
+     * @param expire called with the slot before it is reused
+     */
+    private void rotate(long startTime, IntConsumer expire) {
+
+        head = (head + 1) % bucketCount;
+
+        if (size == bucketCount) {
+            expire.accept(head);
+        } else {
+            size++;
+        }
+
+        startTimes[head] = startTime;
+        tokenCounts[head] = 0;
+        headSequence++;
+    }
+}
@@ -0,0 +1,126 @@
+package com.analyzer.model;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+
+
+/**
+ * binary input of analyzer snapshots - reads the varints and token lists written by SnapshotOutput
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see SnapshotOutput
+ * @see AnalysisSnapshot
+ */
+public class SnapshotInput extends DataInputStream {
+
+    //last token read from the current token list
+    private char[] previousToken = new char[64];
+    private int previousLength;
+
+
+    /**
+     * create a snapshot input
+     * @param input stream to read from
+     */
+    public SnapshotInput(InputStream input) {
+        super(input);
+    }
+
+
+    /**
+     * reads a varint that has to fit an int
+     * @return value
+     * @throws IOException if the snapshot is cut off or the value is too large
+     */
+    public int readVarInt() throws IOException {
+
+        long value = readVarLong();
+
+        if (value > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("Snapshot value out of range: " + value);
+        }
+        return (int) value;
+    }
+
+
+    /**
+     * reads a varint
+     * @return value
+     * @throws IOException if the snapshot is cut off or the value is too large
+     */
+    public long readVarLong() throws IOException {
+
+        long value = 0;
+        int shift = 0;
+        int current;
+
+        do {
+            if (shift > 63) {
+                throw new StreamCorruptedException("Snapshot varint too long");
+            }
+            current = readUnsignedByte();
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+
+        return value;
+    }
+
+
+    /**
+     * reads the next token of a token list
+     * @return token, null at the end of the list - the next call starts a new list
+     * @throws IOException if the snapshot is cut off or the entry does not fit the previous token
+     */
+    public String readToken() throws IOException {
+
+        int suffixLength = readVarInt();
+
+        if (suffixLength == 0) {
+            previousLength = 0;
+            return null;
+        }
+
+        int shared = readVarInt();
+
+        if (shared > previousLength || suffixLength > Integer.MAX_VALUE - shared) {
+            throw new StreamCorruptedException("Snapshot token does not follow the previous token");
+        }
+
+        int length = shared + suffixLength;
+
+        if (length > previousToken.length) {
+            char[] grown = new char[Math.max(length, previousToken.length * 2)];
+            System.arraycopy(previousToken, 0, grown, 0, shared);
+            previousToken = grown;
+        }
+
+        for (int index = shared; index < length; index++) {
+            previousToken[index] = (char) readVarInt();
+        }
+        previousLength = length;
+        return new String(previousToken, 0, length);
+    }
+
+
+    /**
+     * skips bytes - unlike skip(), only returns early at the end of the input
+     * @param length number of bytes to skip
+     * @throws IOException if the input ends first
+     */
+    public void skipFully(long length) throws IOException {
+
+        while (length > 0) {
+            long skipped = skip(length);
+
+            if (skipped <= 0) {
+                readUnsignedByte();
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.analyzer.model;
+
+/**
+ * main method for merging analysis snapshots - combines the snapshots named on the command line into one result
+ * written to output.directory, without reading the analyzed files again - the combined snapshot is written to
+ * output.file.merged.snapshot
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see AnalysisSnapshot
+ */
+public class SnapshotMerge {
+
+    /**
+     * main method for snapshot merging
+     * @param args snapshot files, merged in the order given
+     */
+    public static void main(String[] args) {
+
+        //used for tracking program execution time
+        long startTime = System.currentTimeMillis();
+
+        if (args.length == 0) {
+            System.out.println("Please enter the snapshot files to be merged");
+            return;
+        }
+
+        if (new FileAnalysis().mergeSnapshots(args) != null) {
+            System.out.println("Merged " + args.length + " snapshots");
+        }
+
+        double executionDuration = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.println("Execution time: " + executionDuration + " seconds");
+    }
+}
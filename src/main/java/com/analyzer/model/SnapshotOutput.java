@@ -0,0 +1,94 @@
+package com.analyzer.model;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * binary output of analyzer snapshots - adds the encodings the snapshot format is built from to DataOutputStream
+ *      varint - 7 bits per byte, the high bit marking that more bytes follow, the same encoding PostingList uses
+ *      token list - each token as the number of leading characters it shares with the previous token,
+ *                   then the rest of its characters, ended by a 0 - sorted tokens share long prefixes,
+ *                   so most tokens take a few bytes
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see SnapshotInput
+ * @see AnalysisSnapshot
+ */
+public class SnapshotOutput extends DataOutputStream {
+
+    //last token of the current token list
+    private String previousToken = "";
+
+
+    /**
+     * create a snapshot output
+     * @param output stream to write to
+     */
+    public SnapshotOutput(OutputStream output) {
+        super(output);
+    }
+
+
+    /**
+     * writes a non-negative int in 1 - 5 bytes
+     * @param value value to write
+     * @throws IOException checked in parent function
+     */
+    public void writeVarInt(int value) throws IOException {
+        writeVarLong(value);
+    }
+
+
+    /**
+     * writes a non-negative long in 1 - 10 bytes
+     * @param value value to write
+     * @throws IOException checked in parent function
+     */
+    public void writeVarLong(long value) throws IOException {
+
+        while ((value & ~0x7FL) != 0) {
+            write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        write((int) value);
+    }
+
+
+    /**
+     * writes the next token of a token list
+     * the shared prefix stops short of the whole token, so every entry has at least one character of its own
+     * and a suffix length of 0 can end the list
+     * @param token token to write, not empty
+     * @throws IOException checked in parent function
+     */
+    public void writeToken(String token) throws IOException {
+
+        int maximumShared = Math.min(previousToken.length(), token.length() - 1);
+        int shared = 0;
+
+        while (shared < maximumShared && previousToken.charAt(shared) == token.charAt(shared)) {
+            shared++;
+        }
+
+        writeVarInt(token.length() - shared);
+        writeVarInt(shared);
+
+        for (int index = shared; index < token.length(); index++) {
+            writeVarInt(token.charAt(index));
+        }
+        previousToken = token;
+    }
+
+
+    /**
+     * ends the current token list - the next token starts a new list
+     * @throws IOException checked in parent function
+     */
+    public void endTokenList() throws IOException {
+        writeVarInt(0);
+        previousToken = "";
+    }
+}
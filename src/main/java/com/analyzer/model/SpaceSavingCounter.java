@@ -0,0 +1,476 @@
+package com.analyzer.model;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Space-Saving heavy hitter counter - counts the most frequent tokens with a fixed number of counters
+ * a monitored token's counter is incremented, an unmonitored token takes over the smallest counter and adds one to it
+ * any token seen more than total / capacity times is always monitored,
+ * each count is at most its error higher than the true count and never lower
+ *
+ * counters are kept in a min-heap by count and found through an open-addressing table on the token characters,
+ * each counter owns a char array that is reused when the counter changes token, so counting allocates nothing
+ * once the counters are filled
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see TopTokensAnalyzer
+ */
+public class SpaceSavingCounter {
+
+    //private instance variables
+    private final int capacity;
+    private final char[][] tokenCharacters;
+    private final int[] tokenLengths;
+    private final int[] tokenHashes;
+    private final long[] counts;
+    private final long[] errors;
+    private final int[] heap;               //counter numbers ordered as a min-heap by count
+    private final int[] heapPositions;      //heap index of each counter
+    private final int[] slots;              //counter number + 1 for each slot, 0 when empty
+    private int size;
+    private long totalCount;
+
+
+    /**
+     * create an empty counter
+     * @param capacity number of counters
+     */
+    public SpaceSavingCounter(int capacity) {
+        this.capacity = capacity;
+        tokenCharacters = new char[capacity][];
+        tokenLengths = new int[capacity];
+        tokenHashes = new int[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        heap = new int[capacity];
+        heapPositions = new int[capacity];
+        slots = new int[Integer.highestOneBit(Math.max(2, capacity) - 1) << 2];
+    }
+
+
+    /**
+     * returns number of counters
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    /**
+     * returns number of counters in use
+     * @return monitored token count
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * returns number of occurences counted
+     * @return total count
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+
+    /**
+     * returns the most any count can be above the true count - the smallest counter once every counter is in use
+     * @return maximum overcount
+     */
+    public long getMaximumError() {
+        return size < capacity ? 0 : counts[heap[0]];
+    }
+
+
+    /**
+     * counts an occurence of a token
+     * @param token token or token view
+     */
+    public void add(CharSequence token) {
+        add(token, SymbolTable.hash(token), 1, 0);
+    }
+
+
+    /**
+     * counts occurences of a token
+     * @param token token to count
+     * @param hash SymbolTable hash of the token
+     * @param count occurences to add
+     * @param error overcount already carried by the count
+     */
+    private void add(CharSequence token, int hash, long count, long error) {
+
+        totalCount += count;
+
+        int counter = findCounter(token, hash);
+
+        if (counter >= 0) {
+            counts[counter] += count;
+            errors[counter] += error;
+            siftDown(heapPositions[counter]);
+            return;
+        }
+
+        //fill unused counters first, then replace the smallest
+        if (size < capacity) {
+            counter = size++;
+            heap[counter] = counter;
+            heapPositions[counter] = counter;
+            counts[counter] = count;
+            errors[counter] = error;
+            setToken(counter, token, hash);
+            siftUp(counter);
+            return;
+        }
+
+        counter = heap[0];
+        removeSlot(counter);
+        errors[counter] = counts[counter] + error;
+        counts[counter] += count;
+        setToken(counter, token, hash);
+        siftDown(0);
+    }
+
+
+    /**
+     * merges another counter into this one - counts of tokens monitored by both are added,
+     * a token only one side monitors is given the other side's maximum error as count and error,
+     * the largest counters are kept
+     * @param other counter from a later section of the input
+     */
+    public void merge(SpaceSavingCounter other) {
+
+        long thisError = getMaximumError();
+        long otherError = other.getMaximumError();
+        List<MergedCounter> merged = new ArrayList<>(size + other.size());
+        TokenView token = new TokenView();
+
+        for (int counter = 0; counter < size; counter++) {
+            token.set(tokenCharacters[counter], 0, tokenLengths[counter]);
+            int otherCounter = other.findCounter(token, tokenHashes[counter]);
+
+            long count = counts[counter] + (otherCounter >= 0 ? other.counts[otherCounter] : otherError);
+            long error = errors[counter] + (otherCounter >= 0 ? other.errors[otherCounter] : otherError);
+            merged.add(new MergedCounter(token.toString(), count, error));
+        }
+
+        for (int counter = 0; counter < other.size(); counter++) {
+            token.set(other.tokenCharacters[counter], 0, other.tokenLengths[counter]);
+
+            if (findCounter(token, other.tokenHashes[counter]) < 0) {
+                merged.add(new MergedCounter(token.toString(), other.counts[counter] + thisError,
+                        other.errors[counter] + thisError));
+            }
+        }
+
+        merged.sort((first, second) -> Long.compare(second.count, first.count));
+
+        long mergedTotal = totalCount + other.getTotalCount();
+        clear();
+
+        for (int index = 0; index < Math.min(capacity, merged.size()); index++) {
+            MergedCounter mergedCounter = merged.get(index);
+            add(mergedCounter.token, SymbolTable.hash(mergedCounter.token), mergedCounter.count, mergedCounter.error);
+        }
+        totalCount = mergedTotal;
+    }
+
+
+    /**
+     * writes the counter to a snapshot - capacity, total count, then a token list of monitored tokens
+     * in String order, each followed by its count and error
+     * @param output snapshot output
+     * @throws IOException handled by the caller
+     */
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+
+        output.writeVarInt(capacity);
+        output.writeVarLong(totalCount);
+
+        String[] tokens = new String[size];
+        for (int counter = 0; counter < size; counter++) {
+            tokens[counter] = new String(tokenCharacters[counter], 0, tokenLengths[counter]);
+        }
+        Arrays.sort(tokens);
+
+        for (String token : tokens) {
+            int counter = findCounter(token, SymbolTable.hash(token));
+            output.writeToken(token);
+            output.writeVarLong(counts[counter]);
+            output.writeVarLong(errors[counter]);
+        }
+        output.endTokenList();
+    }
+
+
+    /**
+     * reads a counter written by writeSnapshot()
+     * @param input snapshot input
+     * @return counter with the saved capacity and counts
+     * @throws IOException if the snapshot is cut off
+     */
+    public static SpaceSavingCounter readSnapshot(SnapshotInput input) throws IOException {
+
+        SpaceSavingCounter counter = new SpaceSavingCounter(Math.max(1, input.readVarInt()));
+        long savedTotal = input.readVarLong();
+
+        for (String token = input.readToken(); token != null; token = input.readToken()) {
+            counter.add(token, SymbolTable.hash(token), input.readVarLong(), input.readVarLong());
+        }
+        counter.totalCount = savedTotal;
+        return counter;
+    }
+
+
+    /**
+     * returns the monitored tokens with the highest counts, ties in String order
+     * @param limit maximum number of tokens
+     * @return tokens, most frequent first
+     */
+    public String[] getTopTokens(int limit) {
+
+        Integer[] counters = new Integer[size];
+        for (int counter = 0; counter < size; counter++) {
+            counters[counter] = counter;
+        }
+
+        String[] tokens = new String[size];
+        for (int counter = 0; counter < size; counter++) {
+            tokens[counter] = new String(tokenCharacters[counter], 0, tokenLengths[counter]);
+        }
+
+        Arrays.sort(counters, (first, second) -> counts[first] != counts[second]
+                ? Long.compare(counts[second], counts[first])
+                : tokens[first].compareTo(tokens[second]));
+
+        String[] topTokens = new String[Math.min(limit, size)];
+        for (int index = 0; index < topTokens.length; index++) {
+            topTokens[index] = tokens[counters[index]];
+        }
+        return topTokens;
+    }
+
+
+    /**
+     * returns the count of a monitored token
+     * @param token token to look up
+     * @return count, 0 if the token is not monitored
+     */
+    public long getCount(CharSequence token) {
+        int counter = findCounter(token, SymbolTable.hash(token));
+        return counter >= 0 ? counts[counter] : 0;
+    }
+
+
+    /**
+     * returns how much a monitored token's count may be above its true count
+     * @param token token to look up
+     * @return overcount, 0 if the token is not monitored
+     */
+    public long getError(CharSequence token) {
+        int counter = findCounter(token, SymbolTable.hash(token));
+        return counter >= 0 ? errors[counter] : 0;
+    }
+
+
+    /**empties the counter - char arrays are kept for reuse*/
+    private void clear() {
+        Arrays.fill(slots, 0);
+        size = 0;
+        totalCount = 0;
+    }
+
+
+    /**
+     * finds the counter monitoring a token
+     * @param token token to find
+     * @param hash SymbolTable hash of the token
+     * @return counter number, -1 if the token is not monitored
+     */
+    private int findCounter(CharSequence token, int hash) {
+
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        while (slots[slot] != 0) {
+            int counter = slots[slot] - 1;
+
+            if (tokenHashes[counter] == hash && tokenEquals(counter, token)) {
+                return counter;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    /**
+     * copies a token into a counter and adds the counter to the table
+     * @param counter counter number
+     * @param token token to monitor
+     * @param hash SymbolTable hash of the token
+     */
+    private void setToken(int counter, CharSequence token, int hash) {
+
+        int length = token.length();
+
+        if (tokenCharacters[counter] == null || tokenCharacters[counter].length < length) {
+            tokenCharacters[counter] = new char[Math.max(16, length)];
+        }
+
+        for (int index = 0; index < length; index++) {
+            tokenCharacters[counter][index] = token.charAt(index);
+        }
+        tokenLengths[counter] = length;
+        tokenHashes[counter] = hash;
+
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = counter + 1;
+    }
+
+
+    /**
+     * removes a counter from the table - later entries of its probe run are shifted back so lookups still find them
+     * @param counter counter number
+     */
+    private void removeSlot(int counter) {
+
+        int mask = slots.length - 1;
+        int slot = tokenHashes[counter] & mask;
+
+        while (slots[slot] != counter + 1) {
+            slot = (slot + 1) & mask;
+        }
+
+        int emptySlot = slot;
+        slot = (slot + 1) & mask;
+
+        while (slots[slot] != 0) {
+            int home = tokenHashes[slots[slot] - 1] & mask;
+
+            //move the entry back if the empty slot lies between its home slot and its current slot
+            if (((slot - home) & mask) >= ((slot - emptySlot) & mask)) {
+                slots[emptySlot] = slots[slot];
+                emptySlot = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[emptySlot] = 0;
+    }
+
+
+    /**
+     * compares a counter's token with a token character by character
+     * @param counter counter number
+     * @param token token to compare
+     * @return true if the characters match
+     */
+    private boolean tokenEquals(int counter, CharSequence token) {
+
+        int length = tokenLengths[counter];
+
+        if (length != token.length()) {
+            return false;
+        }
+
+        char[] characters = tokenCharacters[counter];
+
+        for (int index = 0; index < length; index++) {
+            if (characters[index] != token.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * moves a heap entry up while it is smaller than its parent
+     * @param position heap index
+     */
+    private void siftUp(int position) {
+
+        int counter = heap[position];
+
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+
+            if (counts[heap[parent]] <= counts[counter]) {
+                break;
+            }
+            heap[position] = heap[parent];
+            heapPositions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = counter;
+        heapPositions[counter] = position;
+    }
+
+
+    /**
+     * moves a heap entry down while it is larger than a child - counts only grow, so this restores the heap
+     * @param position heap index
+     */
+    private void siftDown(int position) {
+
+        int counter = heap[position];
+
+        while (true) {
+            int child = 2 * position + 1;
+
+            if (child >= size) {
+                break;
+            }
+
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+
+            if (counts[counter] <= counts[heap[child]]) {
+                break;
+            }
+            heap[position] = heap[child];
+            heapPositions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = counter;
+        heapPositions[counter] = position;
+    }
+
+
+    /**
+     * token and counts collected while merging two counters
+     */
+    private static final class MergedCounter {
+
+        //private instance variables
+        private final String token;
+        private final long count;
+        private final long error;
+
+
+        /**
+         * create a merged counter
+         * @param token monitored token
+         * @param count combined count
+         * @param error combined overcount
+         */
+        private MergedCounter(String token, long count, long error) {
+            this.token = token;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.analyzer.model;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+
+/**
+ * set of distinct tokens that holds at most a fixed amount of memory
+ * tokens are interned in a SymbolTable of its own, once the table passes the memory budget its tokens are sorted,
+ * written to a temp file as a sorted run, and the table starts over
+ * sorted output is produced by a k-way merge of the runs that drops duplicates, reading one line per run at a time
+ * runs are kept until close() so the set can still be merged into an aggregate after its output is written
+ *
+ * memory use is about the budget for the table plus 8 bytes per token while a run is sorted - runs are sorted
+ * and written straight from the table's characters, no String is created for a token that is spilled
+ * every parallel worker has a set of its own
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see DistinctTokensAnalyzer
+ */
+public class SpillingTokenSet {
+
+    //runs merged at once - more runs are merged in passes so open files stay bounded
+    private static final int MERGE_WIDTH = 64;
+
+    //smaller budgets would spill runs of a handful of tokens
+    private static final long MINIMUM_BUDGET = 1 << 20;
+
+    //private instance variables
+    private final long memoryBudget;
+    private SymbolTable tokens;
+    private final List<Path> runs;
+
+
+    /**
+     * create an empty set
+     * @param memoryBudget bytes the in-memory table may grow to before it is spilled, at least 1MB
+     */
+    public SpillingTokenSet(long memoryBudget) {
+        this.memoryBudget = Math.max(memoryBudget, MINIMUM_BUDGET);
+        tokens = new SymbolTable();
+        runs = new ArrayList<>();
+    }
+
+
+    /**
+     * gives access to the in-memory tokens that have not been spilled yet
+     * @return symbol table of the current run
+     */
+    public SymbolTable getTokens() {
+        return tokens;
+    }
+
+
+    /**
+     * gives access to the sorted runs written so far
+     * @return temp files holding sorted runs
+     */
+    public List<Path> getRuns() {
+        return runs;
+    }
+
+
+    /**
+     * adds a token - spills the table when it passes the memory budget
+     * @param token token or token view
+     */
+    public void add(CharSequence token) {
+
+        tokens.intern(token);
+
+        if (tokens.getMemoryBytes() > memoryBudget) {
+            spill();
+        }
+    }
+
+
+    /**
+     * adds the tokens of another set - its runs are taken over as they are, they are already sorted
+     * @param partialSet set from a later section of the input
+     */
+    public void addAll(SpillingTokenSet partialSet) {
+
+        SymbolTable partialTokens = partialSet.getTokens();
+        TokenView token = new TokenView();
+
+        for (int symbol = 0; symbol < partialTokens.size(); symbol++) {
+            partialTokens.viewSymbol(symbol, token);
+            add(token);
+        }
+
+        runs.addAll(partialSet.getRuns());
+        partialSet.getRuns().clear();
+    }
+
+
+    /**
+     * writes the table's tokens in sorted order to a new run and starts an empty table
+     */
+    public void spill() {
+
+        if (tokens.size() == 0) {
+            return;
+        }
+
+        try {
+            Path run = Files.createTempFile("distinct-tokens", ".run");
+            runs.add(run);
+
+            TokenView token = new TokenView();
+
+            try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+                for (int symbol : tokens.getSortedIds()) {
+                    tokens.viewSymbol(symbol, token);
+                    writer.write(token.getBuffer(), token.getOffset(), token.length());
+                    writer.newLine();
+                }
+            }
+            tokens = new SymbolTable();
+
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+
+    /**
+     * prints every distinct token once in sorted order
+     * @param print printwriter
+     * @throws IOException if a run can't be written or read
+     */
+    public void writeSorted(PrintWriter print) throws IOException {
+        forEachSorted(print::println);
+    }
+
+
+    /**
+     * passes every distinct token once in sorted order
+     * @param consumer receives each token
+     * @throws IOException if a run can't be written or read
+     */
+    public void forEachSorted(Consumer<String> consumer) throws IOException {
+
+        //nothing was spilled - the table is the whole set, each token is resolved only when it is passed on
+        if (runs.isEmpty()) {
+            for (int symbol : tokens.getSortedIds()) {
+                consumer.accept(tokens.getSymbol(symbol));
+            }
+            return;
+        }
+
+        spill();
+
+        //merge in passes until a single merge can read every run
+        while (runs.size() > MERGE_WIDTH) {
+            List<Path> mergeGroup = new ArrayList<>(runs.subList(0, MERGE_WIDTH));
+            runs.subList(0, MERGE_WIDTH).clear();
+
+            Path mergedRun = Files.createTempFile("distinct-tokens", ".run");
+            runs.add(mergedRun);
+
+            try (PrintWriter runWriter = new PrintWriter(Files.newBufferedWriter(mergedRun, StandardCharsets.UTF_8))) {
+                mergeRuns(mergeGroup, runWriter::println);
+            }
+            deleteRuns(mergeGroup);
+        }
+
+        mergeRuns(runs, consumer);
+    }
+
+
+    /**deletes the runs - the set is empty afterwards*/
+    public void close() {
+        deleteRuns(runs);
+        runs.clear();
+        tokens = new SymbolTable();
+    }
+
+
+    /**
+     * k-way merge of sorted runs - a token is printed once no matter how many runs hold it
+     * @param mergeGroup runs to merge
+     * @param consumer receives the merged tokens
+     * @throws IOException if a run can't be read
+     */
+    public void mergeRuns(List<Path> mergeGroup, Consumer<String> consumer) throws IOException {
+
+        PriorityQueue<RunReader> readers = new PriorityQueue<>();
+
+        try {
+            for (Path run : mergeGroup) {
+                RunReader reader = new RunReader(run);
+
+                if (reader.getToken() != null) {
+                    readers.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+
+            String lastToken = null;
+
+            while (!readers.isEmpty()) {
+
+                //out of the queue until it is added back, so it is closed here if the consumer or a read fails
+                RunReader reader = readers.poll();
+                boolean queued = false;
+
+                try {
+                    String token = reader.getToken();
+
+                    if (!token.equals(lastToken)) {
+                        consumer.accept(token);
+                        lastToken = token;
+                    }
+
+                    if (reader.advance()) {
+                        readers.add(reader);
+                        queued = true;
+                    }
+
+                } finally {
+                    if (!queued) {
+                        reader.close();
+                    }
+                }
+            }
+
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+
+    /**
+     * removes run files, a file that can't be deleted now is deleted on exit
+     * @param runFiles runs to delete
+     */
+    private void deleteRuns(List<Path> runFiles) {
+
+        for (Path run : runFiles) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException exception) {
+                run.toFile().deleteOnExit();
+                // exception.printStackTrace();
+            }
+        }
+    }
+
+
+    /**
+     * reads one sorted run a token at a time, ordered by its current token for the merge queue
+     */
+    private static final class RunReader implements Comparable<RunReader> {
+
+        //private instance variables
+        private final BufferedReader reader;
+        private String token;
+
+
+        /**
+         * opens a run and reads its first token
+         * @param run sorted run file
+         * @throws IOException if the run can't be read
+         */
+        private RunReader(Path run) throws IOException {
+            reader = Files.newBufferedReader(run, StandardCharsets.UTF_8);
+
+            try {
+                token = reader.readLine();
+
+            } catch (IOException exception) {
+                reader.close();
+                throw exception;
+            }
+        }
+
+
+        /**
+         * returns the current token
+         * @return token, null once the run is used up
+         */
+        private String getToken() {
+            return token;
+        }
+
+
+        /**
+         * reads the next token
+         * @return false once the run is used up
+         * @throws IOException if the run can't be read
+         */
+        private boolean advance() throws IOException {
+            token = reader.readLine();
+            return token != null;
+        }
+
+
+        /**closes the run file*/
+        private void close() throws IOException {
+            reader.close();
+        }
+
+
+        /**
+         * orders readers by current token
+         * @param other reader to compare with
+         * @return String order of the current tokens
+         */
+        @Override
+        public int compareTo(RunReader other) {
+            return token.compareTo(other.token);
+        }
+    }
+}
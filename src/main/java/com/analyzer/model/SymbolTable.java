@@ -0,0 +1,377 @@
+package com.analyzer.model;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.ObjIntConsumer;
+
+
+/**
+ * run-scoped symbol table - interns each distinct token once and hands out a dense int id (0, 1, 2, ...)
+ * analyzers of one run share a table and keep ids, counts, or bits in primitive arrays instead of their own Strings,
+ * ids are resolved back to strings only when output is written
+ *
+ * a token is found or inserted with one linear probe sequence, entries live in parallel int arrays
+ * and every token's characters are appended to one shared char array
+ * a table is not thread safe - each analyzer set gets its own
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see DistinctTokensAnalyzer
+ * @see DistinctTokenCountsAnalyzer
+ * @see LargestTokensAnalyzer
+ */
+public class SymbolTable {
+
+    //table is resized once it is this full
+    private static final double LOAD_FACTOR = 0.6;
+
+    //private instance variables
+    private int[] slots;            //symbol id + 1 for each slot, 0 when empty
+    private int[] hashes;
+    private int[] symbolOffsets;
+    private int[] symbolLengths;
+    private char[] symbolCharacters;
+    private int symbolCharacterCount;
+    private int size;
+
+
+    /**no arg constructor - initialize an empty table*/
+    public SymbolTable() {
+        slots = new int[1024];
+        hashes = new int[512];
+        symbolOffsets = new int[512];
+        symbolLengths = new int[512];
+        symbolCharacters = new char[4096];
+    }
+
+
+    /**
+     * returns number of interned tokens - ids run from 0 to size() - 1
+     * @return distinct token count
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * returns the memory held by the table's arrays, including unused capacity
+     * @return approximate size in bytes
+     */
+    public long getMemoryBytes() {
+        return 4L * (slots.length + hashes.length + symbolOffsets.length + symbolLengths.length)
+                + 2L * symbolCharacters.length;
+    }
+
+
+    /**
+     * returns a token's id - the token is copied into the table the first time it is seen
+     * @param token token to intern
+     * @return symbol id
+     */
+    public int intern(CharSequence token) {
+
+        int hash = hash(token);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        //probe until the token or an empty slot is found
+        while (slots[slot] != 0) {
+            int symbol = slots[slot] - 1;
+
+            if (hashes[symbol] == hash && symbolEquals(symbol, token)) {
+                return symbol;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int symbol = insertSymbol(token, hash);
+        slots[slot] = symbol + 1;
+
+        if (size > slots.length * LOAD_FACTOR) {
+            resize();
+        }
+        return symbol;
+    }
+
+
+    /**
+     * finds a token's id without interning it
+     * @param token token to find
+     * @return symbol id, -1 if the token was never interned
+     */
+    public int lookup(CharSequence token) {
+
+        int hash = hash(token);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        while (slots[slot] != 0) {
+            int symbol = slots[slot] - 1;
+
+            if (hashes[symbol] == hash && symbolEquals(symbol, token)) {
+                return symbol;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    /**
+     * points a view at the characters of a symbol
+     * @param symbol symbol id
+     * @param view view to reuse
+     */
+    public void viewSymbol(int symbol, TokenView view) {
+        view.set(symbolCharacters, symbolOffsets[symbol], symbolLengths[symbol]);
+    }
+
+
+    /**
+     * returns the length of a symbol without resolving it
+     * @param symbol symbol id
+     * @return token length
+     */
+    public int getLength(int symbol) {
+        return symbolLengths[symbol];
+    }
+
+
+    /**
+     * resolves a symbol back to a new String - used when writing output
+     * @param symbol symbol id
+     * @return token
+     */
+    public String getSymbol(int symbol) {
+        return new String(symbolCharacters, symbolOffsets[symbol], symbolLengths[symbol]);
+    }
+
+
+    /**
+     * resolves a set of symbols to Strings sorted in String order - the sort is split across cores
+     * @param symbols bits set for each symbol id to resolve
+     * @return sorted tokens
+     */
+    public String[] getSortedSymbols(BitSet symbols) {
+
+        String[] tokens = new String[symbols.cardinality()];
+        int index = 0;
+
+        for (int symbol = symbols.nextSetBit(0); symbol >= 0; symbol = symbols.nextSetBit(symbol + 1)) {
+            tokens[index++] = getSymbol(symbol);
+        }
+
+        Arrays.parallelSort(tokens);
+        return tokens;
+    }
+
+
+    /**
+     * resolves a set of symbols and passes each token with its id in String order - the sort is split across cores
+     * writers that print per-symbol values, such as counts, read them by id instead of looking every sorted token
+     * up again, which would touch the whole table in random order
+     * @param symbols bits set for each symbol id to resolve
+     * @param consumer receives each token and its symbol id
+     */
+    public void forEachSortedSymbol(BitSet symbols, ObjIntConsumer<String> consumer) {
+
+        SortedSymbol[] sortedSymbols = new SortedSymbol[symbols.cardinality()];
+        int index = 0;
+
+        for (int symbol = symbols.nextSetBit(0); symbol >= 0; symbol = symbols.nextSetBit(symbol + 1)) {
+            sortedSymbols[index++] = new SortedSymbol(getSymbol(symbol), symbol);
+        }
+
+        Arrays.parallelSort(sortedSymbols);
+
+        for (SortedSymbol sortedSymbol : sortedSymbols) {
+            consumer.accept(sortedSymbol.token, sortedSymbol.symbol);
+        }
+    }
+
+
+    /**
+     * sorts every symbol id by its token in String order, comparing the characters in the table
+     * no String is created - the sort needs 8 bytes per symbol, for the ids and a merge buffer
+     * @return ids of all symbols, in token order
+     */
+    public int[] getSortedIds() {
+
+        int[] ids = new int[size];
+        int[] buffer = new int[size];
+
+        for (int symbol = 0; symbol < size; symbol++) {
+            ids[symbol] = symbol;
+        }
+
+        //bottom-up merge sort, merging runs of width 1, 2, 4, ... back and forth between the two arrays
+        for (int width = 1; width < size; width *= 2) {
+            for (int start = 0; start < size; start += width * 2) {
+                int middle = Math.min(start + width, size);
+                int end = Math.min(start + width * 2, size);
+                int left = start;
+                int right = middle;
+
+                for (int index = start; index < end; index++) {
+                    if (left < middle && (right >= end || compareSymbols(ids[left], ids[right]) <= 0)) {
+                        buffer[index] = ids[left++];
+                    } else {
+                        buffer[index] = ids[right++];
+                    }
+                }
+            }
+
+            int[] merged = buffer;
+            buffer = ids;
+            ids = merged;
+        }
+        return ids;
+    }
+
+
+    /**
+     * compares two symbols character by character, the way String.compareTo() does
+     * @param first symbol id
+     * @param second symbol id
+     * @return negative, zero, or positive as the first token sorts before, equal to, or after the second
+     */
+    private int compareSymbols(int first, int second) {
+
+        int firstOffset = symbolOffsets[first];
+        int secondOffset = symbolOffsets[second];
+        int sharedLength = Math.min(symbolLengths[first], symbolLengths[second]);
+
+        for (int index = 0; index < sharedLength; index++) {
+            int difference = symbolCharacters[firstOffset + index] - symbolCharacters[secondOffset + index];
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return symbolLengths[first] - symbolLengths[second];
+    }
+
+
+    /**
+     * hashes a token's characters - String.hashCode() run through a 32 bit finalizer so nearby hashes spread
+     * across the table, tokens interned in sorted order (such as from a snapshot) differ only in their last
+     * characters and would otherwise fill runs of neighbouring slots
+     * @param token token to hash
+     * @return mixed hash
+     */
+    public static int hash(CharSequence token) {
+
+        int hash = 0;
+
+        for (int index = 0; index < token.length(); index++) {
+            hash = 31 * hash + token.charAt(index);
+        }
+
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+
+
+    /**
+     * compares a symbol with a token character by character
+     * @param symbol symbol id
+     * @param token token to compare
+     * @return true if the characters match
+     */
+    private boolean symbolEquals(int symbol, CharSequence token) {
+
+        int length = symbolLengths[symbol];
+
+        if (length != token.length()) {
+            return false;
+        }
+
+        int offset = symbolOffsets[symbol];
+
+        for (int index = 0; index < length; index++) {
+            if (symbolCharacters[offset + index] != token.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * appends a new symbol and copies the token's characters into symbol storage
+     * @param token new token
+     * @param hash token hash
+     * @return id of the new symbol
+     */
+    private int insertSymbol(CharSequence token, int hash) {
+
+        int length = token.length();
+
+        if (size == hashes.length) {
+            int capacity = size * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            symbolOffsets = Arrays.copyOf(symbolOffsets, capacity);
+            symbolLengths = Arrays.copyOf(symbolLengths, capacity);
+        }
+
+        if (symbolCharacterCount + length > symbolCharacters.length) {
+            symbolCharacters = Arrays.copyOf(symbolCharacters,
+                    Math.max(symbolCharacters.length * 2, symbolCharacterCount + length));
+        }
+
+        for (int index = 0; index < length; index++) {
+            symbolCharacters[symbolCharacterCount + index] = token.charAt(index);
+        }
+
+        int symbol = size++;
+        hashes[symbol] = hash;
+        symbolOffsets[symbol] = symbolCharacterCount;
+        symbolLengths[symbol] = length;
+        symbolCharacterCount += length;
+        return symbol;
+    }
+
+
+    /**doubles the slot table and re-places every symbol using its stored hash*/
+    private void resize() {
+
+        int[] largerSlots = new int[slots.length * 2];
+        int mask = largerSlots.length - 1;
+
+        for (int symbol = 0; symbol < size; symbol++) {
+            int slot = hashes[symbol] & mask;
+
+            while (largerSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            largerSlots[slot] = symbol + 1;
+        }
+        slots = largerSlots;
+    }
+
+
+    /**
+     * resolved token paired with its symbol id, ordered by token
+     */
+    private static final class SortedSymbol implements Comparable<SortedSymbol> {
+
+        //private instance variables
+        private final String token;
+        private final int symbol;
+
+
+        private SortedSymbol(String token, int symbol) {
+            this.token = token;
+            this.symbol = symbol;
+        }
+
+
+        @Override
+        public int compareTo(SortedSymbol other) {
+            return token.compareTo(other.token);
+        }
+    }
+}
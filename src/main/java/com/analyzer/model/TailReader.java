@@ -0,0 +1,225 @@
+package com.analyzer.model;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+
+/**
+ * reads the bytes appended to a file that is still being written, the way tail -F does
+ *      only whole tokens are passed on - the bytes after the last non-word byte are read again on the next call,
+ *      once the token they start is complete
+ *      a file that shrinks was truncated and is read again from its start
+ *      a file replaced by a new one of the same name, such as a rotated log, is read to its end,
+ *      then the new file is followed from its start
+ *      a missing file is waited for and read from its start once it appears
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see FileAnalysis
+ * @see Tokenizer
+ */
+public class TailReader implements Closeable {
+
+    //appended bytes are read and tokenized this many at a time
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    //private instance variables
+    private final Path inputFile;
+    private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final Tokenizer tokenizer = new Tokenizer();
+    private boolean fromStart;
+    private FileChannel channel;
+    private Object fileKey;
+    private long position;
+
+
+    /**
+     * create a reader for a file - nothing is opened until the first read
+     * @param inputFile file to follow
+     * @param fromStart true to read the file's current content first, false to only read what is appended
+     */
+    public TailReader(Path inputFile, boolean fromStart) {
+        this.inputFile = inputFile;
+        this.fromStart = fromStart;
+    }
+
+
+    /**
+     * returns how far into the current file the reader has passed tokens on
+     * @return byte position
+     */
+    public long getPosition() {
+        return position;
+    }
+
+
+    /**
+     * passes on every whole token appended since the last call
+     * @param consumer receives every token view
+     * @return number of bytes read, 0 when there was nothing new
+     * @throws IOException if the file can't be read
+     */
+    public long readAppended(Consumer<TokenView> consumer) throws IOException {
+
+        if (channel == null && !open()) {
+            return 0;
+        }
+
+        long bytesRead = readChannel(consumer);
+
+        //the name now belongs to another file - the old one has been read to its end
+        if (isReplaced()) {
+            close();
+            fromStart = true;
+
+            if (open()) {
+                bytesRead += readChannel(consumer);
+            }
+        }
+        return bytesRead;
+    }
+
+
+    /**
+     * opens the file - the first file opened starts at its end unless it is read from the start
+     * @return false if the file does not exist yet
+     * @throws IOException if the file can't be opened
+     */
+    private boolean open() throws IOException {
+
+        try {
+            channel = FileChannel.open(inputFile, StandardOpenOption.READ);
+
+        } catch (NoSuchFileException fileNotFound) {
+
+            //everything in a file that appears later was written while following
+            fromStart = true;
+            return false;
+        }
+
+        fileKey = Files.readAttributes(inputFile, BasicFileAttributes.class).fileKey();
+        position = fromStart ? 0 : findTokenStart(channel.size());
+        fromStart = true;
+        return true;
+    }
+
+
+    /**
+     * tokenizes the open file from the current position to its last non-word byte
+     * @param consumer receives every token view
+     * @return number of bytes passed on
+     * @throws IOException if the file can't be read
+     */
+    private long readChannel(Consumer<TokenView> consumer) throws IOException {
+
+        long fileSize = channel.size();
+
+        //truncated in place - whatever is there now is new
+        if (fileSize < position) {
+            position = 0;
+        }
+
+        long startPosition = position;
+
+        while (position < fileSize) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), fileSize - position));
+            int bytesRead = channel.read(buffer, position);
+
+            if (bytesRead <= 0) {
+                break;
+            }
+
+            int end = bytesRead;
+            while (end > 0 && Tokenizer.isWordByte(buffer.get(end - 1))) {
+                end--;
+            }
+
+            //a token longer than the buffer is split rather than waited on forever
+            if (end == 0 && bytesRead < buffer.capacity()) {
+                break;
+            }
+            if (end == 0) {
+                end = bytesRead;
+            }
+
+            buffer.flip();
+            buffer.limit(end);
+            tokenizer.tokenize(buffer, consumer);
+            position += end;
+        }
+        return position - startPosition;
+    }
+
+
+    /**
+     * finds where the token being written at a position starts, so following from the end never begins mid-token
+     * @param end position to start following at
+     * @return position after the last non-word byte before end, 0 if there is none
+     * @throws IOException if the file can't be read
+     */
+    private long findTokenStart(long end) throws IOException {
+
+        ByteBuffer probe = ByteBuffer.allocate(256);
+        long start = end;
+
+        while (start > 0) {
+            int probeLength = (int) Math.min(probe.capacity(), start);
+            probe.clear();
+            probe.limit(probeLength);
+
+            if (channel.read(probe, start - probeLength) < probeLength) {
+                return end;
+            }
+
+            for (int index = probeLength - 1; index >= 0; index--) {
+                if (!Tokenizer.isWordByte(probe.get(index))) {
+                    return start - probeLength + index + 1;
+                }
+            }
+            start -= probeLength;
+        }
+        return 0;
+    }
+
+
+    /**
+     * checks if the name now refers to a different file than the one open
+     * @return true if the file was replaced, false if it is the same or the file system has no file keys
+     */
+    private boolean isReplaced() {
+
+        try {
+            Object currentKey = Files.readAttributes(inputFile, BasicFileAttributes.class).fileKey();
+            return fileKey != null && currentKey != null && !Objects.equals(fileKey, currentKey);
+
+        } catch (IOException exception) {
+
+            //removed and not yet recreated - keep the old file until the new one appears
+            return false;
+        }
+    }
+
+
+    /**
+     * closes the open file
+     * @throws IOException checked in parent function
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -1,4 +1,5 @@
 package com.analyzer.model;
+import java.io.IOException;
 
 /**
  * public interface - defines abstract methods called by FileSummaryAnalyzer and DistinctTokensAnalyzer
@@ -20,9 +21,68 @@ public interface TokenAnalyzer {
     public void processToken(String token);
 
 
+    /**
+     * processes a token view from the tokenizer without creating a String
+     * analyzers that only count or measure tokens override this - the default copies the token
+     * @param token reusable view of a token from input file, only valid during this call
+     */
+    public default void processToken(TokenView token) {
+        processToken(token.toString());
+    }
+
+
+    /**
+     * processes a batch of tokens in one call - analyzers override this with a tight loop over the batch
+     * @param batch tokens from input file, only valid during this call
+     */
+    public default void processTokens(TokenBatch batch) {
+        for (int index = 0; index < batch.getSize(); index++) {
+            processToken(batch.getView(index));
+        }
+    }
+
+
     /**
      * generates an output file from input/output paths
      * @param inputFilePath user-entered filepath
      */
     public void generateOutputFile(String inputFilePath);
+
+
+    /**
+     * names the file generateOutputFile writes within output.directory
+     * @return output file name
+     */
+    public String getOutputFileName();
+
+
+    /**
+     * merges the results of a partial analyzer of the same type into this analyzer
+     * partials must be merged in input order - token positions are rebased onto this analyzer's running position
+     * @param partialAnalyzer analyzer holding results for a later section of the input
+     */
+    public void mergeAnalyzer(TokenAnalyzer partialAnalyzer);
+
+
+    /**
+     * writes the analyzer's results to a binary snapshot that readSnapshot() can load back
+     * @param output snapshot output
+     * @throws IOException handled by AnalysisSnapshot
+     */
+    public void writeSnapshot(SnapshotOutput output) throws IOException;
+
+
+    /**
+     * merges the results saved in a snapshot into this analyzer, the same way mergeAnalyzer() merges a partial -
+     * a new analyzer loads the snapshot, an analyzer holding results combines it with them
+     * @param input snapshot input positioned at a snapshot written by the same type of analyzer
+     * @throws IOException handled by AnalysisSnapshot
+     */
+    public void readSnapshot(SnapshotInput input) throws IOException;
+
+
+    /**
+     * releases temp files held for output - called once the analyzer has been written or merged into another
+     */
+    public default void close() {}
 }
\ No newline at end of file
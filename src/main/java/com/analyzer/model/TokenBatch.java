@@ -0,0 +1,157 @@
+package com.analyzer.model;
+
+
+/**
+ * fixed capacity batch of tokens passed to TokenAnalyzer.processTokens()
+ * token characters are copied end to end into one shared array, lengths and positions are kept in parallel int arrays
+ * so analyzers can loop over a few thousand tokens with a single call instead of one call per token
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see TokenAnalyzer
+ * @see TokenBatchDispatcher
+ */
+public final class TokenBatch {
+
+    //private instance variables
+    private char[] characters;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] positions;
+    private final int[] symbols;
+    private SymbolTable symbolTable;
+    private final TokenView view;
+    private int size;
+    private int characterCount;
+
+
+    /**
+     * create an empty batch
+     * @param capacity maximum number of tokens in the batch
+     */
+    public TokenBatch(int capacity) {
+        characters = new char[capacity * 16];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        positions = new int[capacity];
+        symbols = new int[capacity];
+        view = new TokenView();
+    }
+
+
+    /**
+     * copies a token into the batch
+     * @param token token view from the tokenizer
+     * @param position token position within the input, starting at 1
+     */
+    public void add(TokenView token, int position) {
+
+        int tokenLength = token.length();
+
+        //grow character storage when tokens are longer than average
+        if (characterCount + tokenLength > characters.length) {
+            char[] largerCharacters = new char[Math.max(characters.length * 2, characterCount + tokenLength)];
+            System.arraycopy(characters, 0, largerCharacters, 0, characterCount);
+            characters = largerCharacters;
+        }
+
+        System.arraycopy(token.getBuffer(), token.getOffset(), characters, characterCount, tokenLength);
+        offsets[size] = characterCount;
+        lengths[size] = tokenLength;
+        positions[size] = position;
+        symbols[size] = -1;
+
+        characterCount += tokenLength;
+        size++;
+    }
+
+
+    /**
+     * drops the latest token from the batch
+     */
+    public void removeLast() {
+        size--;
+        characterCount = offsets[size];
+    }
+
+
+    /**
+     * checks if another token fits into the batch
+     * @return true when the batch has reached capacity
+     */
+    public boolean isFull() {
+        return size == offsets.length;
+    }
+
+
+    /**empties the batch for reuse - the arrays are kept*/
+    public void clear() {
+        size = 0;
+        characterCount = 0;
+        symbolTable = null;
+    }
+
+
+    /**
+     * returns number of tokens in the batch
+     * @return batch size
+     */
+    public int getSize() {
+        return size;
+    }
+
+
+    /**
+     * returns the length of a token
+     * @param index token index within the batch
+     * @return token length
+     */
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+
+    /**
+     * returns the position of a token within the input
+     * @param index token index within the batch
+     * @return token position, starting at 1
+     */
+    public int getPosition(int index) {
+        return positions[index];
+    }
+
+
+    /**
+     * returns a token's id in a symbol table - the token is interned once per batch and the id is cached,
+     * so every analyzer sharing the table pays for a single probe per token
+     * @param index token index within the batch
+     * @param table symbol table of the analyzer set
+     * @return symbol id
+     */
+    public int getSymbol(int index, SymbolTable table) {
+
+        //ids are cached for the first table that asks during this batch
+        if (symbolTable == null) {
+            symbolTable = table;
+        } else if (symbolTable != table) {
+            return table.intern(getView(index));
+        }
+
+        if (symbols[index] < 0) {
+            symbols[index] = table.intern(getView(index));
+        }
+        return symbols[index];
+    }
+
+
+    /**
+     * points the batch's reusable view at a token - the view is only valid until the next call
+     * @param index token index within the batch
+     * @return view of the token
+     */
+    public TokenView getView(int index) {
+        view.set(characters, offsets[index], lengths[index]);
+        return view;
+    }
+}
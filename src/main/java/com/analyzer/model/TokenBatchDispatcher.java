@@ -0,0 +1,90 @@
+package com.analyzer.model;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+
+/**
+ * collects token views from the tokenizer into a TokenBatch and flushes full batches to every analyzer
+ * numbers tokens as they arrive so analyzers receive each token's position with the batch
+ * an interrupted thread stops at the next flush, so a cancelled analysis ends within one batch
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see TokenBatch
+ * @see Tokenizer
+ */
+public class TokenBatchDispatcher implements Consumer<TokenView> {
+
+    //private instance variables
+    private final Set<TokenAnalyzer> analyzers;
+    private final TokenBatch batch;
+    private int tokenPosition;
+
+
+    /**
+     * create a dispatcher for a set of analyzers
+     * @param analyzers analyzers receiving the batches
+     * @param batchSize number of tokens per batch
+     */
+    public TokenBatchDispatcher(Set<TokenAnalyzer> analyzers, int batchSize) {
+        this.analyzers = analyzers;
+        this.batch = new TokenBatch(batchSize);
+    }
+
+
+    /**
+     * adds a token to the current batch - a full batch is flushed before the next token is added,
+     * so the latest token stays in the batch until then
+     * @param token token view from the tokenizer
+     */
+    @Override
+    public void accept(TokenView token) {
+
+        if (batch.isFull()) {
+            flush();
+        }
+
+        batch.add(token, ++tokenPosition);
+    }
+
+
+    /**
+     * takes back the latest token before it reaches the analyzers - used for a token that may continue
+     * in the next section of the input
+     * @return latest token, null if the current batch is empty
+     */
+    public String removeLastToken() {
+
+        if (batch.getSize() == 0) {
+            return null;
+        }
+
+        String token = batch.getView(batch.getSize() - 1).toString();
+        batch.removeLast();
+        tokenPosition--;
+        return token;
+    }
+
+
+    /**
+     * passes the current batch to each analyzer and empties it - called once more after the last token
+     * @throws CancellationException if the analyzing thread was interrupted
+     */
+    public void flush() {
+
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("analysis interrupted");
+        }
+
+        if (batch.getSize() == 0) {
+            return;
+        }
+
+        for (TokenAnalyzer analyzer : analyzers) {
+            analyzer.processTokens(batch);
+        }
+        batch.clear();
+    }
+}
@@ -1,6 +1,4 @@
 package com.analyzer.model;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Map;
@@ -10,6 +8,8 @@ import java.util.TreeMap;
 
 /**
  * analyzes file to track lengths of tokens and how often they occur
+ * lengths below DENSE_LENGTHS are counted in a primitive array, longer outliers go to an overflow map
+ * the output also lists the mean, p50, p95, p99, and max token length
  * @author mcherry2
  * @version 4.0
  * @since 2025-2-17
@@ -17,14 +17,21 @@ import java.util.TreeMap;
  */
 public class TokenLengthsAnalyzer implements TokenAnalyzer{
 
+    //almost every token is shorter than this - those lengths never touch the overflow map
+    public static final int DENSE_LENGTHS = 64;
+
     //private instance variables
     private Properties properties;
-    private Map<Integer, Integer> distinctTokenLengths;
+    private long[] lengthCounts;
+    private Map<Integer, Long> overflowLengthCounts;
+    private long totalTokens;
+    private long totalLength;
 
 
-    /**no arg constructor - initialize new tree map upon being called*/
+    /**no arg constructor - initialize histogram and overflow tree map upon being called*/
     public TokenLengthsAnalyzer() {
-        distinctTokenLengths = new TreeMap<>();
+        lengthCounts = new long[DENSE_LENGTHS];
+        overflowLengthCounts = new TreeMap<>();
     }
 
 
@@ -39,11 +46,29 @@ public class TokenLengthsAnalyzer implements TokenAnalyzer{
 
 
     /**
-     * gives access to distinctTokensLengths
-     * @return count of distinct tokens
+     * gives access to the counts of lengths below DENSE_LENGTHS
+     * @return counts indexed by token length
+     */
+    public long[] getLengthCounts() {
+        return lengthCounts;
+    }
+
+
+    /**
+     * gives access to the counts of lengths of DENSE_LENGTHS or more
+     * @return sorted map of token length to count
      */
-    public Map<Integer, Integer> getTokenLengths() {
-        return distinctTokenLengths;
+    public Map<Integer, Long> getOverflowLengthCounts() {
+        return overflowLengthCounts;
+    }
+
+
+    /**
+     * returns number of tokens measured
+     * @return total tokens
+     */
+    public long getTotalTokens() {
+        return totalTokens;
     }
 
 
@@ -54,16 +79,134 @@ public class TokenLengthsAnalyzer implements TokenAnalyzer{
      */
     @Override
     public void processToken(String token) {
+        countTokenLength(token.length(), 1);
+    }
 
-        //if token length already exists - target token key and increment value : put new token into map - init to 1
-        if (distinctTokenLengths.containsKey(token.length())) {
-            distinctTokenLengths.put(token.length(), distinctTokenLengths.get(token.length()) + 1);
+
+    /**
+     * processes a token view by length only
+     * @param token token view passed in from input file
+     */
+    @Override
+    public void processToken(TokenView token) {
+        countTokenLength(token.length(), 1);
+    }
+
+
+    /**
+     * processes a batch by token length only
+     * @param batch tokens passed in from input file
+     */
+    @Override
+    public void processTokens(TokenBatch batch) {
+        for (int index = 0; index < batch.getSize(); index++) {
+            countTokenLength(batch.getLength(index), 1);
+        }
+    }
+
+
+    /**
+     * adds to the count of a token length
+     * @param tokenLength length of a token
+     * @param count number of tokens with that length
+     */
+    public void countTokenLength(int tokenLength, long count) {
+
+        //common lengths bump an array slot, outliers are boxed into the overflow map
+        if (tokenLength < DENSE_LENGTHS) {
+            lengthCounts[tokenLength] += count;
         } else {
-            distinctTokenLengths.put(token.length(), 1);
+            overflowLengthCounts.merge(tokenLength, count, Long::sum);
+        }
+
+        totalTokens += count;
+        totalLength += tokenLength * count;
+    }
+
+
+    /**
+     * adds the length counts of a partial analyzer to this analyzer's counts
+     * @param partialAnalyzer TokenLengthsAnalyzer from a later section of the input
+     */
+    @Override
+    public void mergeAnalyzer(TokenAnalyzer partialAnalyzer) {
+        TokenLengthsAnalyzer partial = (TokenLengthsAnalyzer) partialAnalyzer;
+
+        for (int tokenLength = 0; tokenLength < DENSE_LENGTHS; tokenLength++) {
+            if (partial.getLengthCounts()[tokenLength] > 0) {
+                countTokenLength(tokenLength, partial.getLengthCounts()[tokenLength]);
+            }
+        }
+
+        for (Map.Entry<Integer, Long> entry : partial.getOverflowLengthCounts().entrySet()) {
+            countTokenLength(entry.getKey(), entry.getValue());
         }
     }
 
 
+    /**
+     * writes the nonzero length counts to a snapshot - number of lengths,
+     * then each length as the gap from the previous length followed by its count
+     * @param output snapshot output
+     * @throws IOException handled by AnalysisSnapshot
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+
+        int lengthCount = overflowLengthCounts.size();
+        for (long count : lengthCounts) {
+            if (count > 0) {
+                lengthCount++;
+            }
+        }
+        output.writeVarInt(lengthCount);
+
+        int previousLength = 0;
+
+        for (int tokenLength = 0; tokenLength < DENSE_LENGTHS; tokenLength++) {
+            if (lengthCounts[tokenLength] > 0) {
+                output.writeVarInt(tokenLength - previousLength);
+                output.writeVarLong(lengthCounts[tokenLength]);
+                previousLength = tokenLength;
+            }
+        }
+
+        for (Map.Entry<Integer, Long> entry : overflowLengthCounts.entrySet()) {
+            output.writeVarInt(entry.getKey() - previousLength);
+            output.writeVarLong(entry.getValue());
+            previousLength = entry.getKey();
+        }
+    }
+
+
+    /**
+     * adds the length counts of a snapshot to this analyzer's counts
+     * @param input snapshot input
+     * @throws IOException if the snapshot is cut off
+     */
+    @Override
+    public void readSnapshot(SnapshotInput input) throws IOException {
+
+        int lengthCount = input.readVarInt();
+        int tokenLength = 0;
+
+        for (int index = 0; index < lengthCount; index++) {
+            tokenLength += input.readVarInt();
+            countTokenLength(tokenLength, input.readVarLong());
+        }
+    }
+
+
+    /**
+     * names the output file written by generateOutputFile
+     * @return output file name from properties
+     */
+    @Override
+    public String getOutputFileName() {
+        return OutputFileWriter.getFileName(properties, "output.file.token.lengths");
+    }
+
+
     /**
      * generate a formatted output file
      * @param inputFilePath input filepath
@@ -73,9 +216,9 @@ public class TokenLengthsAnalyzer implements TokenAnalyzer{
         
         //reference properties for output directory and file name 
         String directoryFilePath = properties.getProperty("output.directory");
-        String outputFilePath = directoryFilePath + properties.getProperty("output.file.token.lengths");        
+        String outputFilePath = directoryFilePath + getOutputFileName();        
 
-        try (PrintWriter print = new PrintWriter(new BufferedWriter(new FileWriter(outputFilePath)))) {
+        try (PrintWriter print = OutputFileWriter.open(outputFilePath, properties)) {
 
             //prints map key/value pairs
             writeTokenLengths(print);
@@ -92,26 +235,90 @@ public class TokenLengthsAnalyzer implements TokenAnalyzer{
 
 
     /**
-     * loops through map to print key value pairs as a formatted string
+     * loops through the histogram to print length/count pairs as formatted strings, then prints the statistics
+     * percentiles are picked up during the same pass from the running count of tokens
      * @param print printwriter
      * @exception IOException already checked in parent function
      */
     public void writeTokenLengths(PrintWriter print) throws IOException {
 
+        //nearest-rank positions of each percentile
+        long p50Rank = percentileRank(0.50);
+        long p95Rank = percentileRank(0.95);
+        long p99Rank = percentileRank(0.99);
+
+        int p50 = 0;
+        int p95 = 0;
+        int p99 = 0;
+        int maximum = 0;
+        long runningCount = 0;
+
         //intitialize a stringbuilder object
         StringBuilder output = new StringBuilder();
-        
 
-        for (Map.Entry<Integer, Integer> entry : distinctTokenLengths.entrySet()) {
+        for (int tokenLength = 0; tokenLength < DENSE_LENGTHS; tokenLength++) {
+            long count = lengthCounts[tokenLength];
 
-            //build string by appending key, tab, and value
-            output.append(entry.getKey());
-            output.append("\t");
-            output.append(entry.getValue());
+            if (count > 0) {
+                writeLengthCount(print, output, tokenLength, count);
 
-            //print completed string, reset string for next key/value pair
-            print.println(output.toString());
-            output.setLength(0);
+                p50 = runningCount < p50Rank ? tokenLength : p50;
+                p95 = runningCount < p95Rank ? tokenLength : p95;
+                p99 = runningCount < p99Rank ? tokenLength : p99;
+                maximum = tokenLength;
+                runningCount += count;
+            }
         }
+
+        for (Map.Entry<Integer, Long> entry : overflowLengthCounts.entrySet()) {
+            int tokenLength = entry.getKey();
+            writeLengthCount(print, output, tokenLength, entry.getValue());
+
+            p50 = runningCount < p50Rank ? tokenLength : p50;
+            p95 = runningCount < p95Rank ? tokenLength : p95;
+            p99 = runningCount < p99Rank ? tokenLength : p99;
+            maximum = tokenLength;
+            runningCount += entry.getValue();
+        }
+
+        double mean = totalTokens == 0 ? 0 : (double) totalLength / totalTokens;
+
+        //statistics follow the histogram after an empty line
+        print.println();
+        print.println("Mean\t" + String.format("%.2f", mean));
+        print.println("P50\t" + p50);
+        print.println("P95\t" + p95);
+        print.println("P99\t" + p99);
+        print.println("Max\t" + maximum);
+    }
+
+
+    /**
+     * prints one length/count pair
+     * @param print printwriter
+     * @param output reusable stringbuilder
+     * @param tokenLength token length
+     * @param count number of tokens with that length
+     */
+    public void writeLengthCount(PrintWriter print, StringBuilder output, int tokenLength, long count) {
+
+        //build string by appending key, tab, and value
+        output.append(tokenLength);
+        output.append("\t");
+        output.append(count);
+
+        //print completed string, reset string for next key/value pair
+        print.println(output.toString());
+        output.setLength(0);
+    }
+
+
+    /**
+     * finds how many tokens must be counted before a percentile is reached
+     * @param percentile fraction between 0 and 1
+     * @return nearest-rank position, at least 1
+     */
+    public long percentileRank(double percentile) {
+        return Math.max(1, (long) Math.ceil(percentile * totalTokens));
     }
 }
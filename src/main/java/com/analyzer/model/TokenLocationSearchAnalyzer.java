@@ -1,39 +1,42 @@
 package com.analyzer.model;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Properties;
-import java.util.TreeMap;
 
 
 /**
  * searches file for matches with keywords and records their token positions
  * keywords are aquired by opening/reading config/search-tokens.txt (path is found via properties file)
- *      SEARCH tokens are CASE INSENSITIVE - search tokens are added as lowercase and processed tokens are .toLowerCase()
+ *      SEARCH tokens are CASE INSENSITIVE - search tokens are compiled lowercase into a SearchTokenMatcher,
+ *      which folds input tokens as it compares them instead of copying them with .toLowerCase()
+ * found positions are kept gap encoded in a PostingList per search token, usually one byte per match
  * @author mcherry2
  * @version 4.0
  * @since 2025-2-17
  * @see TokenAnalyzer
+ * @see SearchTokenMatcher
+ * @see PostingList
  */
 public class TokenLocationSearchAnalyzer implements TokenAnalyzer {
 
     //private instance variables
     private Properties properties;
-    private Map<String, List<Integer>> foundLocations;
+    private SearchTokenMatcher matcher;
+    private List<PostingList> foundLocations;     //indexed by matcher term number
+    private List<String> loadedSearchTokens;
     private int currentTokenLocation;
 
 
-    /**no arg constructor - initialize TreeMap and current location*/
+    /**no arg constructor - initialize an empty matcher and current location*/
     public TokenLocationSearchAnalyzer() {
-        foundLocations = new TreeMap<>();
+        loadedSearchTokens = new ArrayList<>();
+        setMatcher(new SearchTokenMatcher(loadedSearchTokens));
         currentTokenLocation = 0;
     }
 
@@ -46,21 +49,66 @@ public class TokenLocationSearchAnalyzer implements TokenAnalyzer {
         this();
         this.properties = properties;
         openSearchFile(properties);     //obtain search tokens
+        setMatcher(new SearchTokenMatcher(loadedSearchTokens));
+    }
+
+
+    /**
+     * constructor to set properties values with a matcher that was already compiled
+     * @param properties properties type from CLA properties file
+     * @param matcher search tokens compiled by another analyzer - shared, never modified
+     */
+    public TokenLocationSearchAnalyzer(Properties properties, SearchTokenMatcher matcher) {
+        this();
+        this.properties = properties;
+        setMatcher(matcher);
+    }
+
+
+    /**
+     * sets the matcher and creates an empty location list for each of its terms
+     * @param matcher compiled search tokens
+     */
+    private void setMatcher(SearchTokenMatcher matcher) {
+        this.matcher = matcher;
+        foundLocations = new ArrayList<>(matcher.size());
+
+        for (int term = 0; term < matcher.size(); term++) {
+            foundLocations.add(new PostingList());
+        }
     }
 
 
     /**
      * gives access to foundLocations
-     * @return count of distinct tokens
+     * @return found positions indexed by matcher term number
      */
-    public Map<String, List<Integer>> getFoundLocations() {
+    public List<PostingList> getFoundLocations() {
         return foundLocations;
     }
 
 
+    /**
+     * gives access to the search tokens compiled from the search file
+     * @return search token matcher
+     */
+    public SearchTokenMatcher getMatcher() {
+        return matcher;
+    }
+
+
+    /**
+     * gives access to the running token position
+     * @return number of tokens processed so far
+     */
+    public int getCurrentTokenLocation() {
+        return currentTokenLocation;
+    }
+
+
     /**
      * subprocess to open search file from properties
-     * adds tokens found from search file into foundLocations instance map
+     * collects tokens found from search file to be compiled into the matcher
      * @param properties properties
      */
     public final void openSearchFile(Properties properties) {
@@ -73,7 +121,7 @@ public class TokenLocationSearchAnalyzer implements TokenAnalyzer {
 
         try (BufferedReader reader = new BufferedReader(inputStreamReader)) {
 
-            //retrieves tokens from file - enters values into instance map as keys
+            //retrieves tokens from file - collects them for the matcher
             retrieveSearchTokens(reader);
 
         } catch (FileNotFoundException fileNotFound) {
@@ -92,7 +140,7 @@ public class TokenLocationSearchAnalyzer implements TokenAnalyzer {
 
 
     /**
-     * adds values from search file into instance map as keys - initializes ArrayList for key values to be added later
+     * collects values from search file - the matcher is compiled once they are all read
      * @param reader reader object 
      * @throws IOException checked in parent function
      */
@@ -101,28 +149,27 @@ public class TokenLocationSearchAnalyzer implements TokenAnalyzer {
         while (reader.ready()) {
             String token = reader.readLine();
 
-            //filters out empty tokens and adds tokens to foundLocations
+            //filters out empty tokens and collects the rest
             addSearchTokens(token);
         }
     }
 
 
     /**
-     * adds tokens to foundLocations map as keys, initialize list for values
+     * collects a search token for the matcher
      * filters out blank values
      * @param token tokens passed in from search file
      */
     public void addSearchTokens(String token) {
 
             if (token.length() != 0) {
-                token = token.toLowerCase();
-                foundLocations.put(token, new ArrayList<>());
+                loadedSearchTokens.add(token.toLowerCase());
             }
     }
 
 
     /**
-     * processes tokens if they are contained in foundLocations as a key - else does nothing
+     * processes tokens if they match a search token - else does nothing
      * keeps a running count to track overall position in the input file
      * @param token token passed in from input file
      */
@@ -132,15 +179,130 @@ public class TokenLocationSearchAnalyzer implements TokenAnalyzer {
         //increments before conditions to mark stepping into a new line
         currentTokenLocation++; 
 
-        token = token.toLowerCase();
+        //find matching tokens and add their position to matching term's list if so 
+        int term = matcher.match(token);
+
+        if (term >= 0) {
+            foundLocations.get(term).add(currentTokenLocation);
+        }
+    }
+
+
+    /**
+     * processes token views - the matcher compares case insensitively without copying the token
+     * @param token token view passed in from input file
+     */
+    @Override
+    public void processToken(TokenView token) {
 
-        //find matching tokens and add their position to matching key's list if so 
-        if (foundLocations.containsKey(token)) {
-            foundLocations.get(token).add(currentTokenLocation);
+        currentTokenLocation++;
+
+        int term = matcher.match(token);
+
+        if (term >= 0) {
+            foundLocations.get(term).add(currentTokenLocation);
         }
     }
 
 
+    /**
+     * processes a batch - matches are recorded at the positions carried by the batch
+     * @param batch tokens passed in from input file
+     */
+    @Override
+    public void processTokens(TokenBatch batch) {
+
+        int batchSize = batch.getSize();
+
+        for (int index = 0; index < batchSize; index++) {
+            int term = matcher.match(batch.getView(index));
+
+            if (term >= 0) {
+                foundLocations.get(term).add(batch.getPosition(index));
+            }
+        }
+
+        if (batchSize > 0) {
+            currentTokenLocation = batch.getPosition(batchSize - 1);
+        }
+    }
+
+
+    /**
+     * merges the found locations of a partial analyzer
+     * partial positions start over at 1 - they are rebased by the number of tokens this analyzer has already seen
+     * @param partialAnalyzer TokenLocationSearchAnalyzer from the next section of the input
+     */
+    @Override
+    public void mergeAnalyzer(TokenAnalyzer partialAnalyzer) {
+        TokenLocationSearchAnalyzer partial = (TokenLocationSearchAnalyzer) partialAnalyzer;
+        SearchTokenMatcher partialMatcher = partial.getMatcher();
+
+        for (int partialTerm = 0; partialTerm < partialMatcher.size(); partialTerm++) {
+
+            //term numbers only line up when both analyzers share a matcher
+            int term = partialMatcher == matcher ? partialTerm : matcher.match(partialMatcher.getTerm(partialTerm));
+
+            if (term >= 0) {
+                foundLocations.get(term).addAll(partial.getFoundLocations().get(partialTerm), currentTokenLocation);
+            }
+        }
+        currentTokenLocation += partial.getCurrentTokenLocation();
+    }
+
+
+    /**
+     * writes the running token position and a token list of the search tokens to a snapshot,
+     * each followed by its found positions
+     * @param output snapshot output
+     * @throws IOException handled by AnalysisSnapshot
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+
+        output.writeVarInt(currentTokenLocation);
+
+        for (int term = 0; term < matcher.size(); term++) {
+            output.writeToken(matcher.getTerm(term));
+            foundLocations.get(term).writeSnapshot(output);
+        }
+        output.endTokenList();
+    }
+
+
+    /**
+     * adds the found positions of a snapshot, rebased like a partial analyzer's
+     * positions of search tokens this analyzer does not search for are dropped
+     * @param input snapshot input
+     * @throws IOException if the snapshot is cut off
+     */
+    @Override
+    public void readSnapshot(SnapshotInput input) throws IOException {
+
+        int savedTokenLocation = input.readVarInt();
+
+        for (String searchToken = input.readToken(); searchToken != null; searchToken = input.readToken()) {
+            PostingList savedLocations = PostingList.readSnapshot(input);
+            int term = matcher.match(searchToken);
+
+            if (term >= 0) {
+                foundLocations.get(term).addAll(savedLocations, currentTokenLocation);
+            }
+        }
+        currentTokenLocation += savedTokenLocation;
+    }
+
+
+    /**
+     * names the output file written by generateOutputFile
+     * @return output file name from properties
+     */
+    @Override
+    public String getOutputFileName() {
+        return OutputFileWriter.getFileName(properties, "output.file.token.search.locations");
+    }
+
+
     /**
      * generate a formatted output file
      * @param inputFilePath input filepath
@@ -150,10 +312,10 @@ public class TokenLocationSearchAnalyzer implements TokenAnalyzer {
         
         //reference properties for output directory and file name
         String directoryFilePath = properties.getProperty("output.directory");
-        String outputFilePath = directoryFilePath + properties.getProperty("output.file.token.search.locations");
+        String outputFilePath = directoryFilePath + getOutputFileName();
         
 
-        try (PrintWriter print = new PrintWriter(new BufferedWriter(new FileWriter(outputFilePath)))) {
+        try (PrintWriter print = OutputFileWriter.open(outputFilePath, properties)) {
 
             //prints a formatted output
             writeTokenLocations(print);
@@ -170,54 +332,56 @@ public class TokenLocationSearchAnalyzer implements TokenAnalyzer {
 
 
     /**
-     * loops through map to print key value pairs
+     * loops through search terms in sorted order to print key value pairs
      * @param print printwriter object
      * @exception IOException already checked in parent function
      */
     public void writeTokenLocations(PrintWriter print) throws IOException {
 
-        for (Map.Entry<String, List<Integer>> entry : foundLocations.entrySet()) {
-            formatOutput(entry, print);
+        for (int term = 0; term < matcher.size(); term++) {
+            formatOutput(matcher.getTerm(term), foundLocations.get(term), print);
         }
     }
     
 
     /**
      * builds output string - creates string framework and includes foundPosition values if they exist
-     * @param entry map of search keys and values
+     * @param searchToken search key
+     * @param locations found positions of the search key
      * @param print printwriter object
      */
-    public void formatOutput(Map.Entry<String, List<Integer>> entry, PrintWriter print) {
+    public void formatOutput(String searchToken, PostingList locations, PrintWriter print) {
 
         StringBuilder output = new StringBuilder();
 
-        output.append(entry.getKey());
+        output.append(searchToken);
         output.append(" =");
 
         print.println(output);
         print.println();
 
         //if search tokens are found/exist, append their values and a new line for space
-        if (!entry.getValue().isEmpty()) {
-            printFoundLocationValues(entry, print);
+        if (!locations.isEmpty()) {
+            printFoundLocationValues(locations, print);
             print.println();
         }
     }
 
 
     /**
-     * loops through foundLocation key value list and prints items as formatted strings
-     * @param entry foundLocations map
+     * decodes a search key's positions one at a time and prints them as formatted strings
+     * @param locations found positions of a search key
      * @param print printwriter object
      */
-    public void printFoundLocationValues(Map.Entry<String, List<Integer>> entry, PrintWriter print) {
+    public void printFoundLocationValues(PostingList locations, PrintWriter print) {
 
         //reference column limit from properties file
         final String STRING_LIMIT = properties.getProperty("location.search.line.limit");
         final int LINE_LIMIT = Integer.parseInt(STRING_LIMIT);
         
         //key values of foundLocations
-        final List<Integer> LOCATIONS = entry.getValue();
+        final PostingList LOCATIONS = locations;
+        PostingList.Cursor cursor = LOCATIONS.cursor();
         
 
         //instantiate stringbuilder object for output
@@ -228,14 +392,15 @@ public class TokenLocationSearchAnalyzer implements TokenAnalyzer {
         int loopCounter = 0;
 
         
-        for (int item : LOCATIONS) {
+        while (cursor.hasNext()) {
+            int item = cursor.next();
 
             /*
                 used for tracking newLine conditions for wordwrap
                 >= instead of > : > was causing some lines to go to 81 characters with a space at the end
+                length of item + ", " counted from its digits, so no String is built just to measure it
             */
-            String currentValue = item + ", ";
-            int currentValueLength = currentValue.length();
+            int currentValueLength = countDigits(item) + 2;
        
 
             //prints an empty line when length limit reached - returns updated lineLengthTracker
@@ -258,6 +423,23 @@ public class TokenLocationSearchAnalyzer implements TokenAnalyzer {
     }
 
 
+    /**
+     * counts the decimal digits of a found position
+     * @param value found position, never negative
+     * @return number of digits
+     */
+    public int countDigits(int value) {
+
+        int digits = 1;
+
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+
     /**
      * prints an empty line for key list values after exceeding line length limit
      * @param LINE_LIMIT line limit loaded from properties
@@ -279,17 +461,17 @@ public class TokenLocationSearchAnalyzer implements TokenAnalyzer {
 
     /**
      * formats found positions into strings with commas - avoids trailing comma
-     * @param LOCATIONS integer list for found positions of map keys/search words
+     * @param LOCATIONS posting list for found positions of search words
      * @param item iterator of foundLocations
      * @param loopCounter running loopcounter for position location
      * @param print printwriter object
      * @param output StringBuilder object
      * @return formatted string
      */
-    public StringBuilder insertFoundPositions(final List<Integer> LOCATIONS, int item, int loopCounter,
+    public StringBuilder insertFoundPositions(final PostingList LOCATIONS, int item, int loopCounter,
             PrintWriter print, StringBuilder output) {
         
-        output.append(String.valueOf(item));
+        output.append(item);
 
         //adds commas to all values except final value
         if (loopCounter != (LOCATIONS.size() -1)) {
@@ -0,0 +1,101 @@
+package com.analyzer.model;
+
+
+/**
+ * reusable view of a token inside a tokenizer buffer
+ * the view is only valid during the processToken() call it is passed to - the tokenizer overwrites it
+ * for the next token, analyzers that keep a token must store toString()
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see Tokenizer
+ * @see TokenAnalyzer
+ */
+public final class TokenView implements CharSequence {
+
+    //private instance variables
+    private char[] buffer;
+    private int offset;
+    private int length;
+
+
+    /**empty constructor - view starts out empty*/
+    public TokenView() {
+        buffer = new char[0];
+    }
+
+
+    /**
+     * points the view at a new token
+     * @param buffer characters holding the token
+     * @param offset index of the first token character
+     * @param length number of token characters
+     */
+    public void set(char[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+
+    /**
+     * gives access to the backing buffer for analyzers that scan characters directly
+     * @return buffer holding the token
+     */
+    public char[] getBuffer() {
+        return buffer;
+    }
+
+
+    /**
+     * gives access to the token start within the buffer
+     * @return index of the first token character
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+
+    /**
+     * returns number of characters in the token
+     * @return token length
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+
+    /**
+     * returns a character of the token
+     * @param index position within the token
+     * @return token character
+     */
+    @Override
+    public char charAt(int index) {
+        return buffer[offset + index];
+    }
+
+
+    /**
+     * copies part of the token into a new String
+     * @param start first index, inclusive
+     * @param end last index, exclusive
+     * @return new String of the characters
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(buffer, offset + start, end - start);
+    }
+
+
+    /**
+     * copies the token into a new String - only called when an analyzer stores the token
+     * @return token as a String
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, offset, length);
+    }
+}
@@ -0,0 +1,166 @@
+package com.analyzer.model;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+
+/**
+ * hand-written scanning tokenizer - replaces String.split("\\W") on every line
+ * tokens are runs of word characters, the same characters as the regex class \w: [a-zA-Z_0-9]
+ * every other character (line breaks, punctuation, whitespace, non-ASCII) ends the current token
+ *
+ * the tokenizer reads into one reusable buffer and hands out one reusable TokenView,
+ * so no String or array is created per line or per token
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see TokenView
+ * @see FileAnalysis
+ */
+public class Tokenizer {
+
+    //private instance variables
+    private char[] buffer;
+    private final TokenView view;
+
+
+    /**no arg constructor - initialize a 64K character buffer*/
+    public Tokenizer() {
+        this(65536);
+    }
+
+
+    /**
+     * create a Tokenizer w/an initial buffer size - the buffer grows if a single token is larger
+     * @param bufferSize initial buffer size in characters
+     */
+    public Tokenizer(int bufferSize) {
+        buffer = new char[bufferSize];
+        view = new TokenView();
+    }
+
+
+    /**
+     * checks if a character belongs to a token
+     * @param value character from the input
+     * @return true for [a-zA-Z_0-9]
+     */
+    public static boolean isWordCharacter(char value) {
+        return (value >= 'a' && value <= 'z')
+                || (value >= 'A' && value <= 'Z')
+                || (value >= '0' && value <= '9')
+                || value == '_';
+    }
+
+
+    /**
+     * checks if a byte belongs to a token
+     * multi-byte characters only use bytes above 0x7F so they separate tokens the same way \W does
+     * @param value byte from the input
+     * @return true for [a-zA-Z_0-9]
+     */
+    public static boolean isWordByte(byte value) {
+        return value >= 0 && isWordCharacter((char) value);
+    }
+
+
+    /**
+     * reads characters in large blocks and passes each token to the consumer
+     * a token that runs past the end of a block is moved to the front of the buffer before the next read
+     * @param reader input reader
+     * @param consumer receives every token view
+     * @throws IOException checked in parent function
+     */
+    public void tokenize(Reader reader, Consumer<TokenView> consumer) throws IOException {
+
+        int filled = 0;         //number of valid characters in buffer
+        int tokenStart = -1;    //start of the token being scanned, -1 between tokens
+
+        while (true) {
+
+            //a token filling the whole buffer needs more room before reading on
+            if (filled == buffer.length) {
+                char[] largerBuffer = new char[buffer.length * 2];
+                System.arraycopy(buffer, 0, largerBuffer, 0, filled);
+                buffer = largerBuffer;
+            }
+
+            int charactersRead = reader.read(buffer, filled, buffer.length - filled);
+
+            if (charactersRead < 0) {
+                break;
+            }
+
+            int end = filled + charactersRead;
+
+            for (int index = filled; index < end; index++) {
+
+                if (isWordCharacter(buffer[index])) {
+                    if (tokenStart < 0) {
+                        tokenStart = index;
+                    }
+
+                } else if (tokenStart >= 0) {
+                    view.set(buffer, tokenStart, index - tokenStart);
+                    consumer.accept(view);
+                    tokenStart = -1;
+                }
+            }
+
+            //carry a partial token over to the front of the buffer
+            if (tokenStart >= 0) {
+                filled = end - tokenStart;
+                System.arraycopy(buffer, tokenStart, buffer, 0, filled);
+                tokenStart = 0;
+            } else {
+                filled = 0;
+            }
+        }
+
+        //final token when the input does not end on a non-word character
+        if (tokenStart >= 0) {
+            view.set(buffer, tokenStart, filled - tokenStart);
+            consumer.accept(view);
+        }
+    }
+
+
+    /**
+     * scans bytes of an ASCII compatible input and passes each token to the consumer
+     * word bytes are widened straight into the reusable buffer
+     * @param input bytes to tokenize, read from position to limit
+     * @param consumer receives every token view
+     */
+    public void tokenize(ByteBuffer input, Consumer<TokenView> consumer) {
+
+        int tokenLength = 0;
+
+        while (input.hasRemaining()) {
+            byte value = input.get();
+
+            if (isWordByte(value)) {
+
+                //grow token storage for unusually long tokens
+                if (tokenLength == buffer.length) {
+                    char[] largerBuffer = new char[buffer.length * 2];
+                    System.arraycopy(buffer, 0, largerBuffer, 0, tokenLength);
+                    buffer = largerBuffer;
+                }
+                buffer[tokenLength++] = (char) value;
+
+            } else if (tokenLength > 0) {
+                view.set(buffer, 0, tokenLength);
+                consumer.accept(view);
+                tokenLength = 0;
+            }
+        }
+
+        //final token when the input does not end on a non-word byte
+        if (tokenLength > 0) {
+            view.set(buffer, 0, tokenLength);
+            consumer.accept(view);
+        }
+    }
+}
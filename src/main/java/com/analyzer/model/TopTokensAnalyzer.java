@@ -0,0 +1,187 @@
+package com.analyzer.model;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Properties;
+
+
+/**
+ * finds the most frequent tokens with a fixed amount of memory, no matter how many distinct tokens the file holds
+ * counts come from a SpaceSavingCounter of max(top.tokens.count, 1 / top.tokens.error) counters, at most MAXIMUM_COUNTERS,
+ * a count is never below the true count and at most error * total tokens above it
+ * output lists top.tokens.count tokens, most frequent first, followed by the largest possible overcount
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see TokenAnalyzer
+ * @see SpaceSavingCounter
+ */
+public class TopTokensAnalyzer implements TokenAnalyzer {
+
+    //counters are about 100 bytes each - an error below 1 / MAXIMUM_COUNTERS is not honored
+    public static final int MAXIMUM_COUNTERS = 1 << 20;
+
+    //private instance variables
+    private Properties properties;
+    private int topTokensCount;
+    private SpaceSavingCounter counter;
+
+
+    /**
+     * create TopTokensAnalyzer object sized from properties
+     * @param properties properties type from CLA properties file
+     * @throws IllegalArgumentException if top.tokens.error is not between 0 and 1, or top.tokens.count is negative
+     */
+    public TopTokensAnalyzer(Properties properties) {
+        this.properties = properties;
+        topTokensCount = Integer.parseInt(properties.getProperty("top.tokens.count"));
+
+        double error = Double.parseDouble(properties.getProperty("top.tokens.error"));
+
+        //also rejects NaN, which fails both comparisons
+        if (!(error > 0 && error < 1)) {
+            throw new IllegalArgumentException("top.tokens.error must be greater than 0 and less than 1");
+        }
+        if (topTokensCount < 0) {
+            throw new IllegalArgumentException("top.tokens.count can't be negative");
+        }
+
+        //sized in double so a tiny error is capped instead of overflowing the int capacity
+        int capacity = (int) Math.min(MAXIMUM_COUNTERS, Math.max(topTokensCount, Math.ceil(1 / error)));
+        counter = new SpaceSavingCounter(capacity);
+    }
+
+
+    /**
+     * gives access to the heavy hitter counter
+     * @return space saving counter
+     */
+    public SpaceSavingCounter getCounter() {
+        return counter;
+    }
+
+
+    /**
+     * counts a token
+     * @param token token passed in from input file
+     */
+    @Override
+    public void processToken(String token) {
+        counter.add(token);
+    }
+
+
+    /**
+     * counts a token view - the view is only copied when it takes over a counter
+     * @param token token view passed in from input file
+     */
+    @Override
+    public void processToken(TokenView token) {
+        counter.add(token);
+    }
+
+
+    /**
+     * counts a batch of tokens
+     * @param batch tokens passed in from input file
+     */
+    @Override
+    public void processTokens(TokenBatch batch) {
+        for (int index = 0; index < batch.getSize(); index++) {
+            counter.add(batch.getView(index));
+        }
+    }
+
+
+    /**
+     * merges the counters of a partial analyzer
+     * @param partialAnalyzer TopTokensAnalyzer from a later section of the input
+     */
+    @Override
+    public void mergeAnalyzer(TokenAnalyzer partialAnalyzer) {
+        TopTokensAnalyzer partial = (TopTokensAnalyzer) partialAnalyzer;
+        counter.merge(partial.getCounter());
+    }
+
+
+    /**
+     * writes the counters to a snapshot
+     * @param output snapshot output
+     * @throws IOException handled by AnalysisSnapshot
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+        counter.writeSnapshot(output);
+    }
+
+
+    /**
+     * merges the counters of a snapshot
+     * @param input snapshot input
+     * @throws IOException if the snapshot is cut off
+     */
+    @Override
+    public void readSnapshot(SnapshotInput input) throws IOException {
+        counter.merge(SpaceSavingCounter.readSnapshot(input));
+    }
+
+
+    /**
+     * names the output file written by generateOutputFile
+     * @return output file name from properties
+     */
+    @Override
+    public String getOutputFileName() {
+        return OutputFileWriter.getFileName(properties, "output.file.top.tokens");
+    }
+
+
+    /**
+     * generate a formatted output file
+     * @param inputFilePath input filepath
+     */
+    @Override
+    public void generateOutputFile(String inputFilePath) {
+
+        String directoryFilePath = properties.getProperty("output.directory");
+        String outputFilePath = directoryFilePath + getOutputFileName();
+
+
+        try (PrintWriter print = OutputFileWriter.open(outputFilePath, properties)) {
+
+            writeTopTokens(print);
+
+        } catch (IOException exception) {
+            System.out.println("Error writing top tokens file");
+            // exception.printStackTrace();
+
+        } catch (Exception exception) {
+            System.out.println("Error processing top tokens file");
+            // exception.printStackTrace();
+        }
+    }
+
+
+    /**
+     * prints token and count pairs, most frequent first, then the overcount bound
+     * @param print printwriter
+     * @throws IOException handled in generateOutputFile
+     */
+    public void writeTopTokens(PrintWriter print) throws IOException {
+
+        StringBuilder output = new StringBuilder();
+
+        for (String token : counter.getTopTokens(topTokensCount)) {
+
+            output.append(token);
+            output.append("\t");
+            output.append(counter.getCount(token));
+
+            print.println(output.toString());
+            output.setLength(0);
+        }
+
+        //0 when every distinct token had a counter - the counts are exact
+        print.println();
+        print.println("Maximum Overcount\t" + counter.getMaximumError());
+    }
+}
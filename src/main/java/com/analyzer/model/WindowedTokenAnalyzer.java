@@ -0,0 +1,21 @@
+package com.analyzer.model;
+
+/**
+ * analyzer that only keeps the tokens of a sliding window - data older than the window is dropped as tokens arrive,
+ * and when the window is read, so an idle input ages out too
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see SlidingWindow
+ * @see WindowedTokenCountsAnalyzer
+ * @see WindowedTokenLocationSearchAnalyzer
+ */
+public interface WindowedTokenAnalyzer extends TokenAnalyzer {
+
+    /**
+     * drops the buckets that have left the window by now - called before the window's results are read
+     * @param now current time in milliseconds
+     */
+    public void advanceWindow(long now);
+}
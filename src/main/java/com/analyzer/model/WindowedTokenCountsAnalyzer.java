@@ -0,0 +1,476 @@
+package com.analyzer.model;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.function.IntConsumer;
+
+
+/**
+ * counts distinct tokens over a sliding window rather than the whole input - the windowed DistinctTokenCountsAnalyzer
+ * every bucket of the window keeps the symbols it saw with their counts, and the window's counts are the sum of
+ * its buckets, kept up to date as buckets come and go: a token is counted into the head bucket once
+ * and taken out once when its bucket expires, so the cost per token stays constant however long the window is
+ *
+ * the analyzer keeps a symbol table of its own - symbols that have left the window are dropped by interning
+ * the live ones into a new table once most of the table is dead, so a long follow does not keep every token
+ * it has ever seen
+ * the most frequent tokens are exact, picked from the window's counts when they are read
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see WindowedTokenAnalyzer
+ * @see SlidingWindow
+ * @see DistinctTokenCountsAnalyzer
+ */
+public class WindowedTokenCountsAnalyzer implements WindowedTokenAnalyzer {
+
+    //the table is rebuilt once it holds more than this many symbols and 4 times the live ones
+    private static final int COMPACT_MINIMUM_SYMBOLS = 65536;
+
+    //private instance variables
+    private Properties properties;
+    private final SlidingWindow window;
+    private final IntConsumer expireBucket = this::expireBucket;
+    private SymbolTable symbols;
+    private int[] windowCounts;
+    private int[] headStamps;            //head sequence + 1 of the last head bucket each symbol was counted into
+    private int[] headEntries;           //entry of the symbol in that bucket
+    private final int[][] bucketSymbols;
+    private final int[][] bucketCounts;
+    private final int[] bucketSizes;
+    private long windowTokenCount;
+    private int windowDistinctCount;
+    private int topTokensCount;
+
+
+    /**
+     * create an analyzer over an existing window
+     * @param window empty window, used only by this analyzer
+     */
+    public WindowedTokenCountsAnalyzer(SlidingWindow window) {
+        this.window = window;
+        symbols = new SymbolTable();
+        windowCounts = new int[1024];
+        headStamps = new int[1024];
+        headEntries = new int[1024];
+        bucketSymbols = new int[window.getBucketCount()][];
+        bucketCounts = new int[window.getBucketCount()][];
+        bucketSizes = new int[window.getBucketCount()];
+        topTokensCount = 25;
+    }
+
+
+    /**
+     * create an analyzer over a window set up from the follow.window properties
+     * @param properties properties type from CLA properties file
+     */
+    public WindowedTokenCountsAnalyzer(Properties properties) {
+        this(new SlidingWindow(properties));
+        this.properties = properties;
+        topTokensCount = Integer.parseInt(properties.getProperty("top.tokens.count"));
+    }
+
+
+    /**
+     * gives access to a token's count within the window
+     * @param token token to look up
+     * @return count, 0 if the token is not in the window
+     */
+    public int getCount(CharSequence token) {
+        int symbol = symbols.lookup(token);
+        return symbol >= 0 && symbol < windowCounts.length ? windowCounts[symbol] : 0;
+    }
+
+
+    /**
+     * returns the number of tokens in the window
+     * @return token count
+     */
+    public long getWindowTokenCount() {
+        return windowTokenCount;
+    }
+
+
+    /**
+     * returns the number of distinct tokens in the window
+     * @return distinct token count
+     */
+    public int getWindowDistinctCount() {
+        return windowDistinctCount;
+    }
+
+
+    /**
+     * gives access to the window's buckets
+     * @return sliding window
+     */
+    public SlidingWindow getWindow() {
+        return window;
+    }
+
+
+    /**
+     * returns the window's most frequent tokens - ties are listed in token order
+     * @param count number of tokens to return
+     * @return tokens, most frequent first
+     */
+    public List<String> getTopTokens(int count) {
+
+        //keeps the count best symbols seen so far, the weakest at the head
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.max(1, count), this::compareSymbols);
+
+        for (int symbol = 0; symbol < symbols.size() && symbol < windowCounts.length && count > 0; symbol++) {
+            if (windowCounts[symbol] == 0) {
+                continue;
+            }
+
+            if (best.size() < count) {
+                best.add(symbol);
+            } else if (compareSymbols(symbol, best.peek()) > 0) {
+                best.poll();
+                best.add(symbol);
+            }
+        }
+
+        List<String> topTokens = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            topTokens.add(symbols.getSymbol(best.poll()));
+        }
+        Collections.reverse(topTokens);
+        return topTokens;
+    }
+
+
+    /**
+     * orders symbols by window count, then by token in reverse so the earlier token ranks higher on a tie
+     * @param first symbol id
+     * @param second symbol id
+     * @return negative if first ranks below second
+     */
+    private int compareSymbols(int first, int second) {
+
+        if (windowCounts[first] != windowCounts[second]) {
+            return Integer.compare(windowCounts[first], windowCounts[second]);
+        }
+        return symbols.getSymbol(second).compareTo(symbols.getSymbol(first));
+    }
+
+
+    /**
+     * counts a token into the window
+     * @param token token passed in from input file
+     */
+    @Override
+    public void processToken(String token) {
+        window.advance(System.currentTimeMillis(), expireBucket);
+        countSymbol(symbols.intern(token), window.addToken(expireBucket), 1);
+    }
+
+
+    /**
+     * counts a batch of tokens into the window - the window is advanced once per batch
+     * @param batch tokens passed in from input file
+     */
+    @Override
+    public void processTokens(TokenBatch batch) {
+
+        window.advance(System.currentTimeMillis(), expireBucket);
+
+        for (int index = 0; index < batch.getSize(); index++) {
+            int symbol = batch.getSymbol(index, symbols);
+            countSymbol(symbol, window.addToken(expireBucket), 1);
+        }
+        compactSymbols();
+    }
+
+
+    /**
+     * drops the buckets that have left the window
+     * @param now current time in milliseconds
+     */
+    @Override
+    public void advanceWindow(long now) {
+        window.advance(now, expireBucket);
+    }
+
+
+    /**
+     * adds to a symbol's count in a bucket and in the window - the bucket must be the head
+     * @param symbol symbol id
+     * @param bucket head slot
+     * @param amount number of occurences to add
+     */
+    public void countSymbol(int symbol, int bucket, int amount) {
+
+        if (symbol >= windowCounts.length) {
+            int capacity = Math.max(symbol + 1, windowCounts.length * 2);
+            windowCounts = Arrays.copyOf(windowCounts, capacity);
+            headStamps = Arrays.copyOf(headStamps, capacity);
+            headEntries = Arrays.copyOf(headEntries, capacity);
+        }
+
+        int stamp = (int) window.getHeadSequence() + 1;
+
+        //first time in this bucket - the symbol gets an entry of its own
+        if (headStamps[symbol] != stamp) {
+            headStamps[symbol] = stamp;
+            headEntries[symbol] = addEntry(bucket, symbol);
+        }
+        bucketCounts[bucket][headEntries[symbol]] += amount;
+
+        if (windowCounts[symbol] == 0) {
+            windowDistinctCount++;
+        }
+        windowCounts[symbol] += amount;
+        windowTokenCount += amount;
+    }
+
+
+    /**
+     * appends a symbol entry with a count of 0 to a bucket
+     * @param bucket slot
+     * @param symbol symbol id
+     * @return entry index within the bucket
+     */
+    private int addEntry(int bucket, int symbol) {
+
+        if (bucketSymbols[bucket] == null) {
+            bucketSymbols[bucket] = new int[256];
+            bucketCounts[bucket] = new int[256];
+        } else if (bucketSizes[bucket] == bucketSymbols[bucket].length) {
+            bucketSymbols[bucket] = Arrays.copyOf(bucketSymbols[bucket], bucketSizes[bucket] * 2);
+            bucketCounts[bucket] = Arrays.copyOf(bucketCounts[bucket], bucketSizes[bucket] * 2);
+        }
+
+        int entry = bucketSizes[bucket]++;
+        bucketSymbols[bucket][entry] = symbol;
+        bucketCounts[bucket][entry] = 0;
+        return entry;
+    }
+
+
+    /**
+     * takes an expired bucket's counts out of the window and empties it - its arrays are kept for reuse
+     * @param bucket slot leaving the window
+     */
+    private void expireBucket(int bucket) {
+
+        for (int entry = 0; entry < bucketSizes[bucket]; entry++) {
+            int symbol = bucketSymbols[bucket][entry];
+            windowCounts[symbol] -= bucketCounts[bucket][entry];
+            windowTokenCount -= bucketCounts[bucket][entry];
+
+            if (windowCounts[symbol] == 0) {
+                windowDistinctCount--;
+            }
+        }
+        bucketSizes[bucket] = 0;
+    }
+
+
+    /**
+     * rebuilds the symbol table from the symbols still in the window once most of it has left
+     * ids are renumbered in the buckets, the head bucket's entries are found again through the new ids
+     */
+    private void compactSymbols() {
+
+        if (symbols.size() <= COMPACT_MINIMUM_SYMBOLS || symbols.size() <= 4 * windowDistinctCount) {
+            return;
+        }
+
+        SymbolTable liveSymbols = new SymbolTable();
+        int[] newIds = new int[symbols.size()];
+        int[] liveCounts = new int[Math.max(1024, windowDistinctCount * 2)];
+        TokenView token = new TokenView();
+
+        for (int symbol = 0; symbol < symbols.size(); symbol++) {
+            if (symbol < windowCounts.length && windowCounts[symbol] > 0) {
+                symbols.viewSymbol(symbol, token);
+                newIds[symbol] = liveSymbols.intern(token);
+                liveCounts[newIds[symbol]] = windowCounts[symbol];
+            }
+        }
+
+        headStamps = new int[liveCounts.length];
+        headEntries = new int[liveCounts.length];
+        int stamp = (int) window.getHeadSequence() + 1;
+
+        for (int bucket = 0; bucket < bucketSizes.length; bucket++) {
+            for (int entry = 0; entry < bucketSizes[bucket]; entry++) {
+                int symbol = newIds[bucketSymbols[bucket][entry]];
+                bucketSymbols[bucket][entry] = symbol;
+
+                if (bucket == window.getHead()) {
+                    headStamps[symbol] = stamp;
+                    headEntries[symbol] = entry;
+                }
+            }
+        }
+
+        symbols = liveSymbols;
+        windowCounts = liveCounts;
+    }
+
+
+    /**
+     * adds the window counts of a partial analyzer to this analyzer's head bucket
+     * @param partialAnalyzer WindowedTokenCountsAnalyzer from a later section of the input
+     */
+    @Override
+    public void mergeAnalyzer(TokenAnalyzer partialAnalyzer) {
+
+        WindowedTokenCountsAnalyzer partial = (WindowedTokenCountsAnalyzer) partialAnalyzer;
+        TokenView token = new TokenView();
+
+        for (int symbol = 0; symbol < partial.symbols.size() && symbol < partial.windowCounts.length; symbol++) {
+            if (partial.windowCounts[symbol] > 0) {
+                partial.symbols.viewSymbol(symbol, token);
+                countSymbol(symbols.intern(token), window.getHead(), partial.windowCounts[symbol]);
+            }
+        }
+    }
+
+
+    /**
+     * writes the window's time span, then its tokens as a sorted token list, each token followed by its count
+     * buckets are not written - a loaded window holds all of its tokens in one bucket
+     * @param output snapshot output
+     * @throws IOException handled by AnalysisSnapshot
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+
+        output.writeVarLong(Math.max(0, window.getStartTime()));
+        output.writeVarLong(Math.max(0, window.getEndTime()));
+
+        try {
+            symbols.forEachSortedSymbol(findWindowSymbols(), (token, symbol) -> {
+                try {
+                    output.writeToken(token);
+                    output.writeVarInt(windowCounts[symbol]);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+        output.endTokenList();
+    }
+
+
+    /**
+     * adds the window counts of a snapshot to the head bucket - a new analyzer takes over the snapshot's
+     * time span, so its window reads as the snapshot's
+     * @param input snapshot input
+     * @throws IOException if the snapshot is cut off
+     */
+    @Override
+    public void readSnapshot(SnapshotInput input) throws IOException {
+
+        long startTime = input.readVarLong();
+        long endTime = input.readVarLong();
+
+        if (window.getEndTime() < 0) {
+            window.advance(startTime, expireBucket);
+            window.advance(endTime, expireBucket);
+        }
+
+        for (String token = input.readToken(); token != null; token = input.readToken()) {
+            countSymbol(symbols.intern(token), window.getHead(), input.readVarInt());
+        }
+    }
+
+
+    /**
+     * names the output file written by generateOutputFile
+     * @return output file name from properties
+     */
+    @Override
+    public String getOutputFileName() {
+        return OutputFileWriter.getFileName(properties, "output.file.window.counts");
+    }
+
+
+    /**
+     * generate a formatted output file
+     * @param inputFilePath input filepath
+     */
+    @Override
+    public void generateOutputFile(String inputFilePath) {
+
+        String directoryFilePath = properties.getProperty("output.directory");
+        String outputFilePath = directoryFilePath + getOutputFileName();
+
+
+        try (PrintWriter print = OutputFileWriter.open(outputFilePath, properties)) {
+
+            writeWindowCounts(inputFilePath, print);
+
+        } catch (IOException exception) {
+            System.out.println("Error writing window counts file");
+            // exception.printStackTrace();
+
+        } catch (Exception exception) {
+            System.out.println("Error processing window counts file");
+            // exception.printStackTrace();
+        }
+    }
+
+
+    /**
+     * prints the window's span and totals, its most frequent tokens, then every token in the window with its count
+     * @param inputFilePath input filepath
+     * @param print printwriter
+     */
+    public void writeWindowCounts(String inputFilePath, PrintWriter print) {
+
+        print.println("Followed File: " + inputFilePath);
+        print.println("Window Start: " + new Date(Math.max(0, window.getStartTime())));
+        print.println("Window End: " + new Date(Math.max(0, window.getEndTime())));
+        print.println("Window Tokens\t" + windowTokenCount);
+        print.println("Window Distinct Tokens\t" + windowDistinctCount);
+
+        print.println();
+        print.println("Top Tokens");
+
+        for (String token : getTopTokens(topTokensCount)) {
+            print.println(token + "\t" + getCount(token));
+        }
+
+        print.println();
+        print.println("Token Counts");
+
+        symbols.forEachSortedSymbol(findWindowSymbols(), (token, symbol) -> {
+            print.print(token);
+            print.print('\t');
+            print.println(windowCounts[symbol]);
+        });
+    }
+
+
+    /**
+     * finds the symbols in the window
+     * @return bits set for each symbol id with a count
+     */
+    public BitSet findWindowSymbols() {
+
+        BitSet windowSymbols = new BitSet();
+        for (int symbol = 0; symbol < symbols.size() && symbol < windowCounts.length; symbol++) {
+            if (windowCounts[symbol] > 0) {
+                windowSymbols.set(symbol);
+            }
+        }
+        return windowSymbols;
+    }
+}
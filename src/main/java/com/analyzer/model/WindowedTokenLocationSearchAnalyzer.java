@@ -0,0 +1,398 @@
+package com.analyzer.model;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Properties;
+import java.util.function.IntConsumer;
+
+
+/**
+ * records where search tokens occur within a sliding window - the windowed TokenLocationSearchAnalyzer
+ * every bucket of the window keeps a PostingList per search token, so an expired bucket is dropped by
+ * releasing its lists without looking at the positions in them
+ *
+ * positions count every token since the analyzer started, as a long - a bucket stores them relative to the
+ * position it started at, so its PostingLists stay small however long the input is followed
+ *
+ * @author mcherry2
+ * @version 4.0
+ * @since 2026-10-18
+ * @see WindowedTokenAnalyzer
+ * @see SlidingWindow
+ * @see TokenLocationSearchAnalyzer
+ */
+public class WindowedTokenLocationSearchAnalyzer implements WindowedTokenAnalyzer {
+
+    //private instance variables
+    private Properties properties;
+    private final SearchTokenMatcher matcher;
+    private final SlidingWindow window;
+    private final IntConsumer expireBucket = this::expireBucket;
+    private final PostingList[][] bucketLocations;    //indexed by slot, then matcher term number
+    private final long[] bucketStartLocations;
+    private long headSequence = -1;
+    private long currentTokenLocation;
+
+
+    /**
+     * create an analyzer over an existing window
+     * @param matcher compiled search tokens - shared, never modified
+     * @param window empty window, used only by this analyzer
+     */
+    public WindowedTokenLocationSearchAnalyzer(SearchTokenMatcher matcher, SlidingWindow window) {
+        this.matcher = matcher;
+        this.window = window;
+        bucketLocations = new PostingList[window.getBucketCount()][];
+        bucketStartLocations = new long[window.getBucketCount()];
+    }
+
+
+    /**
+     * create an analyzer over a window set up from the follow.window properties
+     * @param properties properties type from CLA properties file
+     * @param matcher compiled search tokens - shared, never modified
+     */
+    public WindowedTokenLocationSearchAnalyzer(Properties properties, SearchTokenMatcher matcher) {
+        this(matcher, new SlidingWindow(properties));
+        this.properties = properties;
+    }
+
+
+    /**
+     * gives access to the search tokens
+     * @return search token matcher
+     */
+    public SearchTokenMatcher getMatcher() {
+        return matcher;
+    }
+
+
+    /**
+     * gives access to the running token position
+     * @return number of tokens processed so far
+     */
+    public long getCurrentTokenLocation() {
+        return currentTokenLocation;
+    }
+
+
+    /**
+     * counts a search token's occurences within the window
+     * @param term matcher term number
+     * @return number of positions in the window
+     */
+    public int getHitCount(int term) {
+
+        int hitCount = 0;
+
+        for (PostingList[] locations : bucketLocations) {
+            if (locations != null && locations[term] != null) {
+                hitCount += locations[term].size();
+            }
+        }
+        return hitCount;
+    }
+
+
+    /**
+     * collects a search token's positions within the window
+     * @param term matcher term number
+     * @return positions in increasing order
+     */
+    public long[] getHitLocations(int term) {
+
+        long[] hitLocations = new long[getHitCount(term)];
+        int index = 0;
+
+        //oldest bucket first
+        for (int step = 1; step <= bucketLocations.length; step++) {
+            int bucket = (window.getHead() + step) % bucketLocations.length;
+
+            if (bucketLocations[bucket] == null || bucketLocations[bucket][term] == null) {
+                continue;
+            }
+
+            PostingList.Cursor cursor = bucketLocations[bucket][term].cursor();
+            while (cursor.hasNext()) {
+                hitLocations[index++] = bucketStartLocations[bucket] + cursor.next();
+            }
+        }
+        return hitLocations;
+    }
+
+
+    /**
+     * records a token's position if it matches a search token
+     * @param token token passed in from input file
+     */
+    @Override
+    public void processToken(String token) {
+        window.advance(System.currentTimeMillis(), expireBucket);
+        recordToken(matcher.match(token));
+    }
+
+
+    /**
+     * records matches in a batch - the window is advanced once per batch
+     * @param batch tokens passed in from input file
+     */
+    @Override
+    public void processTokens(TokenBatch batch) {
+
+        window.advance(System.currentTimeMillis(), expireBucket);
+
+        for (int index = 0; index < batch.getSize(); index++) {
+            recordToken(matcher.match(batch.getView(index)));
+        }
+    }
+
+
+    /**
+     * drops the buckets that have left the window
+     * @param now current time in milliseconds
+     */
+    @Override
+    public void advanceWindow(long now) {
+        window.advance(now, expireBucket);
+    }
+
+
+    /**
+     * counts a token into the window and records its position under its search term
+     * @param term matcher term number, -1 if the token is not a search token
+     */
+    private void recordToken(int term) {
+
+        int bucket = window.addToken(expireBucket);
+        currentTokenLocation++;
+
+        if (term >= 0) {
+            startHeadBucket(currentTokenLocation - 1);
+            addLocation(bucket, term, currentTokenLocation);
+        }
+    }
+
+
+    /**
+     * sets the position a bucket that just became the head stores its positions relative to -
+     * a head that already holds positions keeps its start
+     * @param startLocation position before the first position the bucket will hold
+     */
+    private void startHeadBucket(long startLocation) {
+
+        if (headSequence != window.getHeadSequence()) {
+            headSequence = window.getHeadSequence();
+            bucketStartLocations[window.getHead()] = startLocation;
+        }
+    }
+
+
+    /**
+     * records a position in the head bucket, after its start
+     * @param bucket head slot
+     * @param term matcher term number
+     * @param location token position
+     */
+    private void addLocation(int bucket, int term, long location) {
+
+        if (bucketLocations[bucket] == null) {
+            bucketLocations[bucket] = new PostingList[matcher.size()];
+        }
+        if (bucketLocations[bucket][term] == null) {
+            bucketLocations[bucket][term] = new PostingList();
+        }
+        bucketLocations[bucket][term].add((int) (location - bucketStartLocations[bucket]));
+    }
+
+
+    /**
+     * drops an expired bucket's positions
+     * @param bucket slot leaving the window
+     */
+    private void expireBucket(int bucket) {
+        bucketLocations[bucket] = null;
+    }
+
+
+    /**
+     * adds the window positions of a partial analyzer to the head bucket
+     * partial positions start over at 1 - they are rebased by the number of tokens this analyzer has already seen
+     * @param partialAnalyzer WindowedTokenLocationSearchAnalyzer from the next section of the input
+     */
+    @Override
+    public void mergeAnalyzer(TokenAnalyzer partialAnalyzer) {
+
+        WindowedTokenLocationSearchAnalyzer partial = (WindowedTokenLocationSearchAnalyzer) partialAnalyzer;
+        SearchTokenMatcher partialMatcher = partial.getMatcher();
+        startHeadBucket(currentTokenLocation);
+
+        for (int partialTerm = 0; partialTerm < partialMatcher.size(); partialTerm++) {
+            int term = partialMatcher == matcher ? partialTerm : matcher.match(partialMatcher.getTerm(partialTerm));
+
+            if (term >= 0) {
+                for (long location : partial.getHitLocations(partialTerm)) {
+                    addLocation(window.getHead(), term, currentTokenLocation + location);
+                }
+            }
+        }
+        currentTokenLocation += partial.getCurrentTokenLocation();
+    }
+
+
+    /**
+     * writes the running token position and the position the window's first bucket starts at,
+     * then the search tokens as a token list, each followed by the number of its positions in the window
+     * and the positions as gaps from that start
+     * @param output snapshot output
+     * @throws IOException handled by AnalysisSnapshot
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+
+        long windowStartLocation = findWindowStartLocation();
+
+        output.writeVarLong(currentTokenLocation);
+        output.writeVarLong(windowStartLocation);
+
+        for (int term = 0; term < matcher.size(); term++) {
+            long[] hitLocations = getHitLocations(term);
+            long previousLocation = windowStartLocation;
+
+            output.writeToken(matcher.getTerm(term));
+            output.writeVarInt(hitLocations.length);
+
+            for (long location : hitLocations) {
+                output.writeVarLong(location - previousLocation);
+                previousLocation = location;
+            }
+        }
+        output.endTokenList();
+    }
+
+
+    /**
+     * adds the window positions of a snapshot to the head bucket, rebased like a partial analyzer's
+     * positions of search tokens this analyzer does not search for are dropped
+     * @param input snapshot input
+     * @throws IOException if the snapshot is cut off
+     */
+    @Override
+    public void readSnapshot(SnapshotInput input) throws IOException {
+
+        long savedTokenLocation = input.readVarLong();
+        long savedStartLocation = input.readVarLong();
+        startHeadBucket(currentTokenLocation + savedStartLocation);
+
+        for (String searchToken = input.readToken(); searchToken != null; searchToken = input.readToken()) {
+            int term = matcher.match(searchToken);
+            int hitCount = input.readVarInt();
+            long location = currentTokenLocation + savedStartLocation;
+
+            for (int hit = 0; hit < hitCount; hit++) {
+                location += input.readVarLong();
+
+                if (term >= 0) {
+                    addLocation(window.getHead(), term, location);
+                }
+            }
+        }
+        currentTokenLocation += savedTokenLocation;
+    }
+
+
+    /**
+     * finds the lowest start of the buckets holding positions
+     * @return start position, the running position when the window holds none
+     */
+    public long findWindowStartLocation() {
+
+        long windowStartLocation = currentTokenLocation;
+
+        for (int bucket = 0; bucket < bucketLocations.length; bucket++) {
+            if (bucketLocations[bucket] != null) {
+                windowStartLocation = Math.min(windowStartLocation, bucketStartLocations[bucket]);
+            }
+        }
+        return windowStartLocation;
+    }
+
+
+    /**
+     * names the output file written by generateOutputFile
+     * @return output file name from properties
+     */
+    @Override
+    public String getOutputFileName() {
+        return OutputFileWriter.getFileName(properties, "output.file.window.search.locations");
+    }
+
+
+    /**
+     * generate a formatted output file
+     * @param inputFilePath input filepath
+     */
+    @Override
+    public void generateOutputFile(String inputFilePath) {
+
+        String directoryFilePath = properties.getProperty("output.directory");
+        String outputFilePath = directoryFilePath + getOutputFileName();
+
+
+        try (PrintWriter print = OutputFileWriter.open(outputFilePath, properties)) {
+
+            writeWindowLocations(print);
+
+        } catch (IOException exception) {
+            System.out.println("Error processing window search token output file");
+            // exception.printStackTrace();
+
+        } catch (Exception exception) {
+            System.out.println("Error writing to window search token output file");
+            // exception.printStackTrace();
+        }
+    }
+
+
+    /**
+     * prints every search token with its positions in the window, in the layout of token_locations.txt
+     * @param print printwriter object
+     */
+    public void writeWindowLocations(PrintWriter print) {
+
+        final int LINE_LIMIT = Integer.parseInt(properties.getProperty("location.search.line.limit"));
+
+        for (int term = 0; term < matcher.size(); term++) {
+            long[] hitLocations = getHitLocations(term);
+
+            print.println(matcher.getTerm(term) + " =");
+            print.println();
+
+            if (hitLocations.length == 0) {
+                continue;
+            }
+
+            StringBuilder output = new StringBuilder();
+            int lineLength = 0;
+
+            for (int hit = 0; hit < hitLocations.length; hit++) {
+                output.setLength(0);
+                output.append(hitLocations[hit]);
+
+                //wraps before a position that would reach the limit, counting its ", "
+                int valueLength = output.length() + 2;
+
+                if (lineLength + valueLength >= LINE_LIMIT) {
+                    print.println();
+                    lineLength = 0;
+                }
+
+                if (hit != hitLocations.length - 1) {
+                    output.append(", ");
+                }
+                print.print(output);
+                lineLength += valueLength;
+            }
+            print.println();
+            print.println();
+        }
+    }
+}